@@ -1,6 +1,7 @@
 package com.stockly.config;
 
-import com.stockly.repository.UserRepository;
+import com.stockly.service.impl.UserDetailsCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
@@ -17,20 +18,21 @@ import javax.net.ssl.*;
 
 @Configuration
 public class ApplicationConfiguration {
-    private final UserRepository userRepository;
-    public ApplicationConfiguration(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    private final UserDetailsCache userDetailsCache;
+    public ApplicationConfiguration(UserDetailsCache userDetailsCache) {
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Bean
     UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
+        return username -> userDetailsCache.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    // Each step up doubles the cost of every hash; the measured time is logged at startup
     @Bean
-    BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    BCryptPasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -39,11 +41,11 @@ public class ApplicationConfiguration {
     }
 
     @Bean
-    AuthenticationProvider authenticationProvider() {
+    AuthenticationProvider authenticationProvider(BCryptPasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
 
         authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
 
         return authProvider;
     }
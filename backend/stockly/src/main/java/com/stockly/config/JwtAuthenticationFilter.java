@@ -1,14 +1,18 @@
 package com.stockly.config;
 
 import com.stockly.service.JwtService;
+import com.stockly.service.impl.UserTokenVersionCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -18,21 +22,28 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final HandlerExceptionResolver handlerExceptionResolver;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserTokenVersionCache userTokenVersionCache;
+    private final boolean statelessEnabled;
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
             UserDetailsService userDetailsService,
-            HandlerExceptionResolver handlerExceptionResolver
+            HandlerExceptionResolver handlerExceptionResolver,
+            UserTokenVersionCache userTokenVersionCache,
+            @Value("${security.jwt.stateless.enabled:true}") boolean statelessEnabled
     ) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
         this.handlerExceptionResolver = handlerExceptionResolver;
+        this.userTokenVersionCache = userTokenVersionCache;
+        this.statelessEnabled = statelessEnabled;
     }
 
     @Override
@@ -62,36 +73,50 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (token != null) {
             try {
-                final String userEmail = jwtService.extractUsername(token);
+                // Parsed and verified once; the claims are reused for the validity check below
+                final Claims claims = jwtService.parseToken(token);
+                final String userEmail = claims.getSubject();
 
                 Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
                 if (userEmail != null && authentication == null) {
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                    // Enhanced validation - check if token is valid and user account is in good standing
-                    if (jwtService.isTokenValid(token, userDetails) &&
-                            userDetails.isEnabled() &&
-                            userDetails.isAccountNonExpired() &&
-                            userDetails.isAccountNonLocked() &&
-                            userDetails.isCredentialsNonExpired()) {
-
-                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    UsernamePasswordAuthenticationToken authToken;
+
+                    if (statelessEnabled && hasStatelessClaims(claims)) {
+                        // Fast path: authorities come from the token, the version check replaces loading the user
+                        long userId = ((Number) claims.get(JwtService.USER_ID_CLAIM)).longValue();
+                        int tokenVersion = ((Number) claims.get(JwtService.TOKEN_VERSION_CLAIM)).intValue();
+                        if (!jwtService.isTokenValid(claims, null) || !userTokenVersionCache.isCurrent(userId, tokenVersion)) {
+                            rejectToken(response);
+                            return;
+                        }
+
+                        List<SimpleGrantedAuthority> authorities = ((List<?>) claims.get(JwtService.ROLES_CLAIM)).stream()
+                                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                                .toList();
+                        authToken = new UsernamePasswordAuthenticationToken(userEmail, null, authorities);
+                    } else {
+                        UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+
+                        // Enhanced validation - check if token is valid and user account is in good standing
+                        if (!(jwtService.isTokenValid(claims, userDetails) &&
+                                userDetails.isEnabled() &&
+                                userDetails.isAccountNonExpired() &&
+                                userDetails.isAccountNonLocked() &&
+                                userDetails.isCredentialsNonExpired())) {
+                            rejectToken(response);
+                            return;
+                        }
+
+                        authToken = new UsernamePasswordAuthenticationToken(
                                 userDetails,
                                 null,
                                 userDetails.getAuthorities()
                         );
-
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                    } else {
-                        // Clear any existing authentication and return unauthorized
-                        SecurityContextHolder.clearContext();
-                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                        response.setContentType("application/json");
-                        response.getWriter().write("{\"error\":\"Invalid or expired token\"}");
-                        return;
                     }
+
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
             } catch (Exception exception) {
                 SecurityContextHolder.clearContext();
@@ -103,6 +128,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Tokens issued before the stateless claims existed are still authenticated against the database
+    private boolean hasStatelessClaims(Claims claims) {
+        return claims.get(JwtService.USER_ID_CLAIM) instanceof Number
+                && claims.get(JwtService.TOKEN_VERSION_CLAIM) instanceof Number
+                && claims.get(JwtService.ROLES_CLAIM) instanceof List<?>;
+    }
+
+    // Clear any existing authentication and return unauthorized
+    private void rejectToken(HttpServletResponse response) throws IOException {
+        SecurityContextHolder.clearContext();
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"Invalid or expired token\"}");
+    }
+
     private String extractJwtFromHeader(HttpServletRequest request) {
         final String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
@@ -1,6 +1,7 @@
 package com.stockly.config;
 
-import com.stockly.model.InventoryLog;
+import com.stockly.model.InventoryMovementRollup;
+import com.stockly.service.impl.command.InventoryLogBuckets;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.index.Index;
@@ -21,25 +22,61 @@ public class MongoIndexConfig {
 
     @PostConstruct
     public void initIndexes() {
-        IndexOperations indexOps = mongoTemplate.indexOps(InventoryLog.class);
+        IndexOperations rollupIndexOps = mongoTemplate.indexOps(InventoryMovementRollup.class);
 
-        // Compound index for warehouse and product queries
-        indexOps.ensureIndex(new Index()
+        // One rollup document per bucket, also serving per-warehouse charts
+        rollupIndexOps.ensureIndex(new Index()
+                .on("granularity", Sort.Direction.ASC)
                 .on("warehouseId", Sort.Direction.ASC)
                 .on("productId", Sort.Direction.ASC)
-                .on("timestamp", Sort.Direction.DESC)
-                .named("warehouse_product_timestamp_idx"));
+                .on("bucketStart", Sort.Direction.ASC)
+                .on("actionType", Sort.Direction.ASC)
+                .unique()
+                .named("rollup_bucket_idx"));
+
+        rollupIndexOps.ensureIndex(new Index()
+                .on("granularity", Sort.Direction.ASC)
+                .on("productId", Sort.Direction.ASC)
+                .on("bucketStart", Sort.Direction.ASC)
+                .named("rollup_product_idx"));
+
+        rollupIndexOps.ensureIndex(new Index()
+                .on("granularity", Sort.Direction.ASC)
+                .on("bucketStart", Sort.Direction.ASC)
+                .named("rollup_time_idx"));
+
+        // Monthly buckets get their indexes when created; only an existing legacy collection is touched here
+        if (!mongoTemplate.collectionExists(InventoryLogBuckets.LEGACY_COLLECTION)) {
+            return;
+        }
+        IndexOperations indexOps = mongoTemplate.indexOps(InventoryLogBuckets.LEGACY_COLLECTION);
+        ensureInventoryLogIndexes(indexOps);
 
         // TTL index for automatic log expiration (e.g., 2 years)
         indexOps.ensureIndex(new Index()
                 .on("timestamp", Sort.Direction.ASC)
                 .expire(730, TimeUnit.DAYS) // 2 years
                 .named("timestamp_ttl_idx"));
+    }
+
+    public static void ensureInventoryLogIndexes(IndexOperations indexOps) {
+        // Compound index for warehouse and product queries
+        indexOps.ensureIndex(new Index()
+                .on("warehouseId", Sort.Direction.ASC)
+                .on("productId", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .named("warehouse_product_timestamp_idx"));
 
         // Index for reference lookups
         indexOps.ensureIndex(new Index()
                 .on("referenceId", Sort.Direction.ASC)
                 .on("referenceType", Sort.Direction.ASC)
                 .named("reference_idx"));
+
+        // Multikey index backing the free-text search over the precomputed word prefixes
+        indexOps.ensureIndex(new Index()
+                .on("searchTokens", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .named("search_tokens_timestamp_idx"));
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1/admins")
 public class AdminCommandController {
@@ -21,9 +23,7 @@ public class AdminCommandController {
 
     @PostMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
-    public ResponseEntity<User> createAdministrator(@RequestBody RegisterUserDTO registerUserDto) {
-        User createdAdmin = userCommandService.createAdministrator(registerUserDto);
-
-        return ResponseEntity.ok(createdAdmin);
+    public CompletableFuture<ResponseEntity<User>> createAdministrator(@RequestBody RegisterUserDTO registerUserDto) {
+        return userCommandService.createAdministrator(registerUserDto).thenApply(ResponseEntity::ok);
     }
 }
@@ -6,6 +6,7 @@ import com.stockly.dto.VerifyUserDTO;
 import com.stockly.model.User;
 import com.stockly.responses.AuthResponse;
 import com.stockly.service.command.AuthenticationService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -14,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -21,37 +23,36 @@ import java.time.Duration;
 public class AuthenticationCommandController {
     private final AuthenticationService authenticationService;
 
+    // Completes once the password has been hashed on the hashing pool, releasing the request thread meanwhile
     @PostMapping("/signup")
-    public ResponseEntity<User> register(@RequestBody RegisterUserDTO registerUserDto) {
-        User registeredUser = authenticationService.signup(registerUserDto);
-        return ResponseEntity.ok(registeredUser);
+    public CompletableFuture<ResponseEntity<User>> register(@RequestBody RegisterUserDTO registerUserDto) {
+        return authenticationService.signup(registerUserDto).thenApply(ResponseEntity::ok);
     }
 
+    // Completes once the password has been verified on the hashing pool, releasing the request thread meanwhile
     @PostMapping("/login")
-    public ResponseEntity<?> authenticate(@RequestBody LoginUserDTO loginUserDto, HttpServletResponse response) {
-        AuthResponse tokens = authenticationService.authenticate(loginUserDto);
-
-        ResponseCookie refreshCookie = ResponseCookie.from("refreshToken", tokens.getRefreshToken())
-                .httpOnly(true)
-                .secure(false)
-                .path("/")
-                .maxAge(Duration.ofDays(7))
-                .sameSite("Lax") // optional but recommended for security
-                .build();
-
-        ResponseCookie accessCookie = ResponseCookie.from("accessToken", tokens.getAccessToken())
-                .httpOnly(true)
-                .secure(true)
-                .path("/")
-                .maxAge(Duration.ofMinutes(60))
-                .sameSite("Lax")
-                .build();
-
-        response.addHeader(HttpHeaders.SET_COOKIE, refreshCookie.toString());
-        response.addHeader(HttpHeaders.SET_COOKIE, accessCookie.toString());
-
-
-        return ResponseEntity.ok(new AuthResponse(tokens.getAccessToken(), tokens.getRefreshToken(), "Login successful"));
+    public CompletableFuture<ResponseEntity<AuthResponse>> authenticate(@RequestBody LoginUserDTO loginUserDto, HttpServletRequest request) {
+        return authenticationService.authenticate(loginUserDto, request.getRemoteAddr()).thenApply(tokens -> {
+            ResponseCookie refreshCookie = ResponseCookie.from("refreshToken", tokens.getRefreshToken())
+                    .httpOnly(true)
+                    .secure(false)
+                    .path("/")
+                    .maxAge(Duration.ofDays(7))
+                    .sameSite("Lax") // optional but recommended for security
+                    .build();
+
+            ResponseCookie accessCookie = ResponseCookie.from("accessToken", tokens.getAccessToken())
+                    .httpOnly(true)
+                    .secure(true)
+                    .path("/")
+                    .maxAge(Duration.ofMinutes(60))
+                    .sameSite("Lax")
+                    .build();
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, refreshCookie.toString(), accessCookie.toString())
+                    .body(new AuthResponse(tokens.getAccessToken(), tokens.getRefreshToken(), "Login successful"));
+        });
     }
 
     @PostMapping("/refresh")
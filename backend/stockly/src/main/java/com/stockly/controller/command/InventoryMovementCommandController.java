@@ -0,0 +1,33 @@
+package com.stockly.controller.command;
+
+import com.stockly.service.command.InventoryMovementRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admins/inventory-movements")
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+public class InventoryMovementCommandController {
+
+    private final InventoryMovementRollupService inventoryMovementRollupService;
+
+    public InventoryMovementCommandController(InventoryMovementRollupService inventoryMovementRollupService) {
+        this.inventoryMovementRollupService = inventoryMovementRollupService;
+    }
+
+    // Recomputes the rollups of every UTC day touched by the range from the stored inventory logs; the current day is refused
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildRollups(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+        return ResponseEntity.ok(Map.of("logs", inventoryMovementRollupService.rebuild(start, end)));
+    }
+}
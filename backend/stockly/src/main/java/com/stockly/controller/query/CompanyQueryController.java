@@ -1,6 +1,7 @@
 package com.stockly.controller.query;
 
 import com.stockly.dto.CompanyDTO;
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.service.query.CompanyQueryService;
 import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
@@ -69,6 +70,26 @@ public class CompanyQueryController {
                 pageRequest, companyType, managerId, searchTerm));
     }
 
+    // Keyset mode: pass an empty cursor for the first page, then the returned nextCursor
+    @GetMapping(value = "/page", params = "cursor")
+    public ResponseEntity<CursorPageDTO<CompanyDTO>> getAllCompaniesWithCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "companyType", required = false) String companyType,
+            @RequestParam(value = "managerId", required = false) Long managerId,
+            @RequestParam(value = "searchTerm", required = false) String searchTerm
+    ) {
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(companyQueryService.getAllCompaniesWithCursor(
+                cursor, pageSize, sort, includeTotal, companyType, managerId, searchTerm));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Long> getCompanyCount() {
         return ResponseEntity.ok(companyQueryService.getCompanyCount());
@@ -1,8 +1,12 @@
 package com.stockly.controller.query;
 
+import com.stockly.dto.CursorPageDTO;
+import com.stockly.dto.InventoryMovementPointDTO;
 import com.stockly.model.InventoryLog;
+import com.stockly.model.enums.MovementGranularity;
 import com.stockly.service.InventoryLogExportService;
 import com.stockly.service.query.InventoryLogQueryService;
+import com.stockly.service.query.InventoryMovementQueryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -13,14 +17,13 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.ResponseEntity;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
@@ -30,6 +33,7 @@ public class InventoryLogQueryController {
 
     private final InventoryLogQueryService inventoryLogQueryService;
     private final InventoryLogExportService inventoryLogExportService;
+    private final InventoryMovementQueryService inventoryMovementQueryService;
 
     @GetMapping("/warehouse/{warehouseId}")
     public Page<InventoryLog> getLogsByWarehouse(
@@ -59,6 +63,7 @@ public class InventoryLogQueryController {
             @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
             @RequestParam(value = "sortBy", defaultValue = "timestamp") String sortBy,
             @RequestParam(value = "direction", defaultValue = "desc") String direction,
+            @RequestParam(value = "countStrategy", defaultValue = "${stockly.inventory-log.count.default-strategy:exact}") String countStrategy,
             @RequestParam(value = "warehouseId", required = false) Long warehouseId,
             @RequestParam(value = "productId", required = false) Long productId,
             @RequestParam(value = "actionType", required = false) String actionType,
@@ -76,6 +81,44 @@ public class InventoryLogQueryController {
 
         return ResponseEntity.ok(inventoryLogQueryService.getInventoryLogsWithPagination(
                 pageRequest,
+                InventoryLogQueryService.CountStrategy.valueOf(countStrategy.toUpperCase()),
+                warehouseId,
+                productId,
+                actionType,
+                source,
+                userId,
+                startDate,
+                endDate,
+                searchTerm
+        ));
+    }
+
+    // Keyset mode: pass an empty cursor for the first page, then the returned nextCursor
+    @GetMapping(value = "/page", params = "cursor")
+    public ResponseEntity<CursorPageDTO<InventoryLog>> getInventoryLogsWithCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "timestamp") String sortBy,
+            @RequestParam(value = "direction", defaultValue = "desc") String direction,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "warehouseId", required = false) Long warehouseId,
+            @RequestParam(value = "productId", required = false) Long productId,
+            @RequestParam(value = "actionType", required = false) String actionType,
+            @RequestParam(value = "source", required = false) String source,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @RequestParam(value = "searchTerm", required = false) String searchTerm) {
+
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(inventoryLogQueryService.getInventoryLogsWithCursor(
+                cursor,
+                pageSize,
+                sort,
+                includeTotal,
                 warehouseId,
                 productId,
                 actionType,
@@ -102,11 +145,22 @@ public class InventoryLogQueryController {
         return inventoryLogQueryService.getRecentActivity(warehouseId, limit);
     }
 
+    // Chart data from the hourly/daily rollups; omitting warehouseId or productId sums over all of them
+    @GetMapping("/movements")
+    public ResponseEntity<List<InventoryMovementPointDTO>> getMovements(
+            @RequestParam(value = "granularity", defaultValue = "DAY") MovementGranularity granularity,
+            @RequestParam(value = "warehouseId", required = false) Long warehouseId,
+            @RequestParam(value = "productId", required = false) Long productId,
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+        return ResponseEntity.ok(inventoryMovementQueryService.getMovements(granularity, warehouseId, productId, start, end));
+    }
+
 
 
 
     @GetMapping("/export/excel")
-    public ResponseEntity<Resource> exportInventoryLogsToExcel(
+    public ResponseEntity<StreamingResponseBody> exportInventoryLogsToExcel(
             @RequestParam(value = "warehouseId", required = false) Long warehouseId,
             @RequestParam(value = "productId", required = false) Long productId,
             @RequestParam(value = "actionType", required = false) String actionType,
@@ -116,38 +170,20 @@ public class InventoryLogQueryController {
             @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
             @RequestParam(value = "searchTerm", required = false) String searchTerm) {
 
-        try {
-            // Get all logs (without pagination) based on filters
-            Page<InventoryLog> logs = inventoryLogQueryService.getInventoryLogsWithPagination(
-                    Pageable.unpaged(),
-                    warehouseId,
-                    productId,
-                    actionType,
-                    source,
-                    userId,
-                    startDate,
-                    endDate,
-                    searchTerm
-            );
-
-            ByteArrayInputStream in = inventoryLogExportService.exportToExcel(logs);
-            byte[] bytes = in.readAllBytes();
-
-            if (bytes == null || bytes.length < 1024) { // Simple check for small file size
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=no_data.xlsx")
-                        .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                        .body(new ByteArrayResource("No inventory logs found matching the criteria".getBytes()));
+        // Logs are read from a cursor and written straight to the response, never collected in memory
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<InventoryLog> logs = inventoryLogQueryService.streamInventoryLogs(
+                    warehouseId, productId, actionType, source, userId, startDate, endDate, searchTerm)) {
+                inventoryLogExportService.exportToExcel(logs, outputStream);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to export inventory logs to Excel", e);
+                throw e;
             }
+        };
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=inventory_logs.xlsx")
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new ByteArrayResource(bytes));
-        } catch (Exception e) {
-            log.error("Failed to export inventory logs to Excel", e);
-            return ResponseEntity.internalServerError()
-                    .body(new ByteArrayResource("Failed to generate Excel export".getBytes()));
-        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=inventory_logs.xlsx")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.stockly.controller.query;
 
+import com.stockly.dto.CursorPageDTO;
+import com.stockly.dto.IncrementalOrderExportDTO;
 import com.stockly.dto.OrderDTO;
 import com.stockly.dto.OrderExportDTO;
 import com.stockly.repository.OrderRepository;
@@ -14,15 +16,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -84,6 +91,45 @@ public class OrderQueryController {
         return ResponseEntity.ok(orderExportService.exportOrders(queryDate));
     }
 
+    @GetMapping("/export/incremental")
+    public ResponseEntity<IncrementalOrderExportDTO> exportOrderChanges(
+            @RequestParam(required = false) String watermark,
+            @RequestParam(defaultValue = "10000") Integer limit) {
+        return ResponseEntity.ok(orderExportService.exportOrderChanges(watermark, Math.min(Math.max(limit, 1), 100000)));
+    }
+
+    @GetMapping("/export/stream")
+    public ResponseEntity<StreamingResponseBody> streamOrderExport(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            Instant startDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        Instant queryDate = (startDate != null) ? startDate : Instant.now().minus(365, ChronoUnit.DAYS);
+        OrderExportService.ExportFormat exportFormat = OrderExportService.ExportFormat.from(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                orderExportService.streamOrders(queryDate, exportFormat, gzipStream);
+                gzipStream.finish();
+            } else {
+                orderExportService.streamOrders(queryDate, exportFormat, outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == OrderExportService.ExportFormat.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/page")
     public ResponseEntity<Page<OrderDTO>> getAllOrdersWithPagination(
             @RequestParam(value = "offset", defaultValue = "0") Integer offset,
@@ -117,6 +163,24 @@ public class OrderQueryController {
         return ResponseEntity.ok(orders);
     }
 
+    // Keyset mode: pass an empty cursor for the first page, then the returned nextCursor
+    @GetMapping(value = "/page", params = "cursor")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getAllOrdersWithCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "managerId", required = false) Long managerId,
+            @RequestParam(required = false) String searchTerm
+    ) {
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+        return ResponseEntity.ok(orderQueryService.getAllOrdersWithCursor(
+                cursor, pageSize, sort, includeTotal, managerId, searchTerm));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Long> getOrderCount() {
         return ResponseEntity.ok(orderQueryService.getOrdersCount());
@@ -1,5 +1,6 @@
 package com.stockly.controller.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.ReceiptDTO;
 import com.stockly.service.query.ReceiptQueryService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -87,6 +88,49 @@ public class ReceiptQueryController {
         ));
     }
 
+    @GetMapping(value = "/page", params = "cursor")
+    @Operation(summary = "Get receipts with keyset pagination",
+            description = "Pass an empty cursor for the first page, then the returned nextCursor; the total is only counted on request")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the receipt page")
+    public ResponseEntity<CursorPageDTO<ReceiptDTO>> getReceiptsWithCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "orderId") String sortBy,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "buyerCompanyId", required = false) Long buyerCompanyId,
+            @RequestParam(value = "supplierCompanyId", required = false) Long supplierCompanyId,
+            @RequestParam(value = "companyId", required = false) Long companyId,
+            @RequestParam(value = "sourceWarehouseId", required = false) Long sourceWarehouseId,
+            @RequestParam(value = "destinationWarehouseId", required = false) Long destinationWarehouseId,
+            @RequestParam(value = "warehouseId", required = false) Long warehouseId,
+            @RequestParam(value = "managerId", required = false) Long managerId,
+            @RequestParam(value = "buyerManagerId", required = false) Long buyerManagerId,
+            @RequestParam(value = "supplierManagerId", required = false) Long supplierManagerId,
+            @RequestParam(value = "searchTerm", required = false) String searchTerm,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(receiptQueryService.getReceiptsWithCursor(
+                cursor,
+                pageSize,
+                sort,
+                includeTotal,
+                buyerCompanyId,
+                supplierCompanyId,
+                companyId,
+                sourceWarehouseId,
+                destinationWarehouseId,
+                warehouseId,
+                managerId,
+                buyerManagerId,
+                supplierManagerId,
+                searchTerm
+        ));
+    }
+
     @GetMapping("/company/{companyId}")
     @Operation(summary = "Get receipts by company ID",
             description = "Retrieve receipts associated with a specific company")
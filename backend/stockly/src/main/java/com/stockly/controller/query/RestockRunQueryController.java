@@ -0,0 +1,38 @@
+package com.stockly.controller.query;
+
+import com.stockly.dto.RestockRunDTO;
+import com.stockly.service.query.RestockRunQueryService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admins/restock-runs")
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+public class RestockRunQueryController {
+
+    private final RestockRunQueryService restockRunQueryService;
+
+    public RestockRunQueryController(RestockRunQueryService restockRunQueryService) {
+        this.restockRunQueryService = restockRunQueryService;
+    }
+
+    // Counters and checkpoint are committed with every page, so polling shows live progress
+    @GetMapping
+    public ResponseEntity<Page<RestockRunDTO>> getRestockRuns(
+            @RequestParam(value = "offset", defaultValue = "0") Integer offset,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize) {
+        return ResponseEntity.ok(restockRunQueryService.getRestockRuns(PageRequest.of(offset, pageSize)));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RestockRunDTO> getRestockRun(@PathVariable Long id) {
+        return ResponseEntity.ok(restockRunQueryService.getRestockRunById(id));
+    }
+}
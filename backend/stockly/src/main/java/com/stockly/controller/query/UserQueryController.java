@@ -33,8 +33,11 @@ public class UserQueryController {
     @GetMapping("/me")
     public ResponseEntity<UserDTO> authenticatedUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = (User) authentication.getPrincipal();
-        return ResponseEntity.ok(userMapper.toDTO(currentUser));
+        if (authentication.getPrincipal() instanceof User currentUser) {
+            return ResponseEntity.ok(userMapper.toDTO(currentUser));
+        }
+        // Stateless tokens only carry the email, so the profile is loaded here instead of on every request
+        return ResponseEntity.ok(userQueryService.getUserByEmail(authentication.getName()));
     }
 
     @GetMapping()
@@ -1,5 +1,6 @@
 package com.stockly.controller.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.WarehouseDTO;
 import com.stockly.dto.WarehouseProductDTO;
 import com.stockly.repository.WarehouseRepository;
@@ -90,6 +91,27 @@ public class WarehouseQueryController {
         ));
     }
 
+    // Keyset mode: pass an empty cursor for the first page, then the returned nextCursor
+    @GetMapping(value = "/page", params = "cursor")
+    public ResponseEntity<CursorPageDTO<WarehouseDTO>> getAllWarehousesWithCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "sortBy", defaultValue = "id") String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "companyId", required = false) Long companyId,
+            @RequestParam(value = "managerId", required = false) Long managerId,
+            @RequestParam(value = "isActive", required = false, defaultValue = "true") Boolean isActive,
+            @RequestParam(value = "searchTerm", required = false) String searchTerm
+    ) {
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortBy).descending()
+                : Sort.by(sortBy).ascending();
+
+        return ResponseEntity.ok(warehouseQueryService.getAllWarehousesWithCursor(
+                cursor, pageSize, sort, includeTotal, companyId, managerId, isActive, searchTerm));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Long> getWarehouseCount() {
         return ResponseEntity.ok(warehouseQueryService.getWarehousesCount());
@@ -0,0 +1,15 @@
+package com.stockly.dto;
+
+public record AutoRestockRunSummary(
+        Long runId,
+        String month,
+        long processed,
+        long applied,
+        long skipped,
+        long failed,
+        long durationMs
+) {
+    public double rowsPerSecond() {
+        return durationMs > 0 ? processed * 1000.0 / durationMs : processed;
+    }
+}
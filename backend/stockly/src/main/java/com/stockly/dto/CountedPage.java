@@ -0,0 +1,30 @@
+package com.stockly.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A page whose total may be estimated, capped or not counted at all. {@code totalExact} tells clients
+ * whether {@code totalElements} can be shown as-is or only as a lower bound ("10,000+").
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final String countStrategy;
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, String countStrategy, boolean totalExact) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+        this.totalExact = totalExact;
+    }
+
+    public String getCountStrategy() {
+        return countStrategy;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
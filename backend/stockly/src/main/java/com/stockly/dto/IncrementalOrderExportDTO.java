@@ -0,0 +1,9 @@
+package com.stockly.dto;
+
+import java.util.List;
+
+public record IncrementalOrderExportDTO(
+        List<OrderExportChangeDTO> lines,
+        String nextWatermark,
+        boolean hasMore
+) {}
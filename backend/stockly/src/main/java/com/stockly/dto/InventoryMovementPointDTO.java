@@ -0,0 +1,10 @@
+package com.stockly.dto;
+
+import java.time.Instant;
+
+public record InventoryMovementPointDTO(
+        Instant bucketStart,
+        String actionType,
+        long quantityChange,
+        long movements
+) {}
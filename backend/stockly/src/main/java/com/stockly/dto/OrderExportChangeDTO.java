@@ -0,0 +1,18 @@
+package com.stockly.dto;
+
+import java.time.Instant;
+
+// deleted marks a removed order line; only its ids, product and warehouse are set
+public record OrderExportChangeDTO(
+        Long orderId,
+        Long orderItemId,
+        String status,
+        Instant updatedAt,
+        Long productId,
+        Long warehouseId,
+        Instant orderDate,
+        Integer quantity,
+        Integer currentStock,
+        Integer stockAtOrder,
+        boolean deleted
+) {}
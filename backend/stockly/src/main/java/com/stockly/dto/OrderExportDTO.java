@@ -7,14 +7,16 @@ public record OrderExportDTO(
         Long warehouseId,
         Instant orderDate,
         Integer quantity,
-        Integer currentStock
+        Integer currentStock,
+        Integer stockAtOrder
 ) {
     public OrderExportDTO(Long productId, Long warehouseId, Instant orderDate,
-                          Integer quantity, Integer currentStock) {
+                          Integer quantity, Integer currentStock, Integer stockAtOrder) {
         this.productId = productId;
         this.warehouseId = warehouseId;
         this.orderDate = orderDate;
         this.quantity = quantity;
         this.currentStock = currentStock;
+        this.stockAtOrder = stockAtOrder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.stockly.dto;
+
+import com.stockly.model.enums.RestockRunStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class RestockRunDTO {
+    private Long id;
+    private String month;
+    private Long warehouseId;
+    private RestockRunStatus status;
+    private Long lastWarehouseProductId;
+    private long processed;
+    private long applied;
+    private long skipped;
+    private long failed;
+    private int attempts;
+    private String error;
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+    private Instant leaseUntil;
+}
@@ -0,0 +1,27 @@
+package com.stockly.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public record StockMutationResult(
+        List<AppliedLine> applied,
+        Set<Long> failedProductIds
+) {
+    public record AppliedLine(
+            Long productId,
+            Integer previousQuantity,
+            Integer newQuantity
+    ) {}
+
+    public boolean isSuccessful() {
+        return failedProductIds.isEmpty();
+    }
+
+    public Map<Long, AppliedLine> appliedByProductId() {
+        return applied.stream()
+                .collect(Collectors.toMap(AppliedLine::productId, Function.identity()));
+    }
+}
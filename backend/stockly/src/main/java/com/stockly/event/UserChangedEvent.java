@@ -0,0 +1,7 @@
+package com.stockly.event;
+
+/**
+ * Published after a user is updated, verified, has their role changed or is deleted, so caches
+ * holding that user's details or token version drop them.
+ */
+public record UserChangedEvent(Long userId) {}
@@ -0,0 +1,123 @@
+package com.stockly.mapper;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockly.dto.CursorPageDTO;
+import com.stockly.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Converts keyset scroll positions to and from the opaque cursors handed out by the cursor-mode page
+ * endpoints. A cursor carries the sort key values of the last returned row, each tagged with its type
+ * so it binds back to the same column type.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetCursorMapper {
+
+    private static final String ID = "id";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Appends {@code id} in the direction of the last order, so rows with equal sort keys are never
+     * skipped or repeated between pages.
+     */
+    public static Sort withIdTiebreaker(Sort sort) {
+        if (sort.getOrderFor(ID) != null) {
+            return sort;
+        }
+        Sort.Direction direction = sort.stream()
+                .reduce((first, second) -> second)
+                .map(Sort.Order::getDirection)
+                .orElse(Sort.Direction.ASC);
+        return sort.and(Sort.by(direction, ID));
+    }
+
+    public KeysetScrollPosition toScrollPosition(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            List<List<String>> entries = objectMapper.readValue(json, new TypeReference<>() {});
+
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (List<String> entry : entries) {
+                keys.put(entry.get(0), decodeValue(entry.get(1), entry.get(2)));
+            }
+            return ScrollPosition.forward(keys);
+        } catch (Exception e) {
+            throw new BusinessException("Invalid page cursor");
+        }
+    }
+
+    public <T, R> CursorPageDTO<R> toCursorPage(Window<T> window, Function<T, R> mapper, Long totalElements) {
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? toCursor((KeysetScrollPosition) window.positionAt(window.size() - 1))
+                : null;
+        return new CursorPageDTO<>(window.map(mapper).getContent(), nextCursor, window.hasNext(), totalElements);
+    }
+
+    private String toCursor(KeysetScrollPosition position) {
+        List<List<String>> entries = new ArrayList<>();
+        position.getKeys().forEach((key, value) -> entries.add(encodeValue(key, value)));
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(entries));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+    }
+
+    private static List<String> encodeValue(String key, Object value) {
+        String type = switch (value) {
+            case null -> "N";
+            case Long l -> "L";
+            case Integer i -> "I";
+            case Double d -> "D";
+            case BigDecimal b -> "B";
+            case Boolean b -> "Z";
+            case Instant i -> "T";
+            case LocalDate d -> "LD";
+            case LocalDateTime d -> "LT";
+            case ObjectId o -> "O";
+            default -> "S";
+        };
+        return List.of(key, type, value == null ? "" : value.toString());
+    }
+
+    private static Object decodeValue(String type, String value) {
+        return switch (type) {
+            case "N" -> null;
+            case "L" -> Long.valueOf(value);
+            case "I" -> Integer.valueOf(value);
+            case "D" -> Double.valueOf(value);
+            case "B" -> new BigDecimal(value);
+            case "Z" -> Boolean.valueOf(value);
+            case "T" -> Instant.parse(value);
+            case "LD" -> LocalDate.parse(value);
+            case "LT" -> LocalDateTime.parse(value);
+            case "O" -> new ObjectId(value);
+            default -> value;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.stockly.mapper;
+
+import com.stockly.dto.RestockRunDTO;
+import com.stockly.model.RestockRun;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RestockRunMapper {
+    public RestockRunDTO toDTO(RestockRun restockRun) {
+        if (restockRun == null) return null;
+
+        return RestockRunDTO.builder()
+                .id(restockRun.getId())
+                .month(restockRun.getMonth())
+                .warehouseId(restockRun.getWarehouseId())
+                .status(restockRun.getStatus())
+                .lastWarehouseProductId(restockRun.getLastWarehouseProductId())
+                .processed(restockRun.getProcessed())
+                .applied(restockRun.getApplied())
+                .skipped(restockRun.getSkipped())
+                .failed(restockRun.getFailed())
+                .attempts(restockRun.getAttempts())
+                .error(restockRun.getError())
+                .startedAt(restockRun.getStartedAt())
+                .updatedAt(restockRun.getUpdatedAt())
+                .finishedAt(restockRun.getFinishedAt())
+                .leaseUntil(restockRun.getLeaseUntil())
+                .build();
+    }
+}
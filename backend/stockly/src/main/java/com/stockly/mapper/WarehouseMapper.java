@@ -36,9 +36,7 @@ public class WarehouseMapper {
 
         if(warehouse.getWarehouseProducts() != null &&
                 !warehouse.getWarehouseProducts().isEmpty()) {
-            List<WarehouseProductDTO> warehouseProducts = warehouse.getWarehouseProducts().stream()
-                    .map(warehouseProductMapper::toDTO)
-                    .collect(Collectors.toList());
+            List<WarehouseProductDTO> warehouseProducts = warehouseProductMapper.toDTOs(warehouse.getWarehouseProducts());
             dto.setProducts(warehouseProducts);
         }
 
@@ -6,9 +6,15 @@ import com.stockly.model.PredictionResult;
 import com.stockly.model.Warehouse;
 import com.stockly.model.WarehouseProduct;
 import com.stockly.service.query.PredictionQueryService;
+import com.stockly.service.query.PredictionQueryService.PredictionKey;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
 public class WarehouseProductMapper {
@@ -19,11 +25,42 @@ public class WarehouseProductMapper {
         if (warehouseProduct == null) return null;
 
         // Get prediction data for this product in this warehouse
-        PredictionResult prediction = predictionQueryService.getPredictionsByProductId(
+        PredictionResult prediction = predictionQueryService.getPrediction(
                 predictionQueryService.getCurrentMonth(),
+                warehouseProduct.getWarehouse().getId(),
                 warehouseProduct.getProduct().getId()
         );
 
+        return toDTO(warehouseProduct, prediction);
+    }
+
+    // Maps a whole page with a single prediction lookup for all of its warehouse products
+    public List<WarehouseProductDTO> toDTOs(List<WarehouseProduct> warehouseProducts) {
+        Set<PredictionKey> keys = warehouseProducts.stream()
+                .map(WarehouseProductMapper::predictionKey)
+                .collect(Collectors.toSet());
+
+        Map<PredictionKey, PredictionResult> predictions = predictionQueryService.getPredictions(
+                predictionQueryService.getCurrentMonth(),
+                keys
+        );
+
+        return toDTOs(warehouseProducts, predictions);
+    }
+
+    public List<WarehouseProductDTO> toDTOs(List<WarehouseProduct> warehouseProducts, Map<PredictionKey, PredictionResult> predictions) {
+        return warehouseProducts.stream()
+                .map(warehouseProduct -> toDTO(warehouseProduct, predictions.get(predictionKey(warehouseProduct))))
+                .collect(Collectors.toList());
+    }
+
+    private static PredictionKey predictionKey(WarehouseProduct warehouseProduct) {
+        return new PredictionKey(warehouseProduct.getWarehouse().getId(), warehouseProduct.getProduct().getId());
+    }
+
+    public WarehouseProductDTO toDTO(WarehouseProduct warehouseProduct, PredictionResult prediction) {
+        if (warehouseProduct == null) return null;
+
         WarehouseProductDTO.WarehouseProductDTOBuilder builder = WarehouseProductDTO.builder()
                 .id(warehouseProduct.getId())
                 .warehouseId(warehouseProduct.getWarehouse().getId())
@@ -1,15 +1,28 @@
 package com.stockly.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Document(collection = "inventory_logs")
 @Data
 public class InventoryLog {
+    public static final int MIN_SEARCH_TOKEN_LENGTH = 2;
+    public static final int MAX_SEARCH_TOKEN_LENGTH = 20;
+    public static final int MAX_NOTES_SEARCH_TOKENS = 32;
+    // Bumped whenever the tokenization changes, so the backfill re-tokenizes stored logs
+    public static final int SEARCH_TOKEN_VERSION = 2;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
     @Id
     private String id;
     private Long warehouseId;
@@ -29,4 +42,65 @@ public class InventoryLog {
     private String notes;
     private Instant timestamp;
     private Map<String, Object> metadata; // Additional context data
+
+    // Lowercase word prefixes of the searchable fields, kept in sync by updateSearchTokens()
+    @JsonIgnore
+    private List<String> searchTokens;
+
+    @JsonIgnore
+    private Integer searchTokenVersion;
+
+    /**
+     * Indexes every prefix of the words in the SKU, product title, warehouse name and user name. Notes are
+     * free text of any length, so they only contribute their first {@link #MAX_NOTES_SEARCH_TOKENS} distinct
+     * whole words and can only be found by complete words.
+     */
+    public void updateSearchTokens() {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : new String[]{productSku, productTitle, warehouseName, userName}) {
+            for (String word : words(field)) {
+                for (int length = MIN_SEARCH_TOKEN_LENGTH; length <= Math.min(word.length(), MAX_SEARCH_TOKEN_LENGTH); length++) {
+                    tokens.add(word.substring(0, length));
+                }
+            }
+        }
+
+        Set<String> notesTokens = new LinkedHashSet<>();
+        for (String word : words(notes)) {
+            if (notesTokens.size() == MAX_NOTES_SEARCH_TOKENS) {
+                break;
+            }
+            if (word.length() >= MIN_SEARCH_TOKEN_LENGTH) {
+                notesTokens.add(word.substring(0, Math.min(word.length(), MAX_SEARCH_TOKEN_LENGTH)));
+            }
+        }
+        tokens.addAll(notesTokens);
+
+        this.searchTokens = List.copyOf(tokens);
+        this.searchTokenVersion = SEARCH_TOKEN_VERSION;
+    }
+
+    /**
+     * Turns a free-text search term into the tokens a matching log must all contain: every word of the
+     * term has to be the prefix of a word in one of the searchable fields, or a whole word of the notes. Words shorter than
+     * {@link #MIN_SEARCH_TOKEN_LENGTH} are dropped and longer ones are cut to {@link #MAX_SEARCH_TOKEN_LENGTH}.
+     */
+    public static List<String> toSearchTokens(String searchTerm) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : words(searchTerm)) {
+            if (word.length() >= MIN_SEARCH_TOKEN_LENGTH) {
+                tokens.add(word.substring(0, Math.min(word.length(), MAX_SEARCH_TOKEN_LENGTH)));
+            }
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return TOKEN_SEPARATOR.splitAsStream(text.toLowerCase(Locale.ROOT))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
 }
\ No newline at end of file
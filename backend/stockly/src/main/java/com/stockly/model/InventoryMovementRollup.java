@@ -0,0 +1,26 @@
+package com.stockly.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Net quantity moved per (warehouse, product, action) within one hour or day, maintained
+ * incrementally from the inventory logs.
+ */
+@Document(collection = "inventory_movement_rollups")
+@Data
+public class InventoryMovementRollup {
+    @Id
+    private String id;
+    private String granularity; // HOUR, DAY
+    private Instant bucketStart;
+    private Long warehouseId;
+    private Long productId;
+    private String actionType;
+    private Long quantityChange;
+    private Long movements; // Number of logs folded into the bucket
+    private Instant updatedAt;
+}
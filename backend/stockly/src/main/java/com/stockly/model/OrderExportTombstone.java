@@ -0,0 +1,53 @@
+package com.stockly.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+/**
+ * An order line that was removed, reported by the incremental order export as a deletion.
+ */
+@Entity
+@Table(name = "order_export_tombstones")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class OrderExportTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "order_item_id", nullable = false)
+    private Long orderItemId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "warehouse_id")
+    private Long warehouseId;
+
+    @Column(name = "deleted_at", nullable = false)
+    @CreationTimestamp
+    private Date deletedAt;
+
+    public static OrderExportTombstone of(OrderItem item) {
+        OrderExportTombstone tombstone = new OrderExportTombstone();
+        tombstone.setOrderId(item.getOrder().getId());
+        tombstone.setOrderItemId(item.getId());
+        tombstone.setProductId(item.getProduct() != null ? item.getProduct().getId() : null);
+        tombstone.setWarehouseId(item.getOrder().getSourceWarehouse() != null
+                ? item.getOrder().getSourceWarehouse().getId()
+                : null);
+        return tombstone;
+    }
+}
@@ -1,5 +1,6 @@
 package com.stockly.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
@@ -43,6 +44,11 @@ public class PredictionResult {
     public Integer getRecommendationRestock() {
         return recommendation.getSuggestedRestock();
     }
+
+    @JsonIgnore
+    public Instant getCreatedAt() {
+        return metadata != null ? metadata.getCreatedAt() : null;
+    }
 }
 
 @Getter
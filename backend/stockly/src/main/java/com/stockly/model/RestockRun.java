@@ -0,0 +1,72 @@
+package com.stockly.model;
+
+import com.stockly.model.enums.RestockRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One execution of the automated restock job. The checkpoint and counters are committed together
+ * with every processed page, so a crashed run can be resumed from where it stopped. The lease is
+ * renewed with every page as well, so another instance only takes over a RUNNING run once its owner
+ * has stopped making progress.
+ */
+@Entity
+@Table(name = "restock_runs")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RestockRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 6)
+    private String month;
+
+    @Column(name = "warehouse_id")
+    private Long warehouseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RestockRunStatus status;
+
+    @Column(name = "last_warehouse_product_id", nullable = false)
+    private Long lastWarehouseProductId = 0L;
+
+    @Column(nullable = false)
+    private long processed;
+
+    @Column(nullable = false)
+    private long applied;
+
+    @Column(nullable = false)
+    private long skipped;
+
+    @Column(nullable = false)
+    private long failed;
+
+    @Column(nullable = false)
+    private int attempts = 1;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+}
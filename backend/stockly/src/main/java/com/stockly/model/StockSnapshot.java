@@ -0,0 +1,37 @@
+package com.stockly.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Closing quantity of a warehouse product at the end of a UTC day.
+ */
+@Entity
+@Table(name = "stock_snapshots")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "warehouse_id", nullable = false)
+    private Long warehouseId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "snapshot_day", nullable = false)
+    private LocalDate snapshotDay;
+
+    @Column(name = "closing_quantity", nullable = false)
+    private Integer closingQuantity;
+}
@@ -19,6 +19,8 @@ import java.time.LocalDateTime;
 @Setter
 public class WarehouseProduct {
 
+    public static final int LOW_STOCK_THRESHOLD = 20;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -53,7 +55,7 @@ public class WarehouseProduct {
     public void updateAvailability() {
         if (quantity == null || quantity <= 0) {
             this.availability = AvailabilityStatus.OUT_OF_STOCK.name();
-        } else if (quantity <= 20) {
+        } else if (quantity <= LOW_STOCK_THRESHOLD) {
             this.availability = AvailabilityStatus.LOW_IN_STOCK.name();
         } else {
             this.availability = AvailabilityStatus.IN_STOCK.name();
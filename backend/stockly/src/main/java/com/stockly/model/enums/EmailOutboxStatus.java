@@ -0,0 +1,8 @@
+package com.stockly.model.enums;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,20 @@
+package com.stockly.model.enums;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+public enum MovementGranularity {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    MovementGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    // Bucket start in UTC
+    public Instant truncate(Instant timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+}
@@ -0,0 +1,7 @@
+package com.stockly.model.enums;
+
+public enum RestockRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,11 @@
+package com.stockly.projection;
+
+public interface AutoRestockCandidateProjection {
+    Long getId();
+    Long getWarehouseId();
+    String getWarehouseName();
+    Long getProductId();
+    String getProductSku();
+    String getProductTitle();
+    Integer getQuantity();
+}
@@ -0,0 +1,11 @@
+package com.stockly.projection;
+
+import java.time.Instant;
+
+public interface OrderExportChangeProjection extends OrderExportProjection {
+    Long getOrderId();
+    Long getOrderItemId();
+    String getStatus();
+    Instant getUpdatedAt();
+    Boolean getDeleted();
+}
@@ -8,4 +8,5 @@ public interface OrderExportProjection {
     Instant getOrderDate();
     Integer getQuantity();
     Integer getCurrentStock();
+    Integer getStockAtOrder();
 }
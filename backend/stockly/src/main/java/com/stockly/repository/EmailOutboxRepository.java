@@ -0,0 +1,77 @@
+package com.stockly.repository;
+
+import com.stockly.model.EmailOutboxMessage;
+import com.stockly.model.enums.EmailOutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    /**
+     * Claims up to {@code limit} due messages for delivery and returns their ids. A claim holds the
+     * message until {@code claimedUntil}; if the instance dies mid-delivery the message becomes due again.
+     * Rows locked by another instance's claim are skipped rather than waited on.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        UPDATE email_outbox
+        SET status = 'SENDING',
+            attempts = attempts + 1,
+            next_attempt_at = :claimedUntil,
+            updated_at = :now
+        WHERE id IN (
+            SELECT id FROM email_outbox
+            WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING id
+    """)
+    List<Long> claimDue(@Param("now") Instant now,
+                        @Param("claimedUntil") Instant claimedUntil,
+                        @Param("limit") int limit);
+
+    // Attachments are only needed until delivery
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m
+        SET m.status = com.stockly.model.enums.EmailOutboxStatus.SENT,
+            m.attachment = null,
+            m.lastError = null,
+            m.sentAt = :now,
+            m.updatedAt = :now
+        WHERE m.id = :id
+    """)
+    void markSent(@Param("id") Long id, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m
+        SET m.status = :status,
+            m.nextAttemptAt = :nextAttemptAt,
+            m.lastError = :error,
+            m.updatedAt = :now
+        WHERE m.id = :id
+    """)
+    void markUndelivered(@Param("id") Long id,
+                         @Param("status") EmailOutboxStatus status,
+                         @Param("nextAttemptAt") Instant nextAttemptAt,
+                         @Param("error") String error,
+                         @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.status = :status AND m.updatedAt < :before")
+    int deleteByStatusUpdatedBefore(@Param("status") EmailOutboxStatus status, @Param("before") Instant before);
+}
@@ -0,0 +1,20 @@
+package com.stockly.repository;
+
+import com.stockly.model.OrderExportTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Repository
+public interface OrderExportTombstoneRepository extends JpaRepository<OrderExportTombstone, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderExportTombstone t WHERE t.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") Date before);
+}
@@ -5,9 +5,11 @@ import com.stockly.model.Order;
 import com.stockly.model.Warehouse;
 import com.stockly.model.enums.OrderStatus;
 import com.stockly.projection.FlatOrderProjection;
+import com.stockly.projection.OrderExportChangeProjection;
 import com.stockly.projection.OrderExportProjection;
 import com.stockly.projection.OrderProjection;
 import com.stockly.projection.OrderStockProjection;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -15,6 +17,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -23,6 +26,10 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
@@ -91,6 +98,7 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     );
 
 
+    // stockAtOrder is the stock just before the order, computed by the stock_at database function
     @Query(nativeQuery = true, value = """
     SELECT
         oi.product_id AS productId,
@@ -98,7 +106,8 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
         o.order_date AS orderDate,
         oi.quantity AS quantity,
         wp.quantity AS current_db_stock,
-        wp.quantity AS currentStock
+        wp.quantity AS currentStock,
+        stock_at(o.source_warehouse_id, oi.product_id, o.order_date) AS stockAtOrder
     FROM orders o
     JOIN order_items oi ON o.id = oi.order_id
     JOIN warehouse_products wp ON 
@@ -109,6 +118,88 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     """)
     List<OrderExportProjection> findOrdersForExport(@Param("startDate") Instant startDate);
 
+    // Same rows as findOrdersForExport, read through a forward-only cursor; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query(nativeQuery = true, value = """
+    SELECT
+        oi.product_id AS productId,
+        o.source_warehouse_id AS warehouseId,
+        o.order_date AS orderDate,
+        oi.quantity AS quantity,
+        wp.quantity AS current_db_stock,
+        wp.quantity AS currentStock,
+        stock_at(o.source_warehouse_id, oi.product_id, o.order_date) AS stockAtOrder
+    FROM orders o
+    JOIN order_items oi ON o.id = oi.order_id
+    JOIN warehouse_products wp ON 
+        wp.product_id = oi.product_id AND 
+        wp.warehouse_id = o.source_warehouse_id
+    WHERE o.order_date >= :startDate
+    ORDER BY o.order_date
+    """)
+    Stream<OrderExportProjection> streamOrdersForExport(@Param("startDate") Instant startDate);
+
+    // Order lines whose order changed, and tombstones of removed lines, after the (updatedAt, orderItemId)
+    // watermark and before :until, in watermark order
+    @Query(nativeQuery = true, value = """
+    SELECT * FROM (
+        (SELECT
+            o.id AS orderId,
+            oi.id AS orderItemId,
+            o.status AS status,
+            o.updated_at AS updatedAt,
+            oi.product_id AS productId,
+            o.source_warehouse_id AS warehouseId,
+            o.order_date AS orderDate,
+            oi.quantity AS quantity,
+            wp.quantity AS currentStock,
+            stock_at(o.source_warehouse_id, oi.product_id, o.order_date) AS stockAtOrder,
+            FALSE AS deleted
+        FROM orders o
+        JOIN order_items oi ON o.id = oi.order_id
+        JOIN warehouse_products wp ON 
+            wp.product_id = oi.product_id AND 
+            wp.warehouse_id = o.source_warehouse_id
+        WHERE o.updated_at >= :since
+        AND (o.updated_at, oi.id) > (:since, :lastOrderItemId)
+        AND o.updated_at < :until
+        ORDER BY o.updated_at, oi.id
+        LIMIT :limit)
+
+        UNION ALL
+
+        (SELECT
+            t.order_id,
+            t.order_item_id,
+            NULL,
+            t.deleted_at,
+            t.product_id,
+            t.warehouse_id,
+            NULL,
+            NULL,
+            NULL,
+            NULL,
+            TRUE
+        FROM order_export_tombstones t
+        WHERE t.deleted_at >= :since
+        AND (t.deleted_at, t.order_item_id) > (:since, :lastOrderItemId)
+        AND t.deleted_at < :until
+        ORDER BY t.deleted_at, t.order_item_id
+        LIMIT :limit)
+    ) changes
+    ORDER BY updatedAt, orderItemId
+    LIMIT :limit
+    """)
+    List<OrderExportChangeProjection> findOrderChangesForExport(
+            @Param("since") Instant since,
+            @Param("lastOrderItemId") Long lastOrderItemId,
+            @Param("until") Instant until,
+            @Param("limit") int limit
+    );
+
 
     @Query("""
     SELECT 
@@ -123,21 +214,17 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 """)
     List<FlatOrderProjection> findRecentOrders(@Param("startDate") Instant startDate);
 
-    @Query("""
+    // Stock just before the order, computed by the stock_at database function
+    @Query(nativeQuery = true, value = """
         SELECT 
-            oi.product.id as productId,
-            o.sourceWarehouse.id as warehouseId,
-            o.orderDate as orderDate,
-            oi.quantity as quantity,
-            (SELECT COALESCE(SUM(wp.quantity), 0)
-             FROM WarehouseProduct wp
-             WHERE wp.product.id = oi.product.id
-             AND wp.warehouse.id = o.sourceWarehouse.id
-             AND (wp.updatedAt < o.orderDate OR wp.updatedAt IS NULL)
-            ) as stockAtTime
-        FROM Order o
-        JOIN o.items oi
-        WHERE o.orderDate >= :startDate
+            oi.product_id AS productId,
+            o.source_warehouse_id AS warehouseId,
+            o.order_date AS orderDate,
+            oi.quantity AS quantity,
+            stock_at(o.source_warehouse_id, oi.product_id, o.order_date) AS stockAtTime
+        FROM orders o
+        JOIN order_items oi ON o.id = oi.order_id
+        WHERE o.order_date >= :startDate
     """)
     List<OrderStockProjection> findOrdersWithStock(@Param("startDate") Instant startDate);
 
@@ -0,0 +1,66 @@
+package com.stockly.repository;
+
+import com.stockly.model.RestockRun;
+import com.stockly.model.enums.RestockRunStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface RestockRunRepository extends JpaRepository<RestockRun, Long> {
+
+    Optional<RestockRun> findFirstByMonthAndWarehouseIdAndStatusInOrderByIdDesc(String month, Long warehouseId,
+                                                                                 Collection<RestockRunStatus> statuses);
+
+    Page<RestockRun> findAllByOrderByIdDesc(Pageable pageable);
+
+    /**
+     * Resumes an unfinished run unless another instance still holds its lease. Returns 0 when the run is
+     * RUNNING under a lease that has not expired yet, or when another instance took it over first.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE RestockRun r
+        SET r.status = com.stockly.model.enums.RestockRunStatus.RUNNING,
+            r.attempts = r.attempts + 1,
+            r.error = null,
+            r.leaseUntil = :leaseUntil,
+            r.updatedAt = :now
+        WHERE r.id = :runId
+        AND r.status IN (com.stockly.model.enums.RestockRunStatus.RUNNING, com.stockly.model.enums.RestockRunStatus.FAILED)
+        AND (r.status <> com.stockly.model.enums.RestockRunStatus.RUNNING OR r.leaseUntil IS NULL OR r.leaseUntil < :now)
+    """)
+    int takeOver(@Param("runId") Long runId,
+                 @Param("now") Instant now,
+                 @Param("leaseUntil") Instant leaseUntil);
+
+    // Advances the checkpoint and renews the lease; runs in the same transaction as the page it covers
+    @Modifying
+    @Query("""
+        UPDATE RestockRun r
+        SET r.lastWarehouseProductId = :lastWarehouseProductId,
+            r.processed = r.processed + :processed,
+            r.applied = r.applied + :applied,
+            r.skipped = r.skipped + :skipped,
+            r.leaseUntil = :leaseUntil,
+            r.updatedAt = :updatedAt
+        WHERE r.id = :runId
+    """)
+    void recordProgress(@Param("runId") Long runId,
+                        @Param("lastWarehouseProductId") Long lastWarehouseProductId,
+                        @Param("processed") long processed,
+                        @Param("applied") long applied,
+                        @Param("skipped") long skipped,
+                        @Param("leaseUntil") Instant leaseUntil,
+                        @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,102 @@
+package com.stockly.repository;
+
+import com.stockly.model.StockSnapshot;
+import com.stockly.projection.WarehouseStockProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Stock at a point in time is the closing quantity of the last snapshot before that UTC day plus
+ * the stock movements recorded earlier the same day. A pair without an earlier snapshot starts at zero.
+ * Only StockMutationService records movements, so quantities changed through JPA show up from the
+ * next day on, once the nightly capture has closed the day they changed on.
+ * <p>
+ * The rule for a single pair lives in the {@code stock_at} database function, which findStockAtTime and
+ * the order queries in OrderRepository call; findStocksAtTime applies the same rule to every pair at once.
+ */
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    // Closes the previous UTC day for rows whose quantity no longer matches their latest snapshot, which
+    // only happens when the quantity was changed outside StockMutationService. Rows that snapshot today
+    // already are kept up to date by StockMutationService and unchanged rows carry their last snapshot forward.
+    @Modifying
+    @Query(value = """
+        INSERT INTO stock_snapshots (warehouse_id, product_id, snapshot_day, closing_quantity)
+        SELECT wp.warehouse_id, wp.product_id, CAST(:day AS DATE), wp.quantity
+        FROM warehouse_products wp
+        LEFT JOIN LATERAL (
+            SELECT ss.snapshot_day, ss.closing_quantity
+            FROM stock_snapshots ss
+            WHERE ss.warehouse_id = wp.warehouse_id
+            AND ss.product_id = wp.product_id
+            ORDER BY ss.snapshot_day DESC
+            LIMIT 1
+        ) s ON TRUE
+        WHERE s.snapshot_day IS NULL
+        OR (s.snapshot_day <= CAST(:day AS DATE) AND s.closing_quantity <> wp.quantity)
+        ON CONFLICT (warehouse_id, product_id, snapshot_day)
+        DO UPDATE SET closing_quantity = EXCLUDED.closing_quantity
+    """, nativeQuery = true)
+    int captureClosingSnapshots(@Param("day") LocalDate day);
+
+    // Keeps the newest snapshot before the cutoff for every pair, so later days still have an opening balance
+    @Modifying
+    @Query(value = """
+        DELETE FROM stock_snapshots s
+        WHERE s.snapshot_day < :cutoff
+        AND EXISTS (
+            SELECT 1
+            FROM stock_snapshots n
+            WHERE n.warehouse_id = s.warehouse_id
+            AND n.product_id = s.product_id
+            AND n.snapshot_day > s.snapshot_day
+            AND n.snapshot_day < :cutoff
+        )
+    """, nativeQuery = true)
+    int deleteSnapshotsBefore(@Param("cutoff") LocalDate cutoff);
+
+    @Modifying
+    @Query(value = """
+        DELETE FROM stock_movements
+        WHERE moved_at < CAST(:cutoff AS DATE) AT TIME ZONE 'UTC'
+    """, nativeQuery = true)
+    int deleteMovementsBefore(@Param("cutoff") LocalDate cutoff);
+
+    @Query(value = """
+        SELECT stock_at(:warehouseId, :productId, CAST(:at AS timestamptz))
+    """, nativeQuery = true)
+    int findStockAtTime(
+            @Param("productId") Long productId,
+            @Param("warehouseId") Long warehouseId,
+            @Param("at") Instant at
+    );
+
+    @Query(value = """
+        SELECT
+            COALESCE(s.product_id, m.product_id) AS productId,
+            COALESCE(s.warehouse_id, m.warehouse_id) AS warehouseId,
+            COALESCE(s.closing_quantity, 0) + COALESCE(m.moved, 0) AS currentStock
+        FROM (
+            SELECT DISTINCT ON (warehouse_id, product_id) warehouse_id, product_id, closing_quantity
+            FROM stock_snapshots
+            WHERE snapshot_day < CAST(CAST(:at AS timestamptz) AT TIME ZONE 'UTC' AS DATE)
+            ORDER BY warehouse_id, product_id, snapshot_day DESC
+        ) s
+        FULL JOIN (
+            SELECT warehouse_id, product_id, SUM(delta) AS moved
+            FROM stock_movements
+            WHERE moved_at >= date_trunc('day', CAST(:at AS timestamptz) AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+            AND moved_at < CAST(:at AS timestamptz)
+            GROUP BY warehouse_id, product_id
+        ) m ON m.warehouse_id = s.warehouse_id AND m.product_id = s.product_id
+    """, nativeQuery = true)
+    List<WarehouseStockProjection> findStocksAtTime(@Param("at") Instant at);
+}
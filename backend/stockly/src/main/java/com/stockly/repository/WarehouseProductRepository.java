@@ -3,15 +3,18 @@ package com.stockly.repository;
 import com.stockly.model.Product;
 import com.stockly.model.Warehouse;
 import com.stockly.model.WarehouseProduct;
+import com.stockly.projection.AutoRestockCandidateProjection;
 import com.stockly.projection.ProductWarehouseProjection;
 import com.stockly.projection.StockChangeProjection;
 import com.stockly.projection.WarehouseStockProjection;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -20,6 +23,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface WarehouseProductRepository extends JpaRepository<WarehouseProduct, Long>, JpaSpecificationExecutor<WarehouseProduct> {
@@ -43,9 +50,37 @@ public interface WarehouseProductRepository extends JpaRepository<WarehouseProdu
 
     Optional<WarehouseProduct> findByWarehouseAndProduct(Warehouse warehouse, Product product);
 
+    @Query("SELECT wp FROM WarehouseProduct wp JOIN FETCH wp.product WHERE wp.warehouse.id = :warehouseId AND wp.product.id IN :productIds")
+    List<WarehouseProduct> findByWarehouseIdAndProductIds(@Param("warehouseId") Long warehouseId, @Param("productIds") Set<Long> productIds);
+
 
     Optional<WarehouseProduct> findByProduct(Product product);
 
+    @Query("SELECT DISTINCT wp.warehouse.id FROM WarehouseProduct wp WHERE wp.automatedRestock = true ORDER BY wp.warehouse.id")
+    List<Long> findAutoRestockWarehouseIds();
+
+    // Keyset page over one warehouse's rows with automated restock enabled, ordered by id
+    @Query("""
+        SELECT
+            wp.id as id,
+            w.id as warehouseId,
+            w.name as warehouseName,
+            p.id as productId,
+            p.sku as productSku,
+            p.title as productTitle,
+            wp.quantity as quantity
+        FROM WarehouseProduct wp
+        JOIN wp.warehouse w
+        JOIN wp.product p
+        WHERE wp.automatedRestock = true
+        AND w.id = :warehouseId
+        AND wp.id > :afterId
+        ORDER BY wp.id
+    """)
+    List<AutoRestockCandidateProjection> findAutoRestockCandidates(@Param("warehouseId") Long warehouseId,
+                                                                   @Param("afterId") Long afterId,
+                                                                   Pageable pageable);
+
 
     @Query("""
     SELECT 
@@ -90,10 +125,15 @@ public interface WarehouseProductRepository extends JpaRepository<WarehouseProdu
             @Param("warehouseId") Long warehouseId
     );
 
+    // Forward-only cursor over time-ordered stock changes; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
     @Query(value = """
         SELECT 
             oi.product_id as productId,
-            o.warehouse_id as warehouseId,
+            o.source_warehouse_id as warehouseId,
             o.order_date as timestamp,
             -oi.quantity as quantityChange,
             'ORDER' as changeType
@@ -114,12 +154,16 @@ public interface WarehouseProductRepository extends JpaRepository<WarehouseProdu
         
         ORDER BY timestamp
     """, nativeQuery = true)
-    List<StockChangeProjection> findStockChanges(@Param("startDate") Instant startDate);
+    Stream<StockChangeProjection> findStockChanges(@Param("startDate") Instant startDate);
 
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
     @Query(value = """
         SELECT 
             oi.product_id as productId,
-            o.warehouse_id as warehouseId,
+            o.source_warehouse_id as warehouseId,
             o.order_date as timestamp,
             -oi.quantity as quantityChange,
             'ORDER' as changeType
@@ -134,24 +178,21 @@ public interface WarehouseProductRepository extends JpaRepository<WarehouseProdu
             wp.updated_at as timestamp,
             wp.quantity as quantityChange,
             'RESTOCK' as changeType
-        FROM warehouse_product wp
+        FROM warehouse_products wp
         
         ORDER BY timestamp
     """, nativeQuery = true)
-    List<StockChangeProjection> findAllStockChanges();
+    Stream<StockChangeProjection> findAllStockChanges();
 
     @Query("""
-        SELECT COALESCE(SUM(wp.quantity), 0)
+        SELECT 
+            wp.product.id as productId,
+            wp.warehouse.id as warehouseId,
+            SUM(wp.quantity) as currentStock
         FROM WarehouseProduct wp
-        WHERE wp.product.id = :productId
-        AND wp.warehouse.id = :warehouseId
-        AND (wp.updatedAt < :cutoffDate OR wp.updatedAt IS NULL)
+        GROUP BY wp.product.id, wp.warehouse.id
     """)
-    int findStockAtTime(
-            @Param("productId") Long productId,
-            @Param("warehouseId") Long warehouseId,
-            @Param("cutoffDate") Instant cutoffDate
-    );
+    List<WarehouseStockProjection> findInitialStocks();
 
     @Query("""
         SELECT COALESCE(SUM(wp.quantity), 0) 
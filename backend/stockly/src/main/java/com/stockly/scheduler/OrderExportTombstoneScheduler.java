@@ -0,0 +1,32 @@
+package com.stockly.scheduler;
+
+import com.stockly.repository.OrderExportTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+@Component
+@Slf4j
+public class OrderExportTombstoneScheduler {
+
+    private final OrderExportTombstoneRepository orderExportTombstoneRepository;
+    private final Duration retention;
+
+    public OrderExportTombstoneScheduler(OrderExportTombstoneRepository orderExportTombstoneRepository,
+                                         @Value("${stockly.order-export.tombstone-retention-days:30}") long retentionDays) {
+        this.orderExportTombstoneRepository = orderExportTombstoneRepository;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    // Consumers that fall further behind than the retention period have to start over with a full export
+    @Scheduled(cron = "0 30 0 * * *", zone = "UTC")
+    public void purgeTombstones() {
+        int deleted = orderExportTombstoneRepository.deleteByDeletedAtBefore(Date.from(Instant.now().minus(retention)));
+        log.info("Removed {} order export tombstones", deleted);
+    }
+}
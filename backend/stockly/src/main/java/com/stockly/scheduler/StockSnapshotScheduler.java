@@ -0,0 +1,40 @@
+package com.stockly.scheduler;
+
+import com.stockly.repository.StockSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Component
+@Slf4j
+public class StockSnapshotScheduler {
+
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final int retentionDays;
+
+    public StockSnapshotScheduler(StockSnapshotRepository stockSnapshotRepository,
+                                  @Value("${stockly.stock-snapshot.retention-days:400}") int retentionDays) {
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.retentionDays = retentionDays;
+    }
+
+    // Stock changes made through StockMutationService update their day's snapshot as they happen;
+    // right after midnight this closes the previous day for rows changed any other way
+    @Scheduled(cron = "0 0 0 * * *", zone = "UTC")
+    @Transactional
+    public void closeDay() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int captured = stockSnapshotRepository.captureClosingSnapshots(today.minusDays(1));
+
+        LocalDate cutoff = today.minusDays(retentionDays);
+        int deletedSnapshots = stockSnapshotRepository.deleteSnapshotsBefore(cutoff);
+        int deletedMovements = stockSnapshotRepository.deleteMovementsBefore(cutoff);
+        log.info("Captured {} closing stock snapshots, removed {} snapshots and {} movements before {}",
+                captured, deletedSnapshots, deletedMovements, cutoff);
+    }
+}
@@ -1,27 +1,110 @@
 package com.stockly.scheduler;
 
-import com.stockly.service.query.WarehouseProductQueryService;
+import com.stockly.repository.WarehouseProductRepository;
+import com.stockly.service.command.AutoRestockService;
+import com.stockly.service.impl.command.AutoRestockServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Schedules the automated restock per warehouse tier. Each tier listed in {@code stockly.restock.tiers}
+ * gets its own {@code cron} or {@code interval-ms} and an optional list of {@code warehouse-ids}; the
+ * default tier covers every warehouse not assigned to another tier.
+ * <p>
+ * Runs are started on a virtual thread so they never hold the scheduler thread, and a tier is skipped
+ * while its previous run is still going.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
-public class WarehouseProductScheduler {
+public class WarehouseProductScheduler implements SchedulingConfigurer {
 
-    private final WarehouseProductQueryService warehouseProductQueryService;
+    private static final String DEFAULT_CRON = "0 0 1 1 * *";
 
-    @Scheduled(cron = "0 0 1 1 * *")
-    public void runAutoRestockMonthly() {
-        log.info("Running automated restock job on {}", java.time.LocalDate.now());
+    private final AutoRestockService autoRestockService;
+    private final WarehouseProductRepository warehouseProductRepository;
+    private final Environment environment;
 
-        String month = java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMM"));
-        warehouseProductQueryService.orderAutomationWarehouseProducts(month);
+    private final Map<String, AtomicBoolean> runningTiers = new ConcurrentHashMap<>();
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        List<String> tiers = Arrays.asList(environment.getProperty("stockly.restock.tiers", String[].class,
+                new String[]{AutoRestockServiceImpl.DEFAULT_TIER}));
+
+        Set<Long> assignedWarehouseIds = new HashSet<>();
+        for (String tier : tiers) {
+            if (!tier.equals(AutoRestockServiceImpl.DEFAULT_TIER)) {
+                assignedWarehouseIds.addAll(tierWarehouseIds(tier));
+            }
+        }
+
+        for (String tier : tiers) {
+            Runnable task = () -> launch(tier, assignedWarehouseIds);
+            String cron = environment.getProperty(tierProperty(tier, "cron"));
+            Long intervalMs = environment.getProperty(tierProperty(tier, "interval-ms"), Long.class);
+
+            if (intervalMs != null) {
+                registrar.addFixedDelayTask(task, Duration.ofMillis(intervalMs));
+            } else {
+                registrar.addCronTask(task, cron != null ? cron : DEFAULT_CRON);
+            }
+        }
+    }
+
+    private void launch(String tier, Set<Long> assignedWarehouseIds) {
+        AtomicBoolean running = runningTiers.computeIfAbsent(tier, key -> new AtomicBoolean());
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Skipping automated restock for tier '{}', the previous run is still in progress", tier);
+            return;
+        }
+
+        Thread.ofVirtual().name("restock-" + tier).start(() -> {
+            try {
+                runAutoRestock(tier, assignedWarehouseIds);
+            } catch (RuntimeException e) {
+                log.error("Automated restock for tier '{}' failed", tier, e);
+            } finally {
+                running.set(false);
+            }
+        });
     }
 
+    private void runAutoRestock(String tier, Set<Long> assignedWarehouseIds) {
+        log.info("Running automated restock job for tier '{}' on {}", tier, LocalDate.now());
+
+        String month = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
+        List<Long> warehouseIds;
+        if (tier.equals(AutoRestockServiceImpl.DEFAULT_TIER)) {
+            warehouseIds = warehouseProductRepository.findAutoRestockWarehouseIds().stream()
+                    .filter(warehouseId -> !assignedWarehouseIds.contains(warehouseId))
+                    .toList();
+        } else {
+            warehouseIds = tierWarehouseIds(tier);
+        }
+        autoRestockService.runAutoRestock(month, tier, warehouseIds);
+    }
+
+    private List<Long> tierWarehouseIds(String tier) {
+        return Arrays.asList(environment.getProperty(tierProperty(tier, "warehouse-ids"), Long[].class, new Long[0]));
+    }
+
+    private static String tierProperty(String tier, String name) {
+        return "stockly.restock.tier." + tier + "." + name;
+    }
 }
@@ -1,12 +1,11 @@
 package com.stockly.service;
 
 import com.stockly.model.InventoryLog;
-import org.springframework.data.domain.Page;
 
-import java.io.ByteArrayInputStream;
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
 
 public interface InventoryLogExportService {
-    ByteArrayInputStream exportToExcel(List<InventoryLog> logs);
-    ByteArrayInputStream exportToExcel(Page<InventoryLog> logPage);
-}
\ No newline at end of file
+    void exportToExcel(Stream<InventoryLog> logs, OutputStream outputStream) throws IOException;
+}
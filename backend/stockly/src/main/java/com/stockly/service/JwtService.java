@@ -1,14 +1,21 @@
 package com.stockly.service;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Map;
 
 public interface JwtService {
+    String ROLES_CLAIM = "roles";
+    String USER_ID_CLAIM = "uid";
+    String TOKEN_VERSION_CLAIM = "ver";
+
     public String extractUsername(String token);
     public String generateToken(UserDetails userDetails);
     public String generateRefreshToken(UserDetails userDetails);
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails);
     public long getExpirationTime();
+    public Claims parseToken(String token);
     public boolean isTokenValid(String token, UserDetails userDetails);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails);
 }
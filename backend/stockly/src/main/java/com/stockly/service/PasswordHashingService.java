@@ -0,0 +1,13 @@
+package com.stockly.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hashes and verifies passwords off the request thread. Both methods throw a
+ * {@link com.stockly.exception.TooManyRequestsException} right away, instead of returning a future,
+ * when too much hashing work is already queued.
+ */
+public interface PasswordHashingService {
+    public CompletableFuture<String> encode(CharSequence rawPassword);
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword);
+}
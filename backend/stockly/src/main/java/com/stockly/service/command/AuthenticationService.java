@@ -6,9 +6,11 @@ import com.stockly.dto.VerifyUserDTO;
 import com.stockly.model.User;
 import com.stockly.responses.AuthResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthenticationService {
-    public User signup(RegisterUserDTO input);
-    public AuthResponse authenticate(LoginUserDTO input);
+    public CompletableFuture<User> signup(RegisterUserDTO input);
+    public CompletableFuture<AuthResponse> authenticate(LoginUserDTO input, String remoteAddress);
     public AuthResponse refreshAccessToken(String refreshToken);
     public void verifyUser(VerifyUserDTO input);
     public void resendVerificationCode(String email);
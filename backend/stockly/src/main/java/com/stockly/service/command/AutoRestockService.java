@@ -0,0 +1,10 @@
+package com.stockly.service.command;
+
+import com.stockly.dto.AutoRestockRunSummary;
+
+import java.util.Collection;
+
+public interface AutoRestockService {
+    AutoRestockRunSummary runAutoRestock(String month);
+    AutoRestockRunSummary runAutoRestock(String month, String tier, Collection<Long> warehouseIds);
+}
@@ -0,0 +1,11 @@
+package com.stockly.service.command;
+
+import com.stockly.model.InventoryLog;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface InventoryMovementRollupService {
+    void apply(List<InventoryLog> logs);
+    long rebuild(Instant start, Instant end);
+}
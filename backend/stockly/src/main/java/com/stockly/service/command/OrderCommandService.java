@@ -2,9 +2,13 @@ package com.stockly.service.command;
 
 import com.stockly.dto.OrderDTO;
 import com.stockly.model.Order;
+import com.stockly.model.Product;
+
+import java.util.Map;
 
 public interface OrderCommandService {
     Order createOrder(OrderDTO orderDTO);
+    Order createOrder(OrderDTO orderDTO, Map<Long, Product> products);
     Order updateOrder(Long id, OrderDTO orderDTO);
     void updateOrderStatus(Long id, String status);
     void cancelOrder(Long id);
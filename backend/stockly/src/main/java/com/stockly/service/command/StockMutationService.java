@@ -0,0 +1,13 @@
+package com.stockly.service.command;
+
+import com.stockly.dto.StockMutationResult;
+
+import java.util.Map;
+
+public interface StockMutationService {
+    StockMutationResult adjustQuantity(Long warehouseId, Long productId, int delta);
+    StockMutationResult adjustQuantities(Long warehouseId, Map<Long, Integer> deltasByProductId);
+
+    // Raises each row to its target quantity; rows already at or above it are reported as failed and left untouched
+    StockMutationResult raiseQuantities(Long warehouseId, Map<Long, Integer> targetsByProductId);
+}
@@ -4,8 +4,10 @@ import com.stockly.dto.RegisterUserDTO;
 import com.stockly.dto.UserDTO;
 import com.stockly.model.User;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserCommandService {
-    public User createAdministrator(RegisterUserDTO input);
+    public CompletableFuture<User> createAdministrator(RegisterUserDTO input);
     public UserDTO updateUser(Long id, UserDTO userDTO);
     public void deleteUser(Long id);
     public void sendVerificationEmail(User user);
@@ -2,109 +2,134 @@ package com.stockly.service.impl;
 
 import com.stockly.model.InventoryLog;
 import com.stockly.service.InventoryLogExportService;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.data.domain.Page;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.ZoneId;
-import java.util.Collections;
-import java.util.List;
-
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes inventory logs to an xlsx file through POI's streaming workbook. Only the last
+ * {@code rowWindow} rows stay in memory, the rest are flushed to a compressed temp file, so memory
+ * use does not grow with the number of exported logs.
+ * <p>
+ * A sheet holds at most 1,048,576 rows including its header, so larger exports continue on
+ * additional sheets, each starting with the header row.
+ */
 @Service
 public class InventoryLogExportServiceImpl implements InventoryLogExportService {
 
-    @Override
-    public ByteArrayInputStream exportToExcel(List<InventoryLog> logs) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Inventory Logs");
-
-            // Create header row
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {
-                    "Warehouse", "SKU", "Product", "Action", "Qty Change",
-                    "Previous Qty", "New Qty", "Source", "Reference Type",
-                    "Reference ID", "User", "Notes", "Timestamp"
-            };
+    private static final String[] HEADERS = {
+            "Warehouse", "SKU", "Product", "Action", "Qty Change",
+            "Previous Qty", "New Qty", "Source", "Reference Type",
+            "Reference ID", "User", "Notes", "Timestamp"
+    };
+
+    // Fixed widths in characters, since autoSizeColumn would need every row in memory
+    private static final int[] COLUMN_WIDTHS = {24, 16, 36, 16, 12, 12, 12, 10, 20, 24, 20, 40, 20};
+
+    private static final String SHEET_NAME = "Inventory Logs";
+
+    private final int rowWindow;
+    private final int maxRowsPerSheet;
+
+    public InventoryLogExportServiceImpl(@Value("${stockly.inventory-log.export.row-window:500}") int rowWindow) {
+        this(rowWindow, SpreadsheetVersion.EXCEL2007.getMaxRows());
+    }
+
+    InventoryLogExportServiceImpl(int rowWindow, int maxRowsPerSheet) {
+        this.rowWindow = rowWindow;
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
 
+    @Override
+    public void exportToExcel(Stream<InventoryLog> logs, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            // Styles are shared by every row; a style per row overflows the workbook's style table
             CellStyle headerCellStyle = workbook.createCellStyle();
             Font headerFont = workbook.createFont();
             headerFont.setBold(true);
             headerCellStyle.setFont(headerFont);
 
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerCellStyle);
+            CellStyle dateCellStyle = workbook.createCellStyle();
+            dateCellStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+            SXSSFSheet sheet = createSheet(workbook, SHEET_NAME, headerCellStyle);
+            int rowNum = 1;
+            Iterator<InventoryLog> iterator = logs.iterator();
+            while (iterator.hasNext()) {
+                if (rowNum == maxRowsPerSheet) {
+                    sheet = createSheet(workbook, SHEET_NAME + " (" + (workbook.getNumberOfSheets() + 1) + ")", headerCellStyle);
+                    rowNum = 1;
+                }
+                writeRow(sheet.createRow(rowNum++), iterator.next(), dateCellStyle);
             }
 
             // Handle empty data case
-            if (logs == null || logs.isEmpty()) {
+            if (rowNum == 1) {
                 Row row = sheet.createRow(1);
                 Cell cell = row.createCell(0);
                 cell.setCellValue("No inventory logs found matching the criteria");
+                sheet.addMergedRegion(new CellRangeAddress(1, 1, 0, HEADERS.length - 1));
 
-                // Merge cells for the message
-                sheet.addMergedRegion(new CellRangeAddress(1, 1, 0, headers.length - 1));
-
-                // Center align the message
                 CellStyle messageStyle = workbook.createCellStyle();
                 messageStyle.setAlignment(HorizontalAlignment.CENTER);
                 cell.setCellStyle(messageStyle);
-            } else {
-                // Create data rows
-                int rowNum = 1;
-                for (InventoryLog log : logs) {
-                    Row row = sheet.createRow(rowNum++);
-
-                    row.createCell(0).setCellValue(log.getWarehouseName() != null ? log.getWarehouseName() : "");
-                    row.createCell(1).setCellValue(log.getProductSku() != null ? log.getProductSku() : "");
-                    row.createCell(2).setCellValue(log.getProductTitle() != null ? log.getProductTitle() : "");
-                    row.createCell(3).setCellValue(log.getActionType() != null ? log.getActionType() : "");
-                    row.createCell(4).setCellValue(log.getQuantityChange() != null ? log.getQuantityChange() : 0);
-                    row.createCell(5).setCellValue(log.getPreviousQuantity() != null ? log.getPreviousQuantity() : 0);
-                    row.createCell(6).setCellValue(log.getNewQuantity() != null ? log.getNewQuantity() : 0);
-                    row.createCell(7).setCellValue(log.getSource() != null ? log.getSource() : "");
-                    row.createCell(8).setCellValue(log.getReferenceType() != null ? log.getReferenceType() : "");
-                    row.createCell(9).setCellValue(log.getReferenceId() != null ? log.getReferenceId() : "");
-                    row.createCell(10).setCellValue(log.getUserName() != null ? log.getUserName() : "");
-                    row.createCell(11).setCellValue(log.getNotes() != null ? log.getNotes() : "");
-
-                    if (log.getTimestamp() != null) {
-                        Cell dateCell = row.createCell(12);
-                        dateCell.setCellValue(log.getTimestamp().atZone(ZoneId.systemDefault()).toLocalDateTime());
-
-                        // Format date cells
-                        CellStyle dateCellStyle = workbook.createCellStyle();
-                        CreationHelper createHelper = workbook.getCreationHelper();
-                        dateCellStyle.setDataFormat(
-                                createHelper.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
-                        dateCell.setCellStyle(dateCellStyle);
-                    } else {
-                        row.createCell(12).setCellValue("");
-                    }
-                }
-            }
-
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
             }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             workbook.write(outputStream);
-            return new ByteArrayInputStream(outputStream.toByteArray());
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to export inventory logs to Excel", e);
+            outputStream.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
-    @Override
-    public ByteArrayInputStream exportToExcel(Page<InventoryLog> logPage) {
-        return exportToExcel(logPage != null ? logPage.getContent() : Collections.emptyList());
+    private static SXSSFSheet createSheet(SXSSFWorkbook workbook, String name, CellStyle headerCellStyle) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+        }
+
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(HEADERS[i]);
+            cell.setCellStyle(headerCellStyle);
+        }
+        return sheet;
+    }
+
+    private static void writeRow(Row row, InventoryLog log, CellStyle dateCellStyle) {
+        row.createCell(0).setCellValue(log.getWarehouseName() != null ? log.getWarehouseName() : "");
+        row.createCell(1).setCellValue(log.getProductSku() != null ? log.getProductSku() : "");
+        row.createCell(2).setCellValue(log.getProductTitle() != null ? log.getProductTitle() : "");
+        row.createCell(3).setCellValue(log.getActionType() != null ? log.getActionType() : "");
+        row.createCell(4).setCellValue(log.getQuantityChange() != null ? log.getQuantityChange() : 0);
+        row.createCell(5).setCellValue(log.getPreviousQuantity() != null ? log.getPreviousQuantity() : 0);
+        row.createCell(6).setCellValue(log.getNewQuantity() != null ? log.getNewQuantity() : 0);
+        row.createCell(7).setCellValue(log.getSource() != null ? log.getSource() : "");
+        row.createCell(8).setCellValue(log.getReferenceType() != null ? log.getReferenceType() : "");
+        row.createCell(9).setCellValue(log.getReferenceId() != null ? log.getReferenceId() : "");
+        row.createCell(10).setCellValue(log.getUserName() != null ? log.getUserName() : "");
+        row.createCell(11).setCellValue(log.getNotes() != null ? log.getNotes() : "");
+
+        Cell dateCell = row.createCell(12);
+        if (log.getTimestamp() != null) {
+            dateCell.setCellValue(log.getTimestamp().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            dateCell.setCellStyle(dateCellStyle);
+        } else {
+            dateCell.setCellValue("");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.stockly.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stockly.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Token buckets in front of password verification, one per account and one per client address.
+ * An attempt needs a token from both, so spraying one account from many addresses and trying many
+ * accounts from one address are both slowed down before any BCrypt work is queued.
+ * <p>
+ * Buckets are kept in memory per instance and are forgotten once they have been idle long enough
+ * to refill completely.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final class TokenBucket {
+        private final long capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(long capacity, Duration refillPeriod) {
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / refillPeriod.toNanos();
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        // Returns zero when a token was taken, otherwise how long until the next one is available
+        private synchronized Duration tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return Duration.ZERO;
+            }
+            return Duration.ofNanos((long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+    }
+
+    private final boolean enabled;
+    private final long accountCapacity;
+    private final long addressCapacity;
+    private final Duration refillPeriod;
+    private final Cache<String, TokenBucket> buckets;
+    private final Counter throttled;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${security.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${security.login-throttle.account-capacity:10}") long accountCapacity,
+                         @Value("${security.login-throttle.address-capacity:50}") long addressCapacity,
+                         @Value("${security.login-throttle.refill-period-seconds:60}") long refillPeriodSeconds,
+                         @Value("${security.login-throttle.maximum-size:100000}") long maximumSize) {
+        this.enabled = enabled;
+        this.accountCapacity = accountCapacity;
+        this.addressCapacity = addressCapacity;
+        this.refillPeriod = Duration.ofSeconds(refillPeriodSeconds);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(refillPeriod)
+                .build();
+        this.throttled = Counter.builder("stockly.login_throttle.rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one attempt from the account's and the address's bucket, or throws a
+     * {@link TooManyRequestsException} carrying the time until the exhausted bucket refills.
+     */
+    public void acquire(String email, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+        Duration accountWait = email != null
+                ? buckets.get("account:" + email.trim().toLowerCase(Locale.ROOT), key -> new TokenBucket(accountCapacity, refillPeriod)).tryConsume()
+                : Duration.ZERO;
+        Duration addressWait = remoteAddress != null
+                ? buckets.get("address:" + remoteAddress, key -> new TokenBucket(addressCapacity, refillPeriod)).tryConsume()
+                : Duration.ZERO;
+
+        Duration wait = accountWait.compareTo(addressWait) >= 0 ? accountWait : addressWait;
+        if (!wait.isZero()) {
+            throttled.increment();
+            throw new TooManyRequestsException("Too many login attempts, please try again later", wait);
+        }
+    }
+}
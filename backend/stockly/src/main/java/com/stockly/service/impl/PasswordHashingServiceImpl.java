@@ -0,0 +1,118 @@
+package com.stockly.service.impl;
+
+import com.stockly.exception.TooManyRequestsException;
+import com.stockly.service.PasswordHashingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a fixed pool sized to the CPUs it may use, so a burst of logins queues here instead of
+ * occupying request threads. The queue is bounded; once it is full new work is rejected right away
+ * with a 429 rather than waiting behind hashes that would finish after the client gave up.
+ */
+@Service
+@Slf4j
+public class PasswordHashingServiceImpl implements PasswordHashingService {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeWait;
+    private final Timer matchesWait;
+    private final Timer encodeTime;
+    private final Timer matchesTime;
+    private final Counter rejected;
+    private final Duration retryAfter;
+
+    public PasswordHashingServiceImpl(BCryptPasswordEncoder passwordEncoder,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${security.password.hashing.pool-size:0}") int poolSize,
+                                      @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+                                      @Value("${security.password.hashing.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.retryAfter = Duration.ofSeconds(retryAfterSeconds);
+
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "passwordHashing");
+
+        this.encodeWait = queueWaitTimer(meterRegistry, "encode");
+        this.matchesWait = queueWaitTimer(meterRegistry, "matches");
+        this.encodeTime = hashTimer(meterRegistry, "encode");
+        this.matchesTime = hashTimer(meterRegistry, "matches");
+        this.rejected = Counter.builder("stockly.password_hashing.rejected")
+                .register(meterRegistry);
+
+        long start = System.nanoTime();
+        passwordEncoder.encode("calibration");
+        log.info("Password hashing pool started with {} threads and a queue of {}; one hash takes {} ms",
+                threads, queueCapacity, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(encodeWait, encodeTime, () -> passwordEncoder.encode(rawPassword),
+                "Too many accounts are being created, please try again shortly");
+    }
+
+    @Override
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesWait, matchesTime, () -> passwordEncoder.matches(rawPassword, encodedPassword),
+                "Too many sign-in requests, please try again shortly");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer queueWait, Timer hashTime, Supplier<T> hash, String rejectionMessage) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return hashTime.record(hash);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException(rejectionMessage, retryAfter);
+        }
+    }
+
+    private static Timer queueWaitTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("stockly.password_hashing.queue.wait")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("stockly.password_hashing.time")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.stockly.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stockly.event.UserChangedEvent;
+import com.stockly.model.User;
+import com.stockly.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Users by email for authentication lookups: the UserDetailsService, login and token refresh.
+ * Entries are dropped after commit whenever the user changes, and the short expiry bounds staleness
+ * for changes made on other instances. Unknown emails are not cached, so a fresh signup can log in
+ * right away.
+ * <p>
+ * Cached users are shared between requests and must be treated as read-only; code that modifies a
+ * user loads it from the repository instead.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> usersByEmail;
+
+    public UserDetailsCache(UserRepository userRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${security.user-details-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${security.user-details-cache.expire-after-write-seconds:60}") long expireAfterWriteSeconds) {
+        this.userRepository = userRepository;
+        this.usersByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersByEmail, "userDetails");
+    }
+
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(usersByEmail.get(email, key -> userRepository.findByEmail(key).orElse(null)));
+    }
+
+    // Events only carry the id; a scan of the bounded cache is cheap next to how rarely users change
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        usersByEmail.asMap().values().removeIf(user -> event.userId().equals(user.getId()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.stockly.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.stockly.event.UserChangedEvent;
+import com.stockly.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Current token version per user, used to accept stateless access tokens without loading the user.
+ * Local changes evict the entry as soon as they commit; the expiry bounds how long a change made on
+ * another instance can go unnoticed.
+ */
+@Component
+public class UserTokenVersionCache {
+
+    private static final int REVOKED = -1;
+
+    private final LoadingCache<Long, Integer> versions;
+
+    public UserTokenVersionCache(UserRepository userRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${security.jwt.token-version-cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${security.jwt.token-version-cache.expire-after-write-seconds:300}") long expireAfterWriteSeconds) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build(userId -> userRepository.findActiveTokenVersion(userId).orElse(REVOKED));
+
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "userTokenVersions");
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        int current = versions.get(userId);
+        return current != REVOKED && current == tokenVersion;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        versions.invalidate(event.userId());
+    }
+}
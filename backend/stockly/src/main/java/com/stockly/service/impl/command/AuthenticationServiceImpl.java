@@ -3,6 +3,7 @@ package com.stockly.service.impl.command;
 import com.stockly.dto.LoginUserDTO;
 import com.stockly.dto.RegisterUserDTO;
 import com.stockly.dto.VerifyUserDTO;
+import com.stockly.event.UserChangedEvent;
 import com.stockly.model.Role;
 import com.stockly.model.RoleEnum;
 import com.stockly.model.User;
@@ -10,64 +11,85 @@ import com.stockly.repository.RoleRepository;
 import com.stockly.repository.UserRepository;
 import com.stockly.responses.AuthResponse;
 import com.stockly.service.JwtService;
+import com.stockly.service.PasswordHashingService;
 import com.stockly.service.command.EmailService;
 import com.stockly.service.command.AuthenticationService;
+import com.stockly.service.impl.LoginThrottle;
+import com.stockly.service.impl.UserDetailsCache;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 @Service
 @RequiredArgsConstructor
 public class AuthenticationServiceImpl implements AuthenticationService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
     private final EmailService emailService;
     private final JwtService jwtService;
     private final RoleRepository roleRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public User signup(RegisterUserDTO input) {
+    // Runs the blocking work that follows a password hash, off the hashing pool
+    private final Executor afterHashExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("signup-", 0).factory());
+
+    // The user is saved once the password hash is ready, so no request thread waits for BCrypt. Saving and
+    // mailing run on their own virtual thread, so the BCrypt pool only ever hashes
+    public CompletableFuture<User> signup(RegisterUserDTO input) {
         Optional<Role> optionalRole = roleRepository.findByName(RoleEnum.USER);
 
         if (optionalRole.isEmpty()) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
-        User user = new User(input.getUsername(), input.getEmail(), passwordEncoder.encode(input.getPassword()));
+        return passwordHashingService.encode(input.getPassword()).thenApplyAsync(encodedPassword -> {
+            User user = new User(input.getUsername(), input.getEmail(), encodedPassword);
 
-        user.setVerificationCode(generateVerificationCode());
-        user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(15));
-        user.setEnabled(true);
-        user.setRole(optionalRole.get());
+            user.setVerificationCode(generateVerificationCode());
+            user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(15));
+            user.setEnabled(true);
+            user.setRole(optionalRole.get());
 
-        sendVerificationEmail(user);
+            User savedUser = userRepository.save(user);
+            sendVerificationEmail(savedUser);
 
-        return userRepository.save(user);
+            return savedUser;
+        }, afterHashExecutor);
     }
 
     @Override
-    public AuthResponse authenticate(LoginUserDTO input) {
-        User user = userRepository.findByEmail(input.getEmail())
+    public CompletableFuture<AuthResponse> authenticate(LoginUserDTO input, String remoteAddress) {
+        loginThrottle.acquire(input.getEmail(), remoteAddress);
+
+        User user = userDetailsCache.findByEmail(input.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        if(!passwordEncoder.matches(input.getPassword(), user.getPassword())) {
-            throw new RuntimeException("Wrong password");
-        }
+        return passwordHashingService.matches(input.getPassword(), user.getPassword())
+                .thenApply(matches -> {
+                    if(!matches) {
+                        throw new RuntimeException("Wrong password");
+                    }
 
-        if(!user.isEnabled()) {
-            throw new RuntimeException("User account is not verified. Please verify your account!");
-        }
+                    if(!user.isEnabled()) {
+                        throw new RuntimeException("User account is not verified. Please verify your account!");
+                    }
 
-        String accessToken = jwtService.generateToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+                    String accessToken = jwtService.generateToken(user);
+                    String refreshToken = jwtService.generateRefreshToken(user);
 
-        return new AuthResponse(accessToken, refreshToken, "Login successful");
+                    return new AuthResponse(accessToken, refreshToken, "Login successful");
+                });
     }
 
     @Override
@@ -78,7 +100,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
                 throw new RuntimeException("Invalid refresh token - no username found");
             }
 
-            User user = userRepository.findByEmail(email)
+            User user = userDetailsCache.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
             if (!user.isEnabled()) {
@@ -111,6 +133,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
                 user.setVerificationCode(null);
                 user.setVerificationCodeExpiresAt(null);
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
             } else{
                 throw new RuntimeException("User verification code is incorrect!");
             }
@@ -130,6 +153,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             user.setVerificationCodeExpiresAt(LocalDateTime.now().plusHours(1));
             sendVerificationEmail(user);
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         }else {
             throw new RuntimeException("User not found");
         }
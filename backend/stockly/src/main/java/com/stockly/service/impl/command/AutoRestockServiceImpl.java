@@ -0,0 +1,474 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.AutoRestockRunSummary;
+import com.stockly.dto.StockMutationResult;
+import com.stockly.model.PredictionResult;
+import com.stockly.model.RestockRun;
+import com.stockly.model.enums.InventoryLogAction;
+import com.stockly.model.enums.RestockRunStatus;
+import com.stockly.projection.AutoRestockCandidateProjection;
+import com.stockly.repository.RestockRunRepository;
+import com.stockly.repository.WarehouseProductRepository;
+import com.stockly.service.command.AutoRestockService;
+import com.stockly.service.command.InventoryLogCommandService;
+import com.stockly.service.command.StockMutationService;
+import com.stockly.service.query.PredictionQueryService;
+import com.stockly.service.query.PredictionQueryService.PredictionKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Raises automated-restock rows to the quantity suggested by the month's predictions.
+ * <p>
+ * Work is split into one shard per warehouse. Shards run on virtual threads, and a semaphore sized
+ * from the connection pool caps how many of them touch the database at once.
+ * <p>
+ * Within a shard, rows are read as projections in keyset pages, so memory stays bounded by the page size. Each page
+ * costs one prediction query, and its changes are applied in one transaction with a single set-based
+ * update per warehouse. The same transaction claims each restocked row in {@code restock_applications}
+ * and advances the shard's run checkpoint, so a run that dies halfway resumes after its last committed page
+ * and a row is never restocked twice for the same month. A page that fails rolls back as a whole, so its
+ * rows are counted as failed on the run.
+ * <p>
+ * Each run holds a lease that is renewed with every committed page. Another instance only takes over a
+ * RUNNING run once that lease has expired, so two instances never work the same shard at once.
+ * <p>
+ * Rows are raised to the suggested quantity rather than incremented by a delta from the page read, so
+ * stock that changed in the meantime is never overshot. Claims of rows that turned out not to need the
+ * restock are released again.
+ */
+@Service
+@Slf4j
+public class AutoRestockServiceImpl implements AutoRestockService {
+
+    public static final String REFERENCE_TYPE = "AUTO_RESTOCK";
+    public static final String DEFAULT_TIER = "default";
+
+    // The quantity change is filled in by SETTLE_SQL once the row has been raised
+    private static final String CLAIM_SQL = """
+        INSERT INTO restock_applications (month, warehouse_product_id, run_id, quantity_change)
+        SELECT ?, d.warehouse_product_id, ?, 0
+        FROM unnest(CAST(? AS bigint[])) AS d(warehouse_product_id)
+        ON CONFLICT (month, warehouse_product_id) DO NOTHING
+        RETURNING warehouse_product_id
+    """;
+
+    private static final String SETTLE_SQL = """
+        UPDATE restock_applications ra
+        SET quantity_change = d.delta
+        FROM unnest(CAST(? AS bigint[]), CAST(? AS integer[])) AS d(warehouse_product_id, delta)
+        WHERE ra.month = ?
+        AND ra.warehouse_product_id = d.warehouse_product_id
+    """;
+
+    private static final String RELEASE_SQL = """
+        DELETE FROM restock_applications
+        WHERE month = ?
+        AND run_id = ?
+        AND warehouse_product_id = ANY(CAST(? AS bigint[]))
+    """;
+
+    private record Decision(AutoRestockCandidateProjection row, int target) {}
+
+    // Carries what a shard committed before it failed, so the run summary still accounts for it
+    private static class ShardFailedException extends RuntimeException {
+        private final transient AutoRestockRunSummary partial;
+
+        ShardFailedException(AutoRestockRunSummary partial, RuntimeException cause) {
+            super(cause);
+            this.partial = partial;
+        }
+    }
+
+    private final WarehouseProductRepository warehouseProductRepository;
+    private final RestockRunRepository restockRunRepository;
+    private final PredictionQueryService predictionQueryService;
+    private final StockMutationService stockMutationService;
+    private final InventoryLogCommandService inventoryLogCommandService;
+    private final ObjectProvider<StockReservationLedger> reservationLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final Semaphore connectionPermits;
+    private final Duration lease;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter processedCounter;
+    private final Counter appliedCounter;
+
+    public AutoRestockServiceImpl(WarehouseProductRepository warehouseProductRepository,
+                                  RestockRunRepository restockRunRepository,
+                                  PredictionQueryService predictionQueryService,
+                                  StockMutationService stockMutationService,
+                                  InventoryLogCommandService inventoryLogCommandService,
+                                  ObjectProvider<StockReservationLedger> reservationLedger,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${stockly.restock.page-size:1000}") int pageSize,
+                                  @Value("${stockly.restock.max-concurrency:8}") int maxConcurrency,
+                                  @Value("${stockly.restock.reserved-connections:2}") int reservedConnections,
+                                  @Value("${stockly.restock.lease-seconds:300}") long leaseSeconds,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.warehouseProductRepository = warehouseProductRepository;
+        this.restockRunRepository = restockRunRepository;
+        this.predictionQueryService = predictionQueryService;
+        this.stockMutationService = stockMutationService;
+        this.inventoryLogCommandService = inventoryLogCommandService;
+        this.reservationLedger = reservationLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+
+        // Each shard holds at most one connection at a time; the reserved ones stay free for request traffic
+        int permits = Math.max(1, Math.min(maxConcurrency, connectionPoolSize - reservedConnections));
+        this.connectionPermits = new Semaphore(permits, true);
+        log.info("Automated restock runs at most {} warehouse shards concurrently", permits);
+
+        this.meterRegistry = meterRegistry;
+        this.processedCounter = Counter.builder("stockly.restock.rows.processed").register(meterRegistry);
+        this.appliedCounter = Counter.builder("stockly.restock.rows.applied").register(meterRegistry);
+    }
+
+    @Override
+    public AutoRestockRunSummary runAutoRestock(String month) {
+        return runAutoRestock(month, DEFAULT_TIER, warehouseProductRepository.findAutoRestockWarehouseIds());
+    }
+
+    @Override
+    public AutoRestockRunSummary runAutoRestock(String month, String tier, Collection<Long> warehouseIds) {
+        long start = System.nanoTime();
+
+        Map<Long, Future<AutoRestockRunSummary>> shards = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Long warehouseId : warehouseIds) {
+                shards.put(warehouseId, executor.submit(() -> runShardWithPermit(month, tier, warehouseId)));
+            }
+        }
+
+        long processed = 0;
+        long applied = 0;
+        long skipped = 0;
+        long failed = 0;
+        List<Long> failedShards = new ArrayList<>();
+        for (Map.Entry<Long, Future<AutoRestockRunSummary>> shard : shards.entrySet()) {
+            try {
+                AutoRestockRunSummary summary = shard.getValue().get();
+                processed += summary.processed();
+                applied += summary.applied();
+                skipped += summary.skipped();
+                failed += summary.failed();
+            } catch (ExecutionException e) {
+                failedShards.add(shard.getKey());
+                if (e.getCause() instanceof ShardFailedException shardFailed) {
+                    processed += shardFailed.partial.processed();
+                    applied += shardFailed.partial.applied();
+                    skipped += shardFailed.partial.skipped();
+                    failed += shardFailed.partial.failed();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for restock shards", e);
+            }
+        }
+
+        long durationNanos = System.nanoTime() - start;
+        meterRegistry.timer("stockly.restock.run", "tier", tier).record(durationNanos, TimeUnit.NANOSECONDS);
+
+        AutoRestockRunSummary summary = new AutoRestockRunSummary(null, month, processed, applied, skipped, failed,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        log.info("Automated restock tier '{}' for {} ran {} warehouse shards ({} failed) and processed {} rows "
+                        + "({} restocked, {} skipped, {} failed) in {} ms, {} rows/s",
+                tier, month, shards.size(), failedShards.size(), summary.processed(), summary.applied(),
+                summary.skipped(), summary.failed(), summary.durationMs(), String.format("%.1f", summary.rowsPerSecond()));
+        if (!failedShards.isEmpty()) {
+            log.warn("Restock shards for warehouses {} failed and resume from their checkpoints on the next run", failedShards);
+        }
+        return summary;
+    }
+
+    private AutoRestockRunSummary runShardWithPermit(String month, String tier, Long warehouseId) throws InterruptedException {
+        connectionPermits.acquire();
+        try {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return runShard(month, warehouseId);
+            } finally {
+                sample.stop(Timer.builder("stockly.restock.shard")
+                        .tag("tier", tier)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry));
+            }
+        } finally {
+            connectionPermits.release();
+        }
+    }
+
+    private AutoRestockRunSummary runShard(String month, Long warehouseId) {
+        Optional<RestockRun> started = startOrResume(month, warehouseId);
+        if (started.isEmpty()) {
+            return new AutoRestockRunSummary(null, month, 0, 0, 0, 0, 0);
+        }
+        RestockRun run = started.get();
+        Long runId = run.getId();
+
+        long start = System.nanoTime();
+        long processed = 0;
+        long applied = 0;
+        int inFlight = 0;
+
+        Long afterId = run.getLastWarehouseProductId();
+        List<AutoRestockCandidateProjection> page;
+        try {
+            do {
+                page = warehouseProductRepository.findAutoRestockCandidates(warehouseId, afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                inFlight = page.size();
+                applied += restockPage(runId, month, page);
+                inFlight = 0;
+                processed += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            } while (page.size() == pageSize);
+        } catch (RuntimeException e) {
+            // The failed page rolled back as a whole, so none of its rows were restocked
+            finish(runId, RestockRunStatus.FAILED, e.getMessage(), inFlight);
+            log.error("Automated restock run {} for warehouse {} ({}) failed after {} rows, it resumes from row {} on the next run",
+                    runId, warehouseId, month, processed, afterId, e);
+            processedCounter.increment(processed);
+            appliedCounter.increment(applied);
+            throw new ShardFailedException(new AutoRestockRunSummary(runId, month, processed + inFlight, applied,
+                    processed - applied, inFlight, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)), e);
+        }
+        finish(runId, RestockRunStatus.COMPLETED, null, 0);
+
+        processedCounter.increment(processed);
+        appliedCounter.increment(applied);
+
+        AutoRestockRunSummary summary = new AutoRestockRunSummary(runId, month, processed, applied,
+                processed - applied, 0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.debug("Automated restock run {} for warehouse {} ({}) processed {} rows ({} restocked) in {} ms",
+                runId, warehouseId, month, summary.processed(), summary.applied(), summary.durationMs());
+        return summary;
+    }
+
+    /**
+     * Picks up the latest unfinished run of the month, or starts a new one. A run left in RUNNING is only
+     * taken over once its lease has expired, i.e. its owner has crashed or stalled; the claims in
+     * {@code restock_applications} keep that safe. Returns empty when another instance owns the shard.
+     */
+    private Optional<RestockRun> startOrResume(String month, Long warehouseId) {
+        Instant now = Instant.now();
+        Optional<RestockRun> unfinished = restockRunRepository.findFirstByMonthAndWarehouseIdAndStatusInOrderByIdDesc(
+                month, warehouseId, Set.of(RestockRunStatus.RUNNING, RestockRunStatus.FAILED));
+        if (unfinished.isPresent()) {
+            Long runId = unfinished.get().getId();
+            if (restockRunRepository.takeOver(runId, now, now.plus(lease)) == 0) {
+                log.info("Automated restock run {} for warehouse {} ({}) is still held by another instance, skipping the shard",
+                        runId, warehouseId, month);
+                return Optional.empty();
+            }
+            RestockRun resumed = restockRunRepository.findById(runId).orElseThrow();
+            log.info("Resuming automated restock run {} for warehouse {} ({}) after row {}",
+                    runId, warehouseId, month, resumed.getLastWarehouseProductId());
+            return Optional.of(resumed);
+        }
+
+        RestockRun created = new RestockRun();
+        created.setMonth(month);
+        created.setWarehouseId(warehouseId);
+        created.setStatus(RestockRunStatus.RUNNING);
+        created.setStartedAt(now);
+        created.setUpdatedAt(now);
+        created.setLeaseUntil(now.plus(lease));
+        try {
+            return Optional.of(restockRunRepository.save(created));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance started the shard's run first; only one RUNNING run per shard is allowed
+            log.info("Automated restock for warehouse {} ({}) was started by another instance, skipping the shard",
+                    warehouseId, month);
+            return Optional.empty();
+        }
+    }
+
+    private void finish(Long runId, RestockRunStatus status, String error, long failedRows) {
+        RestockRun run = restockRunRepository.findById(runId).orElseThrow();
+        Instant now = Instant.now();
+        run.setStatus(status);
+        run.setError(error);
+        run.setFailed(run.getFailed() + failedRows);
+        run.setUpdatedAt(now);
+        run.setFinishedAt(now);
+        run.setLeaseUntil(null);
+        restockRunRepository.save(run);
+    }
+
+    // Returns how many rows of the page were restocked
+    private long restockPage(Long runId, String month, List<AutoRestockCandidateProjection> page) {
+        Set<PredictionKey> keys = page.stream()
+                .map(AutoRestockServiceImpl::predictionKey)
+                .collect(Collectors.toSet());
+        Map<PredictionKey, PredictionResult> predictions = predictionQueryService.getPredictions(month, keys);
+
+        List<Decision> decisions = page.stream()
+                .map(row -> decide(row, predictions.get(predictionKey(row))))
+                .filter(Objects::nonNull)
+                .toList();
+        Long lastId = page.get(page.size() - 1).getId();
+
+        Long applied = transactionTemplate.execute(status -> {
+            long restocked = applyDecisions(runId, month, decisions);
+            Instant now = Instant.now();
+            restockRunRepository.recordProgress(runId, lastId, page.size(), restocked,
+                    page.size() - restocked, now.plus(lease), now);
+            return restocked;
+        });
+
+        // The ledger re-reads committed quantities, so it is only resynced once the page is committed
+        reservationLedger.ifAvailable(ledger -> decisions.forEach(decision ->
+                ledger.resync(decision.row().getWarehouseId(), decision.row().getProductId())));
+        return applied != null ? applied : 0;
+    }
+
+    private static PredictionKey predictionKey(AutoRestockCandidateProjection row) {
+        return new PredictionKey(row.getWarehouseId(), row.getProductId());
+    }
+
+    // The page read only preselects rows; the update itself checks the quantity again
+    private Decision decide(AutoRestockCandidateProjection row, PredictionResult prediction) {
+        if (prediction == null || prediction.getRecommendation() == null) {
+            return null; // Skip if no prediction
+        }
+
+        int suggestedRestock = prediction.getRecommendationRestock();
+        int currentStock = row.getQuantity() != null ? row.getQuantity() : 0;
+        return currentStock < suggestedRestock ? new Decision(row, suggestedRestock) : null;
+    }
+
+    private long applyDecisions(Long runId, String month, List<Decision> decisions) {
+        if (decisions.isEmpty()) {
+            return 0;
+        }
+
+        // Rows already restocked for this month by an earlier run are dropped here
+        Set<Long> claimed = claim(runId, month, decisions);
+        Map<Long, List<Decision>> byWarehouse = decisions.stream()
+                .filter(decision -> claimed.contains(decision.row().getId()))
+                .collect(Collectors.groupingBy(decision -> decision.row().getWarehouseId()));
+
+        long applied = 0;
+        Map<Long, Integer> raised = new HashMap<>();
+        List<Long> notRaised = new ArrayList<>();
+        for (Map.Entry<Long, List<Decision>> entry : byWarehouse.entrySet()) {
+            Long warehouseId = entry.getKey();
+            Map<Long, Decision> byProductId = new HashMap<>();
+            Map<Long, Integer> targets = new HashMap<>();
+            for (Decision decision : entry.getValue()) {
+                byProductId.put(decision.row().getProductId(), decision);
+                targets.put(decision.row().getProductId(), decision.target());
+            }
+
+            // Rows that reached the target since the page was read are left as they are
+            StockMutationResult result = stockMutationService.raiseQuantities(warehouseId, targets);
+            result.failedProductIds().forEach(productId -> notRaised.add(byProductId.get(productId).row().getId()));
+            for (StockMutationResult.AppliedLine line : result.applied()) {
+                AutoRestockCandidateProjection row = byProductId.get(line.productId()).row();
+                raised.put(row.getId(), line.newQuantity() - line.previousQuantity());
+
+                // Queued by the log writer and inserted in bulk once the page commits
+                inventoryLogCommandService.logInventoryChange(
+                        InventoryLogAction.RESTOCK,
+                        warehouseId,
+                        row.getWarehouseName(),
+                        line.productId(),
+                        row.getProductSku(),
+                        row.getProductTitle(),
+                        line.newQuantity() - line.previousQuantity(),
+                        line.previousQuantity(),
+                        line.newQuantity(),
+                        String.valueOf(runId),
+                        REFERENCE_TYPE,
+                        null,
+                        null,
+                        "Automated restock from predictions",
+                        null
+                );
+            }
+            applied += result.applied().size();
+        }
+
+        settle(runId, month, raised, notRaised);
+        return applied;
+    }
+
+    private Set<Long> claim(Long runId, String month, List<Decision> decisions) {
+        Long[] warehouseProductIds = decisions.stream().map(decision -> decision.row().getId()).toArray(Long[]::new);
+
+        List<Long> claimed = jdbcTemplate.query(
+                CLAIM_SQL,
+                ps -> {
+                    Array idArray = ps.getConnection().createArrayOf("bigint", warehouseProductIds);
+                    ps.setString(1, month);
+                    ps.setLong(2, runId);
+                    ps.setArray(3, idArray);
+                },
+                (rs, rowNum) -> rs.getLong("warehouse_product_id")
+        );
+        return new HashSet<>(claimed);
+    }
+
+    // Records the quantity each raised row actually gained and gives the other claims back
+    private void settle(Long runId, String month, Map<Long, Integer> raised, List<Long> notRaised) {
+        if (!raised.isEmpty()) {
+            Long[] warehouseProductIds = raised.keySet().toArray(Long[]::new);
+            Integer[] deltas = raised.values().toArray(Integer[]::new);
+            jdbcTemplate.update(SETTLE_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", warehouseProductIds));
+                ps.setArray(2, ps.getConnection().createArrayOf("integer", deltas));
+                ps.setString(3, month);
+            });
+        }
+        if (!notRaised.isEmpty()) {
+            Long[] warehouseProductIds = notRaised.toArray(Long[]::new);
+            jdbcTemplate.update(RELEASE_SQL, ps -> {
+                ps.setString(1, month);
+                ps.setLong(2, runId);
+                ps.setArray(3, ps.getConnection().createArrayOf("bigint", warehouseProductIds));
+            });
+        }
+    }
+}
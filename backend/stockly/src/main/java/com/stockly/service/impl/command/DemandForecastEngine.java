@@ -0,0 +1,270 @@
+package com.stockly.service.impl.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process demand forecasting, an alternative to the external prediction job.
+ * <p>
+ * Daily demand per (warehouse, product) is rebuilt from recent orders on startup and then updated
+ * from every committed order. Orders committed while the rebuild runs are held back and replayed on top
+ * of it, keeping only those placed after the rebuild's cutoff, so history is never folded into the open day
+ * nor counted twice.
+ * <p>
+ * Forecasts only depend on closed days, so they are written once per UTC day to the month's
+ * {@code predictions_yyyyMM} collection in the {@link com.stockly.model.PredictionResult} shape, tagged
+ * with {@link #SOURCE}. The run id is derived from the day, so readers drop their cached predictions at
+ * most once a day. Readers only see these documents when {@code stockly.predictions.source} selects them.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stockly.forecast.enabled", havingValue = "true")
+public class DemandForecastEngine {
+
+    public static final String SOURCE = "stockly-forecast";
+    private static final String VERSION = "1";
+    private static final String COLLECTION_PREFIX = "predictions_";
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final double MAX_DAYS_REMAINING = 365;
+    private static final int PUBLISH_BATCH_SIZE = 1000;
+
+    private static final String DAILY_DEMAND_SQL = """
+        SELECT o.source_warehouse_id AS warehouse_id,
+               oi.product_id,
+               CAST(o.order_date AT TIME ZONE 'UTC' AS DATE) AS day,
+               SUM(oi.quantity) AS quantity
+        FROM orders o
+        JOIN order_items oi ON oi.order_id = o.id
+        WHERE o.order_date >= ?
+        AND o.order_date < ?
+        AND o.source_warehouse_id IS NOT NULL
+        GROUP BY 1, 2, 3
+        ORDER BY 3
+    """;
+
+    private static final String CURRENT_STOCK_SQL = """
+        SELECT wp.warehouse_id, wp.product_id, wp.quantity
+        FROM warehouse_products wp
+        JOIN unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS k(warehouse_id, product_id)
+        ON wp.warehouse_id = k.warehouse_id AND wp.product_id = k.product_id
+    """;
+
+    private record SeriesKey(Long warehouseId, Long productId) {}
+
+    private record PendingDemand(Long warehouseId, Map<Long, Integer> quantitiesByProductId, Instant orderedAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final int windowDays;
+    private final double alpha;
+    private final int historyDays;
+    private final double leadTimeDays;
+    private final double reviewPeriodDays;
+    private final double serviceLevelZ;
+
+    private final Map<SeriesKey, DemandSeries> series = new ConcurrentHashMap<>();
+    private final List<PendingDemand> pending = new ArrayList<>();
+    private volatile boolean rebuilt;
+    private long publishedDay = Long.MIN_VALUE;
+
+    public DemandForecastEngine(JdbcTemplate jdbcTemplate,
+                                MongoTemplate mongoTemplate,
+                                @Value("${stockly.forecast.window-days:28}") int windowDays,
+                                @Value("${stockly.forecast.smoothing-alpha:0.2}") double alpha,
+                                @Value("${stockly.forecast.history-days:180}") int historyDays,
+                                @Value("${stockly.forecast.lead-time-days:7}") double leadTimeDays,
+                                @Value("${stockly.forecast.review-period-days:30}") double reviewPeriodDays,
+                                @Value("${stockly.forecast.service-level-z:1.65}") double serviceLevelZ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.windowDays = windowDays;
+        this.alpha = alpha;
+        this.historyDays = historyDays;
+        this.leadTimeDays = leadTimeDays;
+        this.reviewPeriodDays = reviewPeriodDays;
+        this.serviceLevelZ = serviceLevelZ;
+    }
+
+    /**
+     * Records the ordered quantities once the surrounding transaction commits, or right away outside a transaction.
+     */
+    public void recordDemand(Long warehouseId, Map<Long, Integer> quantitiesByProductId, Instant orderedAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(warehouseId, quantitiesByProductId, orderedAt);
+                }
+            });
+        } else {
+            apply(warehouseId, quantitiesByProductId, orderedAt);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromOrders() {
+        Instant cutoff = Instant.now();
+        Instant since = cutoff.minus(historyDays, ChronoUnit.DAYS);
+        Map<SeriesKey, DemandSeries> history = new HashMap<>();
+        int[] rows = new int[1];
+
+        try {
+            // Rows arrive in day order, so every day is closed before the next one opens
+            jdbcTemplate.query(DAILY_DEMAND_SQL, (RowCallbackHandler) rs -> {
+                SeriesKey key = new SeriesKey(rs.getLong("warehouse_id"), rs.getLong("product_id"));
+                record(history, key, rs.getDate("day").toLocalDate().toEpochDay(), rs.getInt("quantity"));
+                rows[0]++;
+            }, Timestamp.from(since), Timestamp.from(cutoff));
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild demand series from orders, forecasting from new orders only", e);
+            history.clear();
+        }
+
+        // Held back orders placed before the cutoff are already part of the history
+        synchronized (pending) {
+            series.putAll(history);
+            for (PendingDemand demand : pending) {
+                if (!demand.orderedAt().isBefore(cutoff)) {
+                    record(series, demand.warehouseId(), demand.quantitiesByProductId(), demand.orderedAt());
+                }
+            }
+            pending.clear();
+            rebuilt = true;
+        }
+
+        log.info("Rebuilt demand series for {} warehouse products from {} daily order totals", series.size(), rows[0]);
+    }
+
+    /**
+     * Writes the forecast of every pair on the first run of each UTC day, including the first run after startup.
+     */
+    @Scheduled(fixedDelayString = "${stockly.forecast.publish-interval-ms:300000}")
+    public void publish() {
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        if (!rebuilt || today == publishedDay) {
+            return;
+        }
+        List<SeriesKey> keys = new ArrayList<>(series.keySet());
+
+        Instant now = Instant.now();
+        String collectionName = COLLECTION_PREFIX + YearMonth.now(ZoneOffset.UTC).format(MONTH_FORMATTER);
+        String runId = SOURCE + "-" + VERSION + "-" + LocalDate.ofEpochDay(today);
+
+        for (int from = 0; from < keys.size(); from += PUBLISH_BATCH_SIZE) {
+            List<SeriesKey> batch = keys.subList(from, Math.min(from + PUBLISH_BATCH_SIZE, keys.size()));
+            Map<SeriesKey, Integer> stock = currentStock(batch);
+
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collectionName);
+            for (SeriesKey key : batch) {
+                DemandSeries demand = series.get(key);
+                DemandSeries.Forecast forecast;
+                synchronized (demand) {
+                    forecast = demand.forecast(today);
+                }
+                operations.upsert(
+                        Query.query(Criteria.where("warehouse_id").is(key.warehouseId())
+                                .and("product_id").is(key.productId())
+                                .and("metadata.source").is(SOURCE)),
+                        toUpdate(key, forecast, stock.getOrDefault(key, 0), now, runId));
+            }
+            operations.execute();
+        }
+        publishedDay = today;
+        log.info("Published {} in-process forecasts to {}", keys.size(), collectionName);
+    }
+
+    private void apply(Long warehouseId, Map<Long, Integer> quantitiesByProductId, Instant orderedAt) {
+        Instant at = orderedAt != null ? orderedAt : Instant.now();
+        if (!rebuilt) {
+            synchronized (pending) {
+                if (!rebuilt) {
+                    pending.add(new PendingDemand(warehouseId, new HashMap<>(quantitiesByProductId), at));
+                    return;
+                }
+            }
+        }
+        record(series, warehouseId, quantitiesByProductId, at);
+    }
+
+    private void record(Map<SeriesKey, DemandSeries> target, Long warehouseId, Map<Long, Integer> quantitiesByProductId,
+                        Instant orderedAt) {
+        long day = orderedAt.atOffset(ZoneOffset.UTC).toLocalDate().toEpochDay();
+        quantitiesByProductId.forEach((productId, quantity) ->
+                record(target, new SeriesKey(warehouseId, productId), day, quantity));
+    }
+
+    private void record(Map<SeriesKey, DemandSeries> target, SeriesKey key, long epochDay, int quantity) {
+        DemandSeries demand = target.computeIfAbsent(key, k -> new DemandSeries(windowDays, alpha));
+        synchronized (demand) {
+            demand.record(epochDay, quantity);
+        }
+    }
+
+    private Update toUpdate(SeriesKey key, DemandSeries.Forecast forecast, int current, Instant now, String runId) {
+        double daily = forecast.dailyPredicted();
+        double safetyStock = serviceLevelZ * forecast.dailyStdDev() * Math.sqrt(leadTimeDays);
+        int suggestedRestock = (int) Math.ceil(daily * (leadTimeDays + reviewPeriodDays) + safetyStock);
+        double daysRemaining = daily > 0 ? Math.min(MAX_DAYS_REMAINING, current / daily) : MAX_DAYS_REMAINING;
+
+        return new Update()
+                .set("metadata.created_at", now)
+                .set("metadata.version", VERSION)
+                .set("metadata.source", SOURCE)
+                .set("metadata.prediction_run_id", runId)
+                .set("data_hash", Integer.toHexString(Objects.hash(key, current, forecast)))
+                .set("stock_data.current", current)
+                .set("stock_data.days_remaining", daysRemaining)
+                .set("demand_forecast.daily_avg", forecast.dailyAverage())
+                .set("demand_forecast.daily_predicted", daily)
+                .set("demand_forecast.weekly_predicted_7d", daily * 7)
+                .set("recommendation.safety_stock", (int) Math.ceil(safetyStock))
+                .set("recommendation.suggested_restock", suggestedRestock);
+    }
+
+    private Map<SeriesKey, Integer> currentStock(List<SeriesKey> keys) {
+        Long[] warehouseIds = keys.stream().map(SeriesKey::warehouseId).toArray(Long[]::new);
+        Long[] productIds = keys.stream().map(SeriesKey::productId).toArray(Long[]::new);
+
+        Map<SeriesKey, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(
+                CURRENT_STOCK_SQL,
+                ps -> {
+                    Array warehouseIdArray = ps.getConnection().createArrayOf("bigint", warehouseIds);
+                    Array productIdArray = ps.getConnection().createArrayOf("bigint", productIds);
+                    ps.setArray(1, warehouseIdArray);
+                    ps.setArray(2, productIdArray);
+                },
+                (RowCallbackHandler) rs -> stock.put(
+                        new SeriesKey(rs.getLong("warehouse_id"), rs.getLong("product_id")), rs.getInt("quantity")));
+        return stock;
+    }
+}
@@ -0,0 +1,120 @@
+package com.stockly.service.impl.command;
+
+/**
+ * Daily demand of one (warehouse, product) pair. Closed days live in a fixed ring of primitive ints with
+ * running sums, and the exponential smoothing and Croston states are updated as each day closes, so
+ * recording demand and reading a forecast never rescan the history.
+ * <p>
+ * Not thread-safe; callers synchronize on the instance.
+ */
+final class DemandSeries {
+
+    /** Average inter-demand interval above which demand is treated as intermittent (Syntetos-Boylan). */
+    private static final double INTERMITTENT_INTERVAL = 1.32;
+
+    record Forecast(double dailyAverage, double dailyPredicted, double dailyStdDev) {}
+
+    private final int[] days;
+    private final double alpha;
+    private int size;
+    private int head;
+    private long sum;
+    private long sumOfSquares;
+
+    private long currentDay = Long.MIN_VALUE;
+    private int currentQuantity;
+
+    private double level = Double.NaN;
+    private double crostonSize = Double.NaN;
+    private double crostonInterval = Double.NaN;
+    private long periodsSinceDemand = 1;
+
+    DemandSeries(int windowDays, double alpha) {
+        this.days = new int[windowDays];
+        this.alpha = alpha;
+    }
+
+    void record(long epochDay, int quantity) {
+        // Late events for a day that is already closed are counted towards the open day
+        if (epochDay > currentDay) {
+            advanceTo(epochDay);
+        }
+        currentQuantity += quantity;
+    }
+
+    Forecast forecast(long today) {
+        if (today > currentDay) {
+            advanceTo(today);
+        }
+        if (size == 0) {
+            return new Forecast(0, 0, 0);
+        }
+
+        double mean = (double) sum / size;
+        double variance = Math.max(0, (double) sumOfSquares / size - mean * mean);
+
+        double predicted;
+        if (!Double.isNaN(crostonInterval) && crostonInterval > INTERMITTENT_INTERVAL) {
+            // Syntetos-Boylan approximation removes the upward bias of plain Croston
+            predicted = (1 - alpha / 2) * crostonSize / crostonInterval;
+        } else {
+            predicted = Double.isNaN(level) ? mean : level;
+        }
+        return new Forecast(mean, predicted, Math.sqrt(variance));
+    }
+
+    private void advanceTo(long epochDay) {
+        if (currentDay == Long.MIN_VALUE) {
+            currentDay = epochDay;
+            return;
+        }
+
+        closeDay(currentQuantity);
+        currentQuantity = 0;
+
+        long emptyDays = epochDay - currentDay - 1;
+        if (emptyDays > 0) {
+            for (long i = 0; i < Math.min(emptyDays, days.length); i++) {
+                push(0);
+            }
+            if (!Double.isNaN(level)) {
+                level *= Math.pow(1 - alpha, emptyDays);
+            }
+            periodsSinceDemand += emptyDays;
+        }
+        currentDay = epochDay;
+    }
+
+    private void closeDay(int quantity) {
+        push(quantity);
+
+        level = Double.isNaN(level) ? quantity : alpha * quantity + (1 - alpha) * level;
+
+        if (quantity > 0) {
+            if (Double.isNaN(crostonSize)) {
+                crostonSize = quantity;
+                crostonInterval = periodsSinceDemand;
+            } else {
+                crostonSize += alpha * (quantity - crostonSize);
+                crostonInterval += alpha * (periodsSinceDemand - crostonInterval);
+            }
+            periodsSinceDemand = 1;
+        } else {
+            periodsSinceDemand++;
+        }
+    }
+
+    private void push(int quantity) {
+        if (size == days.length) {
+            int evicted = days[head];
+            sum -= evicted;
+            sumOfSquares -= (long) evicted * evicted;
+        } else {
+            size++;
+        }
+        days[head] = quantity;
+        head = (head + 1) % days.length;
+        sum += quantity;
+        sumOfSquares += (long) quantity * quantity;
+    }
+}
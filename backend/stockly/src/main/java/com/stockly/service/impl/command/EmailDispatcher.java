@@ -0,0 +1,270 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.model.EmailOutboxMessage;
+import com.stockly.model.enums.EmailOutboxStatus;
+import com.stockly.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers emails queued in {@code email_outbox}. A single poller claims due messages, never more than
+ * there are idle workers, and hands them to a fixed worker pool; each worker sends over a pooled SMTP
+ * connection, so at most one connection per worker is open.
+ * <p>
+ * Failed deliveries are retried with exponential backoff until {@code max-attempts} is reached, after
+ * which the message is left as {@code FAILED}. Claims expire, so messages held by an instance that
+ * stopped mid-delivery are picked up again; delivery is therefore at least once.
+ */
+@Component
+@Slf4j
+public class EmailDispatcher {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSenderImpl mailSender;
+    private final SmtpTransportPool transportPool;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final Duration claimTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration sentRetention;
+
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final Semaphore wakeUps = new Semaphore(0);
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer deliveryTimer;
+    private final Timer queueDelayTimer;
+
+    private volatile boolean running;
+    private Thread poller;
+
+    public EmailDispatcher(EmailOutboxRepository emailOutboxRepository,
+                           JavaMailSenderImpl mailSender,
+                           SmtpTransportPool transportPool,
+                           MeterRegistry meterRegistry,
+                           @Value("${stockly.email.dispatcher.workers:4}") int workerCount,
+                           @Value("${stockly.email.dispatcher.batch-size:20}") int batchSize,
+                           @Value("${stockly.email.dispatcher.poll-interval-ms:5000}") long pollIntervalMs,
+                           @Value("${stockly.email.dispatcher.claim-timeout-seconds:120}") long claimTimeoutSeconds,
+                           @Value("${stockly.email.dispatcher.max-attempts:8}") int maxAttempts,
+                           @Value("${stockly.email.dispatcher.initial-backoff-seconds:30}") long initialBackoffSeconds,
+                           @Value("${stockly.email.dispatcher.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                           @Value("${stockly.email.dispatcher.sent-retention-days:7}") long sentRetentionDays) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailSender = mailSender;
+        this.transportPool = transportPool;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.sentRetention = Duration.ofDays(sentRetentionDays);
+
+        this.workers = ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("email-dispatcher-", 1).daemon().factory()),
+                "emailDispatcher");
+        this.idleWorkers = new Semaphore(workerCount);
+
+        this.sentCounter = Counter.builder("stockly.email.sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("stockly.email.retried").register(meterRegistry);
+        this.failedCounter = Counter.builder("stockly.email.failed").register(meterRegistry);
+        this.deliveryTimer = Timer.builder("stockly.email.delivery.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.queueDelayTimer = Timer.builder("stockly.email.queue.delay")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        poller = new Thread(this::runPollLoop, "email-dispatcher-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        poller.interrupt();
+        poller.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Messages not finished in time stay claimed and are retried once the claim expires
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Asks the poller to look for due messages now instead of at its next interval.
+     */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    /**
+     * Removes delivered messages past the retention period. Failed ones are kept for inspection.
+     */
+    @Scheduled(cron = "${stockly.email.dispatcher.purge-cron:0 30 3 * * *}", zone = "UTC")
+    public void purgeSent() {
+        int deleted = emailOutboxRepository.deleteByStatusUpdatedBefore(EmailOutboxStatus.SENT, Instant.now().minus(sentRetention));
+        if (deleted > 0) {
+            log.info("Purged {} delivered emails from the outbox", deleted);
+        }
+    }
+
+    private void runPollLoop() {
+        while (running) {
+            try {
+                if (!dispatchDue()) {
+                    wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to claim outbox emails", e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Returns true when a full batch was claimed, meaning more messages are probably due
+    private boolean dispatchDue() throws InterruptedException {
+        idleWorkers.acquire();
+        int available = 1 + idleWorkers.drainPermits();
+        int limit = Math.min(available, batchSize);
+        idleWorkers.release(available - limit);
+
+        List<EmailOutboxMessage> messages;
+        try {
+            Instant now = Instant.now();
+            List<Long> ids = emailOutboxRepository.claimDue(now, now.plus(claimTimeout), limit);
+            messages = ids.isEmpty() ? List.of() : emailOutboxRepository.findAllById(ids);
+        } catch (RuntimeException e) {
+            idleWorkers.release(limit);
+            throw e;
+        }
+        idleWorkers.release(limit - messages.size());
+
+        for (EmailOutboxMessage message : messages) {
+            workers.execute(() -> {
+                try {
+                    deliver(message);
+                } finally {
+                    idleWorkers.release();
+                }
+            });
+        }
+        return messages.size() == limit;
+    }
+
+    private void deliver(EmailOutboxMessage message) {
+        try {
+            send(message);
+        } catch (MessagingException | RuntimeException e) {
+            recordFailure(message, e);
+            return;
+        }
+
+        Instant now = Instant.now();
+        try {
+            emailOutboxRepository.markSent(message.getId(), now);
+        } catch (RuntimeException e) {
+            log.error("Email {} was delivered but could not be marked as sent", message.getId(), e);
+        }
+        sentCounter.increment();
+        queueDelayTimer.record(Duration.between(message.getCreatedAt(), now));
+    }
+
+    private void send(EmailOutboxMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
+
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), true);
+        if (message.getAttachment() != null) {
+            helper.addAttachment(message.getAttachmentName(), new ByteArrayResource(message.getAttachment()),
+                    message.getAttachmentMimeType());
+        }
+        mimeMessage.saveChanges();
+
+        long start = System.nanoTime();
+        Transport transport = transportPool.borrow();
+        try {
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        } catch (MessagingException | RuntimeException e) {
+            transportPool.discard(transport);
+            throw e;
+        }
+        transportPool.release(transport);
+        deliveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordFailure(EmailOutboxMessage message, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        Instant now = Instant.now();
+        try {
+            // A malformed address will not get any better with retries
+            if (e instanceof AddressException || message.getAttempts() >= maxAttempts) {
+                emailOutboxRepository.markUndelivered(message.getId(), EmailOutboxStatus.FAILED, now, error, now);
+                failedCounter.increment();
+                log.error("Giving up on email {} to {} after {} attempts: {}",
+                        message.getId(), message.getRecipient(), message.getAttempts(), error);
+            } else {
+                emailOutboxRepository.markUndelivered(message.getId(), EmailOutboxStatus.PENDING,
+                        now.plus(backoff(message.getAttempts())), error, now);
+                retriedCounter.increment();
+                log.warn("Email {} attempt {} failed, retrying later: {}", message.getId(), message.getAttempts(), error);
+            }
+        } catch (RuntimeException updateFailure) {
+            log.error("Failed to record delivery failure for email {}", message.getId(), updateFailure);
+        }
+    }
+
+    // Doubles per attempt up to the cap, with jitter so a failed burst does not retry in lockstep
+    private Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        return Duration.ofMillis((long) (capped * ThreadLocalRandom.current().nextDouble(0.8, 1.2)));
+    }
+}
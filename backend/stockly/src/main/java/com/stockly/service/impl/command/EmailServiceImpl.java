@@ -1,42 +1,78 @@
 package com.stockly.service.impl.command;
 
+import com.stockly.model.EmailOutboxMessage;
+import com.stockly.model.enums.EmailOutboxStatus;
+import com.stockly.repository.EmailOutboxRepository;
 import com.stockly.service.command.EmailService;
 import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamSource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Queues emails in the {@code email_outbox} table and returns; {@link EmailDispatcher} delivers them.
+ * Inside a transaction the message is only handed to the dispatcher once it commits, so rolled-back
+ * work never sends mail.
+ */
 @Service
 public class EmailServiceImpl implements EmailService {
-    @Autowired
-    private JavaMailSender emailSender;
-
-    public void sendVerificationEmail(String to, String Subject, String text) throws MessagingException {
-        MimeMessage message = emailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailDispatcher emailDispatcher;
 
-        helper.setTo(to);
-        helper.setSubject(Subject);
-        helper.setText(text, true);
+    public EmailServiceImpl(EmailOutboxRepository emailOutboxRepository, EmailDispatcher emailDispatcher) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailDispatcher = emailDispatcher;
+    }
 
-        emailSender.send(message);
+    public void sendVerificationEmail(String to, String Subject, String text) throws MessagingException {
+        enqueue(newMessage(to, Subject, text));
     }
 
     @Override
     public void sendEmailWithAttachment(String to, String subject, String text,
                                         InputStreamSource attachment, String filename, String mimeType)
             throws MessagingException {
-        MimeMessage message = emailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        EmailOutboxMessage message = newMessage(to, subject, text);
+        try (InputStream inputStream = attachment.getInputStream()) {
+            message.setAttachment(inputStream.readAllBytes());
+        } catch (IOException e) {
+            throw new MessagingException("Failed to read attachment " + filename, e);
+        }
+        message.setAttachmentName(filename);
+        message.setAttachmentMimeType(mimeType);
+
+        enqueue(message);
+    }
 
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(text, true);
-        helper.addAttachment(filename, attachment, mimeType);
+    private EmailOutboxMessage newMessage(String to, String subject, String text) {
+        Instant now = Instant.now();
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setBody(text);
+        message.setStatus(EmailOutboxStatus.PENDING);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+        message.setUpdatedAt(now);
+        return message;
+    }
 
-        emailSender.send(message);
+    private void enqueue(EmailOutboxMessage message) {
+        emailOutboxRepository.save(message);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emailDispatcher.wakeUp();
+                }
+            });
+        } else {
+            emailDispatcher.wakeUp();
+        }
     }
 }
@@ -0,0 +1,135 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.config.MongoIndexConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Routes inventory logs to monthly {@code inventory_logs_yyyyMM} collections, following the
+ * {@code predictions_yyyyMM} convention. Expired months are dropped as whole collections instead of
+ * relying on TTL deletes.
+ * <p>
+ * The original {@code inventory_logs} collection is still read as a legacy bucket while it holds data.
+ * It keeps its TTL index, so it drains on its own and is dropped once empty.
+ */
+@Component
+@Slf4j
+public class InventoryLogBuckets {
+
+    public static final String LEGACY_COLLECTION = "inventory_logs";
+    private static final String COLLECTION_PREFIX = "inventory_logs_";
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern BUCKET_NAME = Pattern.compile(COLLECTION_PREFIX + "\\d{6}");
+
+    private final MongoTemplate mongoTemplate;
+    private final int retentionMonths;
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private volatile boolean legacyPresent;
+
+    public InventoryLogBuckets(MongoTemplate mongoTemplate,
+                               @Value("${stockly.inventory-log.retention-months:24}") int retentionMonths) {
+        this.mongoTemplate = mongoTemplate;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        ensureBucket(collectionName(current));
+        ensureBucket(collectionName(current.plusMonths(1)));
+    }
+
+    public String collectionFor(Instant timestamp) {
+        return collectionName(YearMonth.from((timestamp != null ? timestamp : Instant.now()).atOffset(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Creates the bucket and its indexes the first time it is written to.
+     */
+    public void ensureBucket(String collectionName) {
+        if (buckets.contains(collectionName)) {
+            return;
+        }
+        MongoIndexConfig.ensureInventoryLogIndexes(mongoTemplate.indexOps(collectionName));
+        buckets.add(collectionName);
+    }
+
+    /**
+     * Returns the existing collections that can hold logs between the given instants, in month order for
+     * the given direction. Open bounds cover every bucket. The legacy collection, when present, comes last.
+     */
+    public List<String> collectionsFor(Instant start, Instant end, Sort.Direction direction) {
+        String from = start != null ? collectionFor(start) : null;
+        String to = end != null ? collectionFor(end) : null;
+
+        Comparator<String> order = direction == Sort.Direction.DESC ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        List<String> collections = new ArrayList<>(buckets.stream()
+                .filter(name -> from == null || name.compareTo(from) >= 0)
+                .filter(name -> to == null || name.compareTo(to) <= 0)
+                .sorted(order)
+                .toList());
+        if (legacyPresent) {
+            collections.add(LEGACY_COLLECTION);
+        }
+        return collections;
+    }
+
+    /**
+     * Keeps the current and next month's buckets created, drops buckets past the retention period
+     * and drops the legacy collection once its TTL index has emptied it.
+     */
+    @Scheduled(cron = "${stockly.inventory-log.rollover-cron:0 5 0 * * *}", zone = "UTC")
+    public void rollover() {
+        refresh();
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        ensureBucket(collectionName(current));
+        ensureBucket(collectionName(current.plusMonths(1)));
+
+        String oldestKept = collectionName(current.minusMonths(retentionMonths - 1L));
+        for (String bucket : List.copyOf(buckets)) {
+            if (bucket.compareTo(oldestKept) < 0) {
+                mongoTemplate.dropCollection(bucket);
+                buckets.remove(bucket);
+                log.info("Dropped expired inventory log bucket {}", bucket);
+            }
+        }
+
+        if (legacyPresent && !mongoTemplate.exists(new Query(), LEGACY_COLLECTION)) {
+            mongoTemplate.dropCollection(LEGACY_COLLECTION);
+            legacyPresent = false;
+            log.info("Dropped empty legacy inventory log collection");
+        }
+    }
+
+    // Picks up buckets created or dropped by other instances
+    private void refresh() {
+        Set<String> names = mongoTemplate.getCollectionNames();
+        buckets.retainAll(names);
+        names.stream()
+                .filter(name -> BUCKET_NAME.matcher(name).matches())
+                .forEach(buckets::add);
+        legacyPresent = names.contains(LEGACY_COLLECTION);
+    }
+
+    private static String collectionName(YearMonth month) {
+        return COLLECTION_PREFIX + month.format(MONTH_FORMATTER);
+    }
+}
@@ -2,7 +2,6 @@ package com.stockly.service.impl.command;
 
 import com.stockly.model.InventoryLog;
 import com.stockly.model.enums.InventoryLogAction;
-import com.stockly.repository.InventoryLogRepository;
 import com.stockly.service.command.InventoryLogCommandService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -14,7 +13,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class InventoryLogCommandServiceImpl implements InventoryLogCommandService {
 
-    private final InventoryLogRepository inventoryLogRepository;
+    private final InventoryLogWriter inventoryLogWriter;
 
     @Override
     public void logInventoryChange(InventoryLogAction action, Long warehouseId, String warehouseName,
@@ -42,7 +41,7 @@ public class InventoryLogCommandServiceImpl implements InventoryLogCommandServic
         log.setTimestamp(Instant.now());
         log.setMetadata(metadata);
 
-        inventoryLogRepository.save(log);
+        inventoryLogWriter.publish(log);
     }
 
     @Override
@@ -0,0 +1,92 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.model.InventoryLog;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills in {@code searchTokens} for inventory logs written before token search existed, and rewrites
+ * them for logs tokenized by an older {@link InventoryLog#SEARCH_TOKEN_VERSION}.
+ * Runs once after startup on a virtual thread, walking the missing documents of each bucket in
+ * {@code _id} order so a restart picks up where the previous run stopped.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stockly.inventory-log.search.backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class InventoryLogSearchBackfill {
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryLogBuckets inventoryLogBuckets;
+    private final int batchSize;
+
+    public InventoryLogSearchBackfill(MongoTemplate mongoTemplate,
+                                      InventoryLogBuckets inventoryLogBuckets,
+                                      @Value("${stockly.inventory-log.search.backfill.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryLogBuckets = inventoryLogBuckets;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofVirtual().name("inventory-log-search-backfill").start(this::backfill);
+    }
+
+    void backfill() {
+        long updated = 0;
+        for (String collectionName : inventoryLogBuckets.collectionsFor(null, null, Sort.Direction.DESC)) {
+            try {
+                updated += backfill(collectionName);
+            } catch (RuntimeException e) {
+                log.error("Search token backfill failed for {}", collectionName, e);
+            }
+        }
+
+        if (updated > 0) {
+            log.info("Backfilled search tokens for {} inventory logs", updated);
+        }
+    }
+
+    private long backfill(String collectionName) {
+        long updated = 0;
+        ObjectId lastId = null;
+        while (true) {
+            Criteria criteria = Criteria.where("searchTokenVersion").ne(InventoryLog.SEARCH_TOKEN_VERSION);
+            if (lastId != null) {
+                criteria = criteria.and("_id").gt(lastId);
+            }
+            Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+            query.fields().include("productSku", "productTitle", "warehouseName", "userName", "notes");
+
+            List<InventoryLog> logs = mongoTemplate.find(query, InventoryLog.class, collectionName);
+            if (logs.isEmpty()) {
+                return updated;
+            }
+
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryLog.class, collectionName);
+            for (InventoryLog inventoryLog : logs) {
+                inventoryLog.updateSearchTokens();
+                operations.updateOne(Query.query(Criteria.where("_id").is(new ObjectId(inventoryLog.getId()))),
+                        Update.update("searchTokens", inventoryLog.getSearchTokens())
+                                .set("searchTokenVersion", inventoryLog.getSearchTokenVersion()));
+            }
+            operations.execute();
+
+            updated += logs.size();
+            lastId = new ObjectId(logs.get(logs.size() - 1).getId());
+        }
+    }
+}
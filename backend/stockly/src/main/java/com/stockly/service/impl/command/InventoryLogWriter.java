@@ -0,0 +1,304 @@
+package com.stockly.service.impl.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.stockly.model.InventoryLog;
+import com.stockly.service.command.InventoryMovementRollupService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers inventory logs in a bounded queue and writes them to their monthly MongoDB buckets with
+ * bulk inserts, flushing whenever a batch is full or the flush interval elapses.
+ * <p>
+ * Logs created inside a transaction are only queued once it commits. When the queue is full,
+ * callers block for up to the offer timeout and then write synchronously. Batches that cannot be
+ * written are appended to a spill file when spilling is enabled and replayed after the next
+ * successful flush.
+ * <p>
+ * Every log gets its {@code _id} when it is published, and batches are inserted unordered with
+ * duplicate keys ignored. Replaying a batch that was partly written therefore only adds the missing
+ * logs, and movement rollups are only updated for logs that were actually inserted.
+ * <p>
+ * The queue lives in memory, so logs that were queued but not yet written are lost if the process dies.
+ * Nothing that must survive a crash may depend on these logs; the reservation ledger keeps its own
+ * journal in PostgreSQL for that reason.
+ */
+@Component
+@Slf4j
+public class InventoryLogWriter {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryLogBuckets inventoryLogBuckets;
+    private final InventoryMovementRollupService inventoryMovementRollupService;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<InventoryLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final boolean spillEnabled;
+    private final Path spillFile;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InventoryLogWriter(MongoTemplate mongoTemplate,
+                              InventoryLogBuckets inventoryLogBuckets,
+                              InventoryMovementRollupService inventoryMovementRollupService,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${stockly.inventory-log.queue-capacity:10000}") int queueCapacity,
+                              @Value("${stockly.inventory-log.batch-size:500}") int batchSize,
+                              @Value("${stockly.inventory-log.flush-interval-ms:200}") long flushIntervalMs,
+                              @Value("${stockly.inventory-log.offer-timeout-ms:1000}") long offerTimeoutMs,
+                              @Value("${stockly.inventory-log.spill.enabled:false}") boolean spillEnabled,
+                              @Value("${stockly.inventory-log.spill.file:inventory-log-spill.ndjson}") String spillFile) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryLogBuckets = inventoryLogBuckets;
+        this.inventoryMovementRollupService = inventoryMovementRollupService;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.spillEnabled = spillEnabled;
+        this.spillFile = Path.of(spillFile);
+
+        meterRegistry.gauge("stockly.inventory_log.queue.depth", queue, BlockingQueue::size);
+        this.batchSizeSummary = DistributionSummary.builder("stockly.inventory_log.batch.size")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stockly.inventory_log.flush.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlushLoop, "inventory-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Whatever is still queued is written before shutdown completes
+        List<InventoryLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    /**
+     * Publishes the log after the surrounding transaction commits, or right away outside a transaction.
+     */
+    public void publish(InventoryLog inventoryLog) {
+        if (inventoryLog.getId() == null) {
+            inventoryLog.setId(new ObjectId().toHexString());
+        }
+        inventoryLog.updateSearchTokens();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(inventoryLog);
+                }
+            });
+        } else {
+            enqueue(inventoryLog);
+        }
+    }
+
+    private void enqueue(InventoryLog inventoryLog) {
+        try {
+            if (queue.offer(inventoryLog, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Inventory log queue is full, writing log synchronously");
+        write(List.of(inventoryLog));
+    }
+
+    private void runFlushLoop() {
+        List<InventoryLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                InventoryLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    InventoryLog next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<InventoryLog> batch) {
+        batchSizeSummary.record(batch.size());
+        try {
+            flushTimer.record(() -> insert(batch));
+        } catch (RuntimeException e) {
+            if (!spillEnabled) {
+                log.error("Failed to write {} inventory logs", batch.size(), e);
+                return;
+            }
+            log.warn("Failed to write {} inventory logs, spilling to {}", batch.size(), spillFile, e);
+            spill(batch);
+            return;
+        }
+
+        if (spillEnabled && (Files.exists(spillFile) || Files.exists(replayFile()))) {
+            replaySpill();
+        }
+    }
+
+    // One unordered bulk insert per monthly bucket the batch touches
+    private void insert(List<InventoryLog> batch) {
+        Map<String, List<InventoryLog>> byCollection = new LinkedHashMap<>();
+        for (InventoryLog inventoryLog : batch) {
+            byCollection.computeIfAbsent(inventoryLogBuckets.collectionFor(inventoryLog.getTimestamp()),
+                    name -> new ArrayList<>()).add(inventoryLog);
+        }
+        byCollection.forEach((collectionName, logs) -> {
+            inventoryLogBuckets.ensureBucket(collectionName);
+            List<InventoryLog> inserted = insertIgnoringDuplicates(collectionName, logs);
+
+            // The logs are already stored, so a failed rollup update is left for a rebuild instead of spilling them again
+            try {
+                inventoryMovementRollupService.apply(inserted);
+            } catch (RuntimeException e) {
+                log.error("Failed to update movement rollups for {} inventory logs", inserted.size(), e);
+            }
+        });
+    }
+
+    // Returns the logs that were newly inserted; logs already stored by an earlier attempt are skipped
+    private List<InventoryLog> insertIgnoringDuplicates(String collectionName, List<InventoryLog> logs) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryLog.class, collectionName)
+                    .insert(logs)
+                    .execute();
+            return logs;
+        } catch (BulkOperationException e) {
+            Set<Integer> duplicates = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+                duplicates.add(error.getIndex());
+            }
+            List<InventoryLog> inserted = new ArrayList<>(logs.size() - duplicates.size());
+            for (int i = 0; i < logs.size(); i++) {
+                if (!duplicates.contains(i)) {
+                    inserted.add(logs.get(i));
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private synchronized void spill(List<InventoryLog> batch) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)) {
+            for (InventoryLog inventoryLog : batch) {
+                writer.write(objectMapper.writeValueAsString(inventoryLog));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            log.error("Failed to spill {} inventory logs", batch.size(), e);
+        }
+    }
+
+    private synchronized void replaySpill() {
+        Path replayFile = replayFile();
+        try {
+            // A replay file left behind by an earlier failed attempt is finished first
+            if (!Files.exists(replayFile)) {
+                Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            List<InventoryLog> spilled = new ArrayList<>();
+            for (String line : Files.readAllLines(replayFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    // Search tokens are not part of the JSON form, so they are rebuilt on replay
+                    InventoryLog inventoryLog = objectMapper.readValue(line, InventoryLog.class);
+                    inventoryLog.updateSearchTokens();
+                    spilled.add(inventoryLog);
+                }
+            }
+            for (int from = 0; from < spilled.size(); from += batchSize) {
+                insert(spilled.subList(from, Math.min(from + batchSize, spilled.size())));
+            }
+
+            Files.delete(replayFile);
+            log.info("Replayed {} spilled inventory logs", spilled.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to replay spilled inventory logs from {}", replayFile, e);
+        }
+    }
+
+    private Path replayFile() {
+        return spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+    }
+}
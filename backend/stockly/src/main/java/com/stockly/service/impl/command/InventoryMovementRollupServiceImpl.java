@@ -0,0 +1,151 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.exception.BusinessException;
+import com.stockly.model.InventoryLog;
+import com.stockly.model.InventoryMovementRollup;
+import com.stockly.model.enums.MovementGranularity;
+import com.stockly.service.command.InventoryMovementRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps hourly and daily movement totals in {@code inventory_movement_rollups}. Every flushed batch of
+ * inventory logs is folded in with one {@code $inc} upsert per touched bucket.
+ * <p>
+ * A rebuild replaces the rollups of whole UTC days from the logs themselves. It is meant for
+ * backfills and for days whose incremental update failed. The current UTC day is still receiving
+ * {@code $inc} updates from the log writer, which a rebuild would race with, so ranges reaching into
+ * it are refused.
+ */
+@Service
+@Slf4j
+public class InventoryMovementRollupServiceImpl implements InventoryMovementRollupService {
+
+    private record RollupKey(MovementGranularity granularity, Instant bucketStart, Long warehouseId,
+                             Long productId, String actionType) {}
+
+    private static final class Totals {
+        private long quantityChange;
+        private long movements;
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryLogBuckets inventoryLogBuckets;
+
+    public InventoryMovementRollupServiceImpl(MongoTemplate mongoTemplate, InventoryLogBuckets inventoryLogBuckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryLogBuckets = inventoryLogBuckets;
+    }
+
+    @Override
+    public void apply(List<InventoryLog> logs) {
+        Map<RollupKey, Totals> totals = new HashMap<>();
+        for (InventoryLog inventoryLog : logs) {
+            if (inventoryLog.getTimestamp() == null || inventoryLog.getQuantityChange() == null) {
+                continue;
+            }
+            add(totals, inventoryLog.getTimestamp(), inventoryLog.getWarehouseId(), inventoryLog.getProductId(),
+                    inventoryLog.getActionType(), inventoryLog.getQuantityChange(), 1);
+        }
+        write(totals);
+    }
+
+    @Override
+    public long rebuild(Instant start, Instant end) {
+        if (!start.isBefore(end)) {
+            throw new BusinessException("Start must be before end");
+        }
+        Instant from = start.truncatedTo(ChronoUnit.DAYS);
+        Instant to = end.truncatedTo(ChronoUnit.DAYS).equals(end) ? end : end.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+        Instant today = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        if (to.isAfter(today)) {
+            throw new BusinessException("Rollups can only be rebuilt for days before " + today);
+        }
+        long logs = 0;
+
+        // One day at a time keeps the aggregation results and the delete/rewrite window small
+        for (Instant day = from; day.isBefore(to); day = day.plus(1, ChronoUnit.DAYS)) {
+            Instant next = day.plus(1, ChronoUnit.DAYS);
+            mongoTemplate.remove(new Query(Criteria.where("bucketStart").gte(day).lt(next)), InventoryMovementRollup.class);
+
+            Map<RollupKey, Totals> totals = new HashMap<>();
+            for (String collectionName : inventoryLogBuckets.collectionsFor(day, day, Sort.Direction.ASC)) {
+                logs += aggregateHours(collectionName, day, next, totals);
+            }
+            write(totals);
+        }
+
+        log.info("Rebuilt inventory movement rollups from {} to {} out of {} logs", from, to, logs);
+        return logs;
+    }
+
+    private long aggregateHours(String collectionName, Instant from, Instant to, Map<RollupKey, Totals> totals) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("timestamp", new Document("$gte", Date.from(from)).append("$lt", Date.from(to)))
+                        .append("quantityChange", new Document("$ne", null))),
+                new Document("$group", new Document("_id", new Document("warehouseId", "$warehouseId")
+                        .append("productId", "$productId")
+                        .append("actionType", "$actionType")
+                        .append("hour", new Document("$dateTrunc", new Document("date", "$timestamp").append("unit", "hour"))))
+                        .append("quantityChange", new Document("$sum", "$quantityChange"))
+                        .append("movements", new Document("$sum", 1))));
+
+        long logs = 0;
+        for (Document group : mongoTemplate.getCollection(collectionName).aggregate(pipeline)) {
+            Document id = group.get("_id", Document.class);
+            long movements = ((Number) group.get("movements")).longValue();
+            add(totals, id.getDate("hour").toInstant(),
+                    toLong(id.get("warehouseId")), toLong(id.get("productId")), id.getString("actionType"),
+                    ((Number) group.get("quantityChange")).longValue(), movements);
+            logs += movements;
+        }
+        return logs;
+    }
+
+    private static void add(Map<RollupKey, Totals> totals, Instant timestamp, Long warehouseId, Long productId,
+                            String actionType, long quantityChange, long movements) {
+        for (MovementGranularity granularity : MovementGranularity.values()) {
+            Totals bucket = totals.computeIfAbsent(new RollupKey(granularity, granularity.truncate(timestamp),
+                    warehouseId, productId, actionType), key -> new Totals());
+            bucket.quantityChange += quantityChange;
+            bucket.movements += movements;
+        }
+    }
+
+    private void write(Map<RollupKey, Totals> totals) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryMovementRollup.class);
+        totals.forEach((key, bucket) -> operations.upsert(
+                Query.query(Criteria.where("granularity").is(key.granularity().name())
+                        .and("warehouseId").is(key.warehouseId())
+                        .and("productId").is(key.productId())
+                        .and("bucketStart").is(key.bucketStart())
+                        .and("actionType").is(key.actionType())),
+                new Update()
+                        .inc("quantityChange", bucket.quantityChange)
+                        .inc("movements", bucket.movements)
+                        .set("updatedAt", now)));
+        operations.execute();
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+}
@@ -7,6 +7,7 @@ import com.stockly.exception.ResourceNotFoundException;
 import com.stockly.mapper.OrderMapper;
 import com.stockly.model.*;
 import com.stockly.repository.CompanyRepository;
+import com.stockly.repository.OrderExportTombstoneRepository;
 import com.stockly.repository.OrderRepository;
 import com.stockly.repository.ProductRepository;
 import com.stockly.repository.WarehouseRepository;
@@ -18,6 +19,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +34,7 @@ public class OrderCommandServiceImpl implements OrderCommandService {
     private final CompanyRepository companyRepository;
     private final ProductRepository productRepository;
     private final WarehouseRepository warehouseRepository;
+    private final OrderExportTombstoneRepository orderExportTombstoneRepository;
 
     @Override
     @Transactional
@@ -37,6 +44,17 @@ public class OrderCommandServiceImpl implements OrderCommandService {
             throw new IllegalArgumentException("Order must contain at least one item");
         }
 
+        return createOrder(dto, loadProducts(dto));
+    }
+
+    @Override
+    @Transactional
+    public Order createOrder(OrderDTO dto, Map<Long, Product> products) {
+        // Validate required fields
+        if (dto.getItems() == null || dto.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one item");
+        }
+
         Order order = orderMapper.createNewOrderFromDto(dto);
         order.setOrderDate(Instant.now().truncatedTo(ChronoUnit.SECONDS));
 
@@ -80,7 +98,7 @@ public class OrderCommandServiceImpl implements OrderCommandService {
         }
 
         // Process order items
-        processOrderItems(dto, order);
+        processOrderItems(dto, order, products);
 
         return orderRepository.save(order);
     }
@@ -91,24 +109,37 @@ public class OrderCommandServiceImpl implements OrderCommandService {
         Order existingOrder = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
 
-        // Process order items before mapping
+        // Process order items before mapping; the replaced lines are reported as deleted by the incremental export
         if (orderDTO.getItems() != null) {
-            processOrderItems(orderDTO, existingOrder);
+            recordTombstones(existingOrder);
+            processOrderItems(orderDTO, existingOrder, loadProducts(orderDTO));
+            // Replacing items alone does not dirty the order, and the export follows orders.updated_at
+            existingOrder.setUpdatedAt(new Date());
         }
 
         orderMapper.updateEntityFromDto(orderDTO, existingOrder);
         return orderRepository.save(existingOrder);
     }
 
-    private void processOrderItems(OrderDTO dto, Order order) {
+    private Map<Long, Product> loadProducts(OrderDTO dto) {
+        Set<Long> productIds = dto.getItems().stream()
+                .map(OrderItemDTO::getProductId)
+                .collect(Collectors.toSet());
+
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private void processOrderItems(OrderDTO dto, Order order, Map<Long, Product> products) {
         // Clear existing items if any (for updates)
         order.getItems().clear();
 
         // Add new items from DTO
         for (OrderItemDTO itemDto : dto.getItems()) {
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Product not found with id: " + itemDto.getProductId()));
+            Product product = products.get(itemDto.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + itemDto.getProductId());
+            }
 
             // Create and add order item
             OrderItem item = new OrderItem();
@@ -160,9 +191,16 @@ public class OrderCommandServiceImpl implements OrderCommandService {
     @Override
     @Transactional
     public void deleteOrder(Long id) {
-        if (!orderRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Order not found with id: " + id);
-        }
-        orderRepository.deleteById(id);
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        recordTombstones(order);
+        orderRepository.delete(order);
+    }
+
+    private void recordTombstones(Order order) {
+        orderExportTombstoneRepository.saveAll(order.getItems().stream()
+                .filter(item -> item.getId() != null)
+                .map(OrderExportTombstone::of)
+                .toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.request.OrderItemRequest;
+import com.stockly.exception.BusinessException;
+import com.stockly.exception.ResourceNotFoundException;
+import com.stockly.model.Product;
+import com.stockly.model.Warehouse;
+import com.stockly.model.WarehouseProduct;
+import com.stockly.repository.ProductRepository;
+import com.stockly.repository.WarehouseProductRepository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Products and stock rows of a single order request, loaded with one bulk query each
+ * and reused for validation, pricing, stock deduction and receipt generation.
+ */
+class OrderIntakeSnapshot {
+
+    private final Warehouse warehouse;
+    private final Map<Long, Product> products;
+    private final Map<Long, WarehouseProduct> stock;
+
+    private OrderIntakeSnapshot(Warehouse warehouse, Map<Long, Product> products, Map<Long, WarehouseProduct> stock) {
+        this.warehouse = warehouse;
+        this.products = products;
+        this.stock = stock;
+    }
+
+    static OrderIntakeSnapshot load(Warehouse warehouse,
+                                    List<OrderItemRequest> items,
+                                    ProductRepository productRepository,
+                                    WarehouseProductRepository warehouseProductRepository) {
+        Set<Long> productIds = items.stream()
+                .map(OrderItemRequest::getProductId)
+                .collect(Collectors.toSet());
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+
+        Map<Long, WarehouseProduct> stock = new HashMap<>();
+        for (WarehouseProduct warehouseProduct : warehouseProductRepository
+                .findByWarehouseIdAndProductIds(warehouse.getId(), productIds)) {
+            stock.put(warehouseProduct.getProduct().getId(), warehouseProduct);
+        }
+
+        return new OrderIntakeSnapshot(warehouse, products, stock);
+    }
+
+    Warehouse getWarehouse() {
+        return warehouse;
+    }
+
+    Map<Long, Product> getProducts() {
+        return Collections.unmodifiableMap(products);
+    }
+
+    Product getProduct(Long productId) {
+        Product product = products.get(productId);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+        return product;
+    }
+
+    WarehouseProduct getStock(Long productId) {
+        WarehouseProduct warehouseProduct = stock.get(productId);
+        if (warehouseProduct == null) {
+            throw new BusinessException("Product " + getProduct(productId).getTitle()
+                    + " not available in warehouse " + warehouse.getName());
+        }
+        return warehouseProduct;
+    }
+
+    /**
+     * Validates that every line can be served, summing quantities of lines that
+     * repeat the same product.
+     */
+    void checkAvailability(List<OrderItemRequest> items) {
+        Map<Long, Integer> requested = new HashMap<>();
+        for (OrderItemRequest item : items) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Product product = getProduct(entry.getKey());
+            WarehouseProduct warehouseProduct = getStock(entry.getKey());
+
+            if (warehouseProduct.getQuantity() < entry.getValue()) {
+                throw new BusinessException("Insufficient stock for product: " + product.getTitle() +
+                        ". Available: " + warehouseProduct.getQuantity() +
+                        ", Requested: " + entry.getValue());
+            }
+        }
+    }
+}
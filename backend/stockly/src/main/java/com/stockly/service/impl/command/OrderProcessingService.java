@@ -3,6 +3,7 @@ package com.stockly.service.impl.command;
 import com.stockly.dto.OrderDTO;
 import com.stockly.dto.OrderItemDTO;
 import com.stockly.dto.ReceiptDTO;
+import com.stockly.dto.StockMutationResult;
 import com.stockly.dto.request.OrderRequest;
 import com.stockly.dto.request.OrderItemRequest;
 import com.stockly.exception.BusinessException;
@@ -11,7 +12,6 @@ import com.stockly.mapper.OrderMapper;
 import com.stockly.model.Order;
 import com.stockly.model.Product;
 import com.stockly.model.Warehouse;
-import com.stockly.model.WarehouseProduct;
 import com.stockly.model.enums.InventoryLogAction;
 import com.stockly.repository.OrderRepository;
 import com.stockly.repository.ProductRepository;
@@ -20,12 +20,15 @@ import com.stockly.repository.WarehouseRepository;
 import com.stockly.service.command.InventoryLogCommandService;
 import com.stockly.service.command.OrderCommandService;
 import com.stockly.service.command.ReceiptCommandService;
+import com.stockly.service.command.StockMutationService;
 import com.stockly.service.command.WarehouseCommandService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -43,6 +46,9 @@ public class OrderProcessingService {
     private final OrderMapper orderMapper;
     private final ReceiptCommandService receiptCommandService;
     private final InventoryLogCommandService inventoryLoggingService;
+    private final StockMutationService stockMutationService;
+    private final ObjectProvider<StockReservationLedger> reservationLedger;
+    private final ObjectProvider<DemandForecastEngine> demandForecastEngine;
 
     public OrderDTO processOrder(OrderRequest request) {
         // 1. Validate warehouse
@@ -53,11 +59,13 @@ public class OrderProcessingService {
             throw new BusinessException("Warehouse is not active");
         }
 
-        // 2. Check product availability in warehouse
-        checkProductAvailability(sourceWarehouse, request.getItems());
+        // 2. Load products and stock rows once and check availability against them
+        OrderIntakeSnapshot snapshot = OrderIntakeSnapshot.load(
+                sourceWarehouse, request.getItems(), productRepository, warehouseProductRepository);
+        snapshot.checkAvailability(request.getItems());
 
         // 3. Create order
-        OrderDTO orderDTO = createOrderDTO(request, sourceWarehouse);
+        OrderDTO orderDTO = createOrderDTO(request, snapshot);
         if (request.getDestinationWarehouseId() != null) {
             Warehouse destinationWarehouse = warehouseRepository.findById(request.getDestinationWarehouseId())
                     .orElseThrow(() -> new ResourceNotFoundException("Destination Warehouse not found with id: " + request.getDestinationWarehouseId()));
@@ -66,10 +74,10 @@ public class OrderProcessingService {
             }
             orderDTO.setDestinationWarehouseId(destinationWarehouse.getId());
         }
-        Order order = orderCommandService.createOrder(orderDTO);
+        Order order = orderCommandService.createOrder(orderDTO, snapshot.getProducts());
 
         // 4. Update warehouse inventory
-        updateWarehouseInventory(sourceWarehouse, request.getItems(), order);
+        updateWarehouseInventory(snapshot, request.getItems(), order);
 
         // 5. Create receipt
         createReceiptForOrder(order.getId());
@@ -86,25 +94,8 @@ public class OrderProcessingService {
         }
     }
 
-    private void checkProductAvailability(Warehouse warehouse, List<OrderItemRequest> items) {
-        for (OrderItemRequest item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-            WarehouseProduct warehouseProduct = warehouseProductRepository
-                    .findByWarehouseAndProduct(warehouse, product)
-                    .orElseThrow(() -> new BusinessException(
-                            "Product " + product.getTitle() + " not available in warehouse " + warehouse.getName()));
-
-            if (warehouseProduct.getQuantity() < item.getQuantity()) {
-                throw new BusinessException("Insufficient stock for product: " + product.getTitle() +
-                        ". Available: " + warehouseProduct.getQuantity() +
-                        ", Requested: " + item.getQuantity());
-            }
-        }
-    }
-
-    private OrderDTO createOrderDTO(OrderRequest request, Warehouse warehouse) {
+    private OrderDTO createOrderDTO(OrderRequest request, OrderIntakeSnapshot snapshot) {
+        Warehouse warehouse = snapshot.getWarehouse();
         OrderDTO orderDTO = new OrderDTO();
         orderDTO.setBuyerId(request.getBuyerId());
         orderDTO.setSupplierId(warehouse.getCompany().getId());
@@ -113,8 +104,7 @@ public class OrderProcessingService {
 
         List<OrderItemDTO> itemDTOs = request.getItems().stream()
                 .map(item -> {
-                    Product product = productRepository.findById(item.getProductId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+                    Product product = snapshot.getProduct(item.getProductId());
 
                     OrderItemDTO itemDTO = new OrderItemDTO();
                     itemDTO.setProductId(product.getId());
@@ -129,18 +119,43 @@ public class OrderProcessingService {
         return orderDTO;
     }
 
-    private void updateWarehouseInventory(Warehouse warehouse, List<OrderItemRequest> items, Order order) {
+    private void updateWarehouseInventory(OrderIntakeSnapshot snapshot, List<OrderItemRequest> items, Order order) {
+        Warehouse warehouse = snapshot.getWarehouse();
+
+        Map<Long, Integer> deltas = new HashMap<>();
         for (OrderItemRequest item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            deltas.merge(item.getProductId(), -item.getQuantity(), Integer::sum);
+        }
 
-            WarehouseProduct warehouseProduct = warehouseProductRepository
-                    .findByWarehouseAndProduct(warehouse, product)
-                    .orElseThrow(() -> new BusinessException("Product not available in warehouse"));
+        // All lines are deducted in one conditional statement (or reserved in the ledger when enabled);
+        // any shortfall rolls the order back
+        StockReservationLedger ledger = reservationLedger.getIfAvailable();
+        StockMutationResult result = ledger != null
+                ? ledger.reserve(warehouse.getId(), deltas)
+                : stockMutationService.adjustQuantities(warehouse.getId(), deltas);
+        if (!result.isSuccessful()) {
+            String failedProducts = result.failedProductIds().stream()
+                    .map(productId -> snapshot.getProduct(productId).getTitle())
+                    .collect(Collectors.joining(", "));
+            throw new BusinessException("Insufficient stock for products: " + failedProducts);
+        }
 
-            int previousQuantity = warehouseProduct.getQuantity();
-            int newQuantity = previousQuantity - item.getQuantity();
+        Map<Long, Integer> orderedQuantities = new HashMap<>();
+        deltas.forEach((productId, delta) -> orderedQuantities.put(productId, -delta));
+        demandForecastEngine.ifAvailable(engine ->
+                engine.recordDemand(warehouse.getId(), orderedQuantities, order.getOrderDate()));
 
+        Map<Long, Integer> runningQuantities = new HashMap<>();
+        result.applied().forEach(line -> runningQuantities.put(line.productId(), line.previousQuantity()));
+
+        Map<String, Object> metadata = Map.of("orderNumber", order.getId());
+
+        for (OrderItemRequest item : items) {
+            Product product = snapshot.getProduct(item.getProductId());
+
+            int previousQuantity = runningQuantities.get(product.getId());
+            int newQuantity = previousQuantity - item.getQuantity();
+            runningQuantities.put(product.getId(), newQuantity);
 
             // Log inventory change
             inventoryLoggingService.logInventoryChange(
@@ -158,13 +173,7 @@ public class OrderProcessingService {
                     order.getSupplier().getManager().getId(),
                     order.getSupplier().getManager().getUsername(),
                     "Order fulfillment",
-                    Map.of("orderNumber", order.getId())
-            );
-
-            warehouseCommandService.assignProductToWarehouse(
-                    product.getId(),
-                    -item.getQuantity(),
-                    warehouse.getId()
+                    metadata
             );
         }
     }
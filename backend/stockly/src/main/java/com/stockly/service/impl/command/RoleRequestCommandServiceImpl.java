@@ -1,6 +1,7 @@
 package com.stockly.service.impl.command;
 
 import com.stockly.dto.RoleRequestDTO;
+import com.stockly.event.UserChangedEvent;
 import com.stockly.model.Role;
 import com.stockly.model.RoleEnum;
 import com.stockly.model.RoleRequest;
@@ -10,6 +11,7 @@ import com.stockly.repository.RoleRequestRepository;
 import com.stockly.repository.UserRepository;
 import com.stockly.service.command.RoleRequestCommandService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -18,6 +20,7 @@ public class RoleRequestCommandServiceImpl implements RoleRequestCommandService
     private final RoleRequestRepository roleRequestRepository;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public RoleRequestDTO createRoleRequest(RoleRequestDTO roleRequestDTO) {
@@ -60,8 +63,11 @@ public class RoleRequestCommandServiceImpl implements RoleRequestCommandService
             roleRequest.setApproved(true);
             User user = roleRequest.getUser();
             user.setRole(roleRequest.getRole());
+            // Tokens still carrying the previous role are revoked
+            user.setTokenVersion(user.getTokenVersion() + 1);
             userRepository.save(user);
             roleRequestRepository.save(roleRequest);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         }
     }
 }
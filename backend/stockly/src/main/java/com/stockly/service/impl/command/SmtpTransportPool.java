@@ -0,0 +1,66 @@
+package com.stockly.service.impl.command;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Keeps authenticated SMTP connections open between messages. {@link JavaMailSenderImpl#send} opens,
+ * authenticates and closes a connection for every call, which costs several round trips (and the
+ * STARTTLS handshake) per email; borrowing a pooled transport skips all of that after the first send.
+ * <p>
+ * Idle connections may be dropped by the server, so a borrowed transport is checked first and
+ * reconnected when needed. A transport that failed mid-send is discarded rather than returned.
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final LinkedBlockingDeque<Transport> idle = new LinkedBlockingDeque<>();
+
+    public SmtpTransportPool(JavaMailSenderImpl mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    public Transport borrow() throws MessagingException {
+        Transport transport = idle.pollFirst();
+        if (transport == null) {
+            transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        }
+        // For SMTP this issues a NOOP, so connections closed by the server are detected here
+        if (!transport.isConnected()) {
+            transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        }
+        return transport;
+    }
+
+    public void release(Transport transport) {
+        idle.offerFirst(transport);
+    }
+
+    public void discard(Transport transport) {
+        close(transport);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Transport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP transport", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.StockMutationResult;
+import com.stockly.model.WarehouseProduct;
+import com.stockly.model.enums.AvailabilityStatus;
+import com.stockly.service.command.StockMutationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Applies stock changes as single conditional UPDATE statements, so concurrent
+ * writers can never drive a row below zero or overwrite each other's changes.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockMutationServiceImpl implements StockMutationService {
+
+    // Locks the rows in product order first, since the join alone locks them in whatever order the
+    // scan finds them. Also records each change in stock_movements and keeps today's row in
+    // stock_snapshots at the latest quantity, both dated by the same clock.
+    // Filled in with the new quantity and the condition a row must meet to be changed, in terms of
+    // wp.quantity and the per-product value l.value
+    private static final String MUTATION_SQL_TEMPLATE = """
+        WITH locked AS (
+            SELECT wp.id, wp.quantity AS locked_quantity, d.value
+            FROM warehouse_products wp
+            JOIN unnest(CAST(? AS bigint[]), CAST(? AS integer[])) AS d(product_id, value) ON d.product_id = wp.product_id
+            WHERE wp.warehouse_id = ?
+            ORDER BY wp.product_id
+            FOR UPDATE OF wp
+        ), updated AS (
+            UPDATE warehouse_products wp
+            SET quantity = %1$s,
+                availability = CASE
+                    WHEN %1$s <= 0 THEN '%3$s'
+                    WHEN %1$s <= %4$d THEN '%5$s'
+                    ELSE '%6$s'
+                END,
+                updated_at = now()
+            FROM locked l
+            WHERE wp.id = l.id
+            AND %2$s
+            RETURNING wp.warehouse_id, wp.product_id, l.locked_quantity AS previous_quantity, wp.quantity AS new_quantity
+        ), movements AS (
+            INSERT INTO stock_movements (warehouse_id, product_id, delta, moved_at)
+            SELECT warehouse_id, product_id, new_quantity - previous_quantity, clock_timestamp()
+            FROM updated
+        ), snapshot AS (
+            INSERT INTO stock_snapshots (warehouse_id, product_id, snapshot_day, closing_quantity)
+            SELECT warehouse_id, product_id, CAST(clock_timestamp() AT TIME ZONE 'UTC' AS DATE), new_quantity
+            FROM updated
+            ON CONFLICT (warehouse_id, product_id, snapshot_day)
+            DO UPDATE SET closing_quantity = EXCLUDED.closing_quantity
+        )
+        SELECT product_id, previous_quantity, new_quantity FROM updated
+    """;
+
+    // l.value is the delta; rows that would drop below zero are left untouched
+    private static final String ADJUST_QUANTITIES_SQL = mutationSql("wp.quantity + l.value", "wp.quantity + l.value >= 0");
+
+    // l.value is the target; only rows below it are raised, so a stale read can never overshoot
+    private static final String RAISE_QUANTITIES_SQL = mutationSql("GREATEST(wp.quantity, l.value)", "wp.quantity < l.value");
+
+    private static String mutationSql(String newQuantity, String condition) {
+        return MUTATION_SQL_TEMPLATE.formatted(
+                newQuantity,
+                condition,
+                AvailabilityStatus.OUT_OF_STOCK.name(),
+                WarehouseProduct.LOW_STOCK_THRESHOLD,
+                AvailabilityStatus.LOW_IN_STOCK.name(),
+                AvailabilityStatus.IN_STOCK.name());
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public StockMutationResult adjustQuantity(Long warehouseId, Long productId, int delta) {
+        return adjustQuantities(warehouseId, Map.of(productId, delta));
+    }
+
+    @Override
+    @Transactional
+    public StockMutationResult adjustQuantities(Long warehouseId, Map<Long, Integer> deltasByProductId) {
+        return mutate(ADJUST_QUANTITIES_SQL, warehouseId, deltasByProductId);
+    }
+
+    @Override
+    @Transactional
+    public StockMutationResult raiseQuantities(Long warehouseId, Map<Long, Integer> targetsByProductId) {
+        return mutate(RAISE_QUANTITIES_SQL, warehouseId, targetsByProductId);
+    }
+
+    private StockMutationResult mutate(String sql, Long warehouseId, Map<Long, Integer> valuesByProductId) {
+        if (valuesByProductId.isEmpty()) {
+            return new StockMutationResult(List.of(), Set.of());
+        }
+
+        // Sorted so that concurrent batches lock rows in the same order
+        Map<Long, Integer> sorted = new TreeMap<>(valuesByProductId);
+        Long[] productIds = sorted.keySet().toArray(Long[]::new);
+        Integer[] values = sorted.values().toArray(Integer[]::new);
+
+        List<StockMutationResult.AppliedLine> applied = jdbcTemplate.query(
+                sql,
+                ps -> {
+                    Array productIdArray = ps.getConnection().createArrayOf("bigint", productIds);
+                    Array valueArray = ps.getConnection().createArrayOf("integer", values);
+                    ps.setArray(1, productIdArray);
+                    ps.setArray(2, valueArray);
+                    ps.setLong(3, warehouseId);
+                },
+                (rs, rowNum) -> new StockMutationResult.AppliedLine(
+                        rs.getLong("product_id"),
+                        rs.getInt("previous_quantity"),
+                        rs.getInt("new_quantity")
+                )
+        );
+
+        Set<Long> failed = new HashSet<>(sorted.keySet());
+        applied.forEach(line -> failed.remove(line.productId()));
+
+        return new StockMutationResult(new ArrayList<>(applied), failed);
+    }
+}
@@ -0,0 +1,529 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.StockMutationResult;
+import com.stockly.repository.WarehouseProductRepository;
+import com.stockly.service.command.StockMutationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Optional in-memory reservation layer for hot SKUs.
+ * <p>
+ * Available quantities per (warehouse, product) are kept in lock-striped slots, so order intake
+ * only contends on a stripe lock instead of a {@code warehouse_products} row. Every reservation is
+ * also written to {@code stock_ledger_journal} in the reserving transaction, and only reservations
+ * whose transaction committed are written behind, in periodic batches through
+ * {@link StockMutationService}. A flush deletes the journal rows it covers in the same transaction,
+ * so on startup the rows still in the journal are exactly the committed reservations that never
+ * reached {@code warehouse_products}, and they are applied before the ledger is used.
+ * <p>
+ * Deltas taken by a flush stay on their slot as in-flight until the flush transaction has finished, so
+ * a resync in between still counts them. Flushes run on a dedicated thread.
+ * <p>
+ * The ledger assumes it is the only writer of reservations: two instances would each hand out the
+ * same stock. It takes a PostgreSQL advisory lock at startup and refuses to start while another
+ * instance holds it, so enable it on a single instance only.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stockly.inventory.ledger.enabled", havingValue = "true")
+public class StockReservationLedger {
+
+    private static final long INSTANCE_LOCK_KEY = 0x53544F434B4C4447L;
+
+    private record StockKey(long warehouseId, long productId) {}
+
+    private record JournalEntry(long sequence, long productId) {}
+
+    private static final class Slot {
+        private int available;
+        // Reserved by transactions that have not finished yet
+        private int uncommitted;
+        private int pending;
+        private int inFlight;
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Concurrent so slots can be looked up and installed without the stripe lock; slot fields need the lock
+        private final Map<StockKey, Slot> slots = new ConcurrentHashMap<>();
+        private final List<JournalEntry> pendingEntries = new ArrayList<>();
+        private long maxSequence;
+    }
+
+    private final Stripe[] stripes;
+    private final AtomicLong sequence = new AtomicLong();
+    private final StockMutationService stockMutationService;
+    private final WarehouseProductRepository warehouseProductRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    // Held by flushes and consistency checks, so a check never sees deltas in flight
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService flusher;
+    private Connection instanceLockConnection;
+
+    public StockReservationLedger(@Value("${stockly.inventory.ledger.stripes:64}") int stripeCount,
+                                  @Value("${stockly.inventory.ledger.flush-interval-ms:500}") long flushIntervalMs,
+                                  StockMutationService stockMutationService,
+                                  WarehouseProductRepository warehouseProductRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager) {
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stockMutationService = stockMutationService;
+        this.warehouseProductRepository = warehouseProductRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() throws SQLException {
+        acquireInstanceLock();
+        recover();
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("stock-ledger-flush").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, SQLException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        }
+        if (instanceLockConnection != null) {
+            instanceLockConnection.close();
+        }
+    }
+
+    /**
+     * Reserves all deltas or none of them and journals the reservation. If called inside a transaction,
+     * the journal rows commit with it, and the reservation is released again when it rolls back.
+     */
+    public StockMutationResult reserve(Long warehouseId, Map<Long, Integer> deltasByProductId) {
+        Map<Long, Integer> deltas = new TreeMap<>(deltasByProductId);
+        deltas.keySet().forEach(productId -> loadSlot(new StockKey(warehouseId, productId)));
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        deltas.keySet().forEach(productId -> stripeIndexes.add(stripeIndex(new StockKey(warehouseId, productId))));
+
+        List<StockMutationResult.AppliedLine> applied = new ArrayList<>();
+        long reservationSequence;
+
+        // Stripes are always locked in ascending order to avoid deadlocks between multi-line orders
+        stripeIndexes.forEach(index -> stripes[index].lock.lock());
+        try {
+            TreeSet<Long> failed = new TreeSet<>();
+            for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+                Slot slot = slot(new StockKey(warehouseId, entry.getKey()));
+                if (slot.available + entry.getValue() < 0) {
+                    failed.add(entry.getKey());
+                }
+            }
+            if (!failed.isEmpty()) {
+                return new StockMutationResult(List.of(), failed);
+            }
+
+            reservationSequence = sequence.incrementAndGet();
+            for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+                Slot slot = slot(new StockKey(warehouseId, entry.getKey()));
+                int previous = slot.available;
+                slot.available += entry.getValue();
+                slot.uncommitted += entry.getValue();
+                applied.add(new StockMutationResult.AppliedLine(entry.getKey(), previous, slot.available));
+            }
+        } finally {
+            stripeIndexes.descendingSet().forEach(index -> stripes[index].lock.unlock());
+        }
+
+        try {
+            journal(reservationSequence, warehouseId, deltas);
+        } catch (RuntimeException e) {
+            complete(reservationSequence, warehouseId, deltas, false);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // An unknown outcome is treated as committed; at worst the stock is deducted without an order
+                    complete(reservationSequence, warehouseId, deltas, status != STATUS_ROLLED_BACK);
+                }
+            });
+        } else {
+            complete(reservationSequence, warehouseId, deltas, true);
+        }
+        return new StockMutationResult(applied, new TreeSet<>());
+    }
+
+    /**
+     * Re-reads the database quantity of a row changed outside the ledger, keeping reserved, unflushed
+     * and in-flight deltas. If a flush commits during the read, its deltas are counted twice until the
+     * next resync or consistency check, which errs on the side of refusing reservations.
+     * <p>
+     * Inside a transaction the read is deferred until it commits, so the ledger never picks up a
+     * quantity that is rolled back afterwards.
+     */
+    public void resync(Long warehouseId, Long productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resyncNow(warehouseId, productId);
+                }
+            });
+        } else {
+            resyncNow(warehouseId, productId);
+        }
+    }
+
+    private void resyncNow(Long warehouseId, Long productId) {
+        StockKey key = new StockKey(warehouseId, productId);
+        Stripe stripe = stripes[stripeIndex(key)];
+        stripe.lock.lock();
+        try {
+            Slot slot = stripe.slots.get(key);
+            if (slot != null) {
+                slot.available = warehouseProductRepository.findStock(productId, warehouseId)
+                        + slot.inFlight + slot.pending + slot.uncommitted;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } catch (RuntimeException e) {
+            log.error("Ledger flush failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        Map<Long, Map<Long, Integer>> deltasByWarehouse = new HashMap<>();
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        Map<Integer, List<JournalEntry>> entriesByStripe = new HashMap<>();
+
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            stripe.lock.lock();
+            try {
+                for (Map.Entry<StockKey, Slot> entry : stripe.slots.entrySet()) {
+                    Slot slot = entry.getValue();
+                    if (slot.pending != 0) {
+                        deltasByWarehouse
+                                .computeIfAbsent(entry.getKey().warehouseId(), id -> new HashMap<>())
+                                .merge(entry.getKey().productId(), slot.pending, Integer::sum);
+                        slot.inFlight += slot.pending;
+                        slot.pending = 0;
+                    }
+                }
+                if (!stripe.pendingEntries.isEmpty()) {
+                    entriesByStripe.put(i, new ArrayList<>(stripe.pendingEntries));
+                    stripe.pendingEntries.clear();
+                    checkpoints.put(i, stripe.maxSequence);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        if (deltasByWarehouse.isEmpty() && entriesByStripe.isEmpty()) {
+            return;
+        }
+
+        List<StockKey> rejected;
+        try {
+            rejected = transactionTemplate.execute(status -> {
+                List<StockKey> failedKeys = applyDeltas(deltasByWarehouse);
+                deleteJournalEntries(entriesByStripe.values().stream().flatMap(List::stream).toList());
+                saveCheckpoints(checkpoints);
+                return failedKeys;
+            });
+        } catch (RuntimeException e) {
+            log.error("Ledger flush failed, deltas will be retried", e);
+            forEachDelta(deltasByWarehouse, (slot, delta) -> {
+                slot.inFlight -= delta;
+                slot.pending += delta;
+            });
+            entriesByStripe.forEach((index, entries) -> {
+                Stripe stripe = stripes[index];
+                stripe.lock.lock();
+                try {
+                    stripe.pendingEntries.addAll(entries);
+                } finally {
+                    stripe.lock.unlock();
+                }
+            });
+            return;
+        }
+
+        forEachDelta(deltasByWarehouse, (slot, delta) -> slot.inFlight -= delta);
+        // Rows that could not absorb the delta were changed outside the ledger; trust the database
+        rejected.forEach(key -> {
+            log.warn("Ledger flush rejected for warehouse {} product {}, resyncing", key.warehouseId(), key.productId());
+            resyncNow(key.warehouseId(), key.productId());
+        });
+    }
+
+    /**
+     * Compares every cached slot with the database and returns a description of each mismatch.
+     * Mismatched slots are resynced from the database.
+     * <p>
+     * Quantities are read without holding stripe locks. Reservations move {@code available} together
+     * with {@code pending} or {@code uncommitted}, so the difference can be compared with a read taken a
+     * moment earlier; mismatches are confirmed with a second read under the lock before a slot is corrected.
+     */
+    @Scheduled(fixedDelayString = "${stockly.inventory.ledger.consistency-check-interval-ms:60000}")
+    public List<String> verifyAgainstDatabase() {
+        List<String> mismatches = new ArrayList<>();
+        flushLock.lock();
+        try {
+            for (Stripe stripe : stripes) {
+                Map<Long, List<Long>> productIdsByWarehouse = new HashMap<>();
+                stripe.lock.lock();
+                try {
+                    stripe.slots.keySet().forEach(key -> productIdsByWarehouse
+                            .computeIfAbsent(key.warehouseId(), id -> new ArrayList<>())
+                            .add(key.productId()));
+                } finally {
+                    stripe.lock.unlock();
+                }
+                if (productIdsByWarehouse.isEmpty()) {
+                    continue;
+                }
+
+                Map<StockKey, Integer> quantities = readQuantities(productIdsByWarehouse);
+
+                stripe.lock.lock();
+                try {
+                    for (Map.Entry<StockKey, Slot> entry : stripe.slots.entrySet()) {
+                        StockKey key = entry.getKey();
+                        Slot slot = entry.getValue();
+                        Integer quantity = quantities.get(key);
+                        if (quantity == null || quantity + slot.pending + slot.uncommitted == slot.available) {
+                            continue;
+                        }
+                        int expected = warehouseProductRepository.findStock(key.productId(), key.warehouseId())
+                                + slot.pending + slot.uncommitted;
+                        if (expected != slot.available) {
+                            mismatches.add("warehouse " + key.warehouseId() + " product " + key.productId()
+                                    + ": ledger " + slot.available + ", database " + expected);
+                            slot.available = expected;
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (!mismatches.isEmpty()) {
+            log.warn("Ledger consistency check found {} mismatches: {}", mismatches.size(), mismatches);
+        }
+        return mismatches;
+    }
+
+    // Applies committed reservations left in the journal by a previous run, before any new reservation
+    private void recover() {
+        Long highestCheckpoint = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(sequence), 0) FROM stock_ledger_checkpoints", Long.class);
+
+        Map<Long, Map<Long, Integer>> replay = new HashMap<>();
+        List<JournalEntry> entries = new ArrayList<>();
+        jdbcTemplate.query("SELECT sequence, warehouse_id, product_id, delta FROM stock_ledger_journal", rs -> {
+            entries.add(new JournalEntry(rs.getLong("sequence"), rs.getLong("product_id")));
+            replay.computeIfAbsent(rs.getLong("warehouse_id"), id -> new HashMap<>())
+                    .merge(rs.getLong("product_id"), rs.getInt("delta"), Integer::sum);
+        });
+
+        long highestSequence = entries.stream().mapToLong(JournalEntry::sequence).max().orElse(0);
+        sequence.set(Math.max(highestCheckpoint != null ? highestCheckpoint : 0, highestSequence));
+
+        if (!replay.isEmpty()) {
+            log.info("Replaying {} unflushed ledger reservation lines for {} warehouses", entries.size(), replay.size());
+            transactionTemplate.executeWithoutResult(status -> {
+                applyDeltas(replay).forEach(key -> log.warn("Ledger replay rejected for warehouse {} product {}",
+                        key.warehouseId(), key.productId()));
+                deleteJournalEntries(entries);
+            });
+        }
+    }
+
+    private void journal(long reservationSequence, Long warehouseId, Map<Long, Integer> deltas) {
+        Long[] productIds = deltas.keySet().toArray(Long[]::new);
+        Integer[] quantities = deltas.values().toArray(Integer[]::new);
+        jdbcTemplate.update("""
+            INSERT INTO stock_ledger_journal (sequence, warehouse_id, product_id, delta)
+            SELECT ?, ?, d.product_id, d.delta
+            FROM unnest(CAST(? AS bigint[]), CAST(? AS integer[])) AS d(product_id, delta)
+        """, ps -> {
+            ps.setLong(1, reservationSequence);
+            ps.setLong(2, warehouseId);
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", productIds));
+            ps.setArray(4, ps.getConnection().createArrayOf("integer", quantities));
+        });
+    }
+
+    // Moves a finished reservation out of uncommitted: into pending when committed, back to available otherwise
+    private void complete(long reservationSequence, Long warehouseId, Map<Long, Integer> deltas, boolean committed) {
+        deltas.forEach((productId, delta) -> {
+            StockKey key = new StockKey(warehouseId, productId);
+            Stripe stripe = stripes[stripeIndex(key)];
+            stripe.lock.lock();
+            try {
+                Slot slot = slot(key);
+                slot.uncommitted -= delta;
+                if (committed) {
+                    slot.pending += delta;
+                    stripe.pendingEntries.add(new JournalEntry(reservationSequence, productId));
+                    stripe.maxSequence = Math.max(stripe.maxSequence, reservationSequence);
+                } else {
+                    slot.available -= delta;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        });
+    }
+
+    private List<StockKey> applyDeltas(Map<Long, Map<Long, Integer>> deltasByWarehouse) {
+        List<StockKey> failedKeys = new ArrayList<>();
+        deltasByWarehouse.forEach((warehouseId, deltas) -> stockMutationService
+                .adjustQuantities(warehouseId, deltas)
+                .failedProductIds()
+                .forEach(productId -> failedKeys.add(new StockKey(warehouseId, productId))));
+        return failedKeys;
+    }
+
+    private void deleteJournalEntries(List<JournalEntry> entries) {
+        Long[] sequences = entries.stream().map(JournalEntry::sequence).toArray(Long[]::new);
+        Long[] productIds = entries.stream().map(JournalEntry::productId).toArray(Long[]::new);
+        jdbcTemplate.update("""
+            DELETE FROM stock_ledger_journal j
+            USING unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS e(sequence, product_id)
+            WHERE j.sequence = e.sequence AND j.product_id = e.product_id
+        """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", sequences));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds));
+        });
+    }
+
+    private Map<StockKey, Integer> readQuantities(Map<Long, List<Long>> productIdsByWarehouse) {
+        Map<StockKey, Integer> quantities = new HashMap<>();
+        productIdsByWarehouse.forEach((warehouseId, productIds) -> jdbcTemplate.query(
+                "SELECT product_id, quantity FROM warehouse_products WHERE warehouse_id = ? AND product_id = ANY(?)",
+                ps -> {
+                    ps.setLong(1, warehouseId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds.toArray(Long[]::new)));
+                },
+                rs -> {
+                    quantities.merge(new StockKey(warehouseId, rs.getLong("product_id")), rs.getInt("quantity"), Integer::sum);
+                }));
+        return quantities;
+    }
+
+    // The highest flushed sequence per stripe; kept so sequences keep increasing across restarts
+    private void saveCheckpoints(Map<Integer, Long> checkpoints) {
+        List<Object[]> rows = checkpoints.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                .toList();
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO stock_ledger_checkpoints (stripe, sequence) VALUES (?, ?)
+            ON CONFLICT (stripe) DO UPDATE SET sequence = GREATEST(stock_ledger_checkpoints.sequence, EXCLUDED.sequence)
+        """, rows);
+    }
+
+    private void forEachDelta(Map<Long, Map<Long, Integer>> deltasByWarehouse, ObjIntConsumer<Slot> action) {
+        deltasByWarehouse.forEach((warehouseId, deltas) -> deltas.forEach((productId, delta) -> {
+            StockKey key = new StockKey(warehouseId, productId);
+            Stripe stripe = stripes[stripeIndex(key)];
+            stripe.lock.lock();
+            try {
+                action.accept(slot(key), delta);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }));
+    }
+
+    // Fails startup rather than letting a second instance hand out the same stock
+    private void acquireInstanceLock() throws SQLException {
+        Connection connection = jdbcTemplate.getDataSource().getConnection();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + INSTANCE_LOCK_KEY + ")")) {
+            if (rs.next() && rs.getBoolean(1)) {
+                instanceLockConnection = connection;
+                return;
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+        throw new IllegalStateException("The stock reservation ledger is already enabled on another instance; "
+                + "it supports a single instance only");
+    }
+
+    // Reads the quantity of a new slot before taking the stripe lock, so other keys on the stripe never wait on the query
+    private void loadSlot(StockKey key) {
+        Map<StockKey, Slot> slots = stripes[stripeIndex(key)].slots;
+        if (slots.containsKey(key)) {
+            return;
+        }
+        int quantity = warehouseProductRepository.findStock(key.productId(), key.warehouseId());
+        slots.computeIfAbsent(key, k -> {
+            Slot slot = new Slot();
+            slot.available = quantity;
+            return slot;
+        });
+    }
+
+    // Callers must hold the stripe lock of the key; slots are loaded by reserve and never removed
+    private Slot slot(StockKey key) {
+        return stripes[stripeIndex(key)].slots.get(key);
+    }
+
+    // Must stay stable across restarts, since checkpoints are stored per stripe
+    private int stripeIndex(StockKey key) {
+        int hash = 31 * Long.hashCode(key.warehouseId()) + Long.hashCode(key.productId());
+        return Math.floorMod(hash, stripes.length);
+    }
+}
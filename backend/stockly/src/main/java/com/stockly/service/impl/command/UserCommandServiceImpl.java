@@ -2,6 +2,7 @@ package com.stockly.service.impl.command;
 
 import com.stockly.dto.RegisterUserDTO;
 import com.stockly.dto.UserDTO;
+import com.stockly.event.UserChangedEvent;
 import com.stockly.exception.ResourceNotFoundException;
 import com.stockly.mapper.UserMapper;
 import com.stockly.model.Role;
@@ -9,16 +10,20 @@ import com.stockly.model.RoleEnum;
 import com.stockly.model.User;
 import com.stockly.repository.RoleRepository;
 import com.stockly.repository.UserRepository;
+import com.stockly.service.PasswordHashingService;
 import com.stockly.service.command.EmailService;
 import com.stockly.service.command.UserCommandService;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,26 +31,35 @@ public class UserCommandServiceImpl implements UserCommandService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final EmailService emailService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public User createAdministrator(RegisterUserDTO input){
+    // Runs the blocking work that follows a password hash, off the hashing pool
+    private final Executor afterHashExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("administrator-signup-", 0).factory());
+
+    // Same flow as signup: the administrator is saved on its own virtual thread once the password hash is ready
+    public CompletableFuture<User> createAdministrator(RegisterUserDTO input){
         Optional<Role> optionalRole = roleRepository.findByName(RoleEnum.ADMIN);
 
         if(optionalRole.isEmpty()){
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
-        User user = new User(input.getUsername(), input.getEmail(), passwordEncoder.encode(input.getPassword()));
+        return passwordHashingService.encode(input.getPassword()).thenApplyAsync(encodedPassword -> {
+            User user = new User(input.getUsername(), input.getEmail(), encodedPassword);
 
-        user.setVerificationCode(generateVerificationCode());
-        user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(15));
-        user.setEnabled(true);
-        user.setRole(optionalRole.get());
+            user.setVerificationCode(generateVerificationCode());
+            user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(15));
+            user.setEnabled(true);
+            user.setRole(optionalRole.get());
 
-        sendVerificationEmail(user);
+            User savedUser = userRepository.save(user);
+            sendVerificationEmail(savedUser);
 
-        return userRepository.save(user);
+            return savedUser;
+        }, afterHashExecutor);
     }
 
     public UserDTO updateUser(Long id, UserDTO userDTO) {
@@ -56,7 +70,10 @@ public class UserCommandServiceImpl implements UserCommandService {
             user.setUsername(userDTO.getUsername());
         }
 
+        boolean tokensInvalidated = false;
+
         if (userDTO.getEmail() != null) {
+            tokensInvalidated = !userDTO.getEmail().equals(user.getEmail());
             user.setEmail(userDTO.getEmail());
         }
 
@@ -64,10 +81,17 @@ public class UserCommandServiceImpl implements UserCommandService {
             RoleEnum roleEnum = RoleEnum.valueOf(userDTO.getRole().toUpperCase());
             Role role = roleRepository.findByName(roleEnum)
                     .orElseThrow(() -> new IllegalArgumentException("Invalid role: " + userDTO.getRole()));
+            tokensInvalidated = tokensInvalidated || role.getName() != user.getRole().getName();
             user.setRole(role);
         }
 
+        // Access tokens carry the email and role, so existing ones are revoked when either changes
+        if (tokensInvalidated) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(updatedUser.getId()));
 
         return userMapper.toDTO(updatedUser);
     }
@@ -76,6 +100,7 @@ public class UserCommandServiceImpl implements UserCommandService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User with ID " + id + " not found."));
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 
     public void sendVerificationEmail(User user){
@@ -9,9 +9,11 @@ import com.stockly.model.*;
 import com.stockly.model.enums.InventoryLogAction;
 import com.stockly.repository.*;
 import com.stockly.service.command.InventoryLogCommandService;
+import com.stockly.service.command.StockMutationService;
 import com.stockly.service.command.WarehouseCommandService;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,6 +39,8 @@ public class WarehouseCommandServiceImpl implements WarehouseCommandService {
     @Autowired
     private ReceiptRepository receiptRepository;
     private final InventoryLogCommandService inventoryLogCommandService;
+    private final StockMutationService stockMutationService;
+    private final ObjectProvider<StockReservationLedger> reservationLedger;
 
     @Override
     public WarehouseDTO createWarehouse(WarehouseDTO warehouseDTO) {
@@ -125,16 +129,16 @@ public class WarehouseCommandServiceImpl implements WarehouseCommandService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
 
-        Optional<WarehouseProduct> optionalExisting = warehouseProductRepository.findByWarehouseAndProduct(warehouse, product);
+        // Conditional in-place update: either applies atomically or leaves the row untouched
+        if (stockMutationService.adjustQuantity(warehouseId, productId, quantity).isSuccessful()) {
+            reservationLedger.ifAvailable(ledger -> ledger.resync(warehouseId, productId));
+            return;
+        }
+
+        Optional<WarehouseProduct> optionalExisting = warehouseProductRepository.findByWarehouseIdAndProductId(warehouseId, productId);
 
         if (optionalExisting.isPresent()) {
-            WarehouseProduct existing = optionalExisting.get();
-            int newQuantity = existing.getQuantity() + quantity;
-            if (newQuantity < 0) {
-                throw new BusinessException("Cannot deduct more than available quantity");
-            }
-            existing.setQuantity(newQuantity);
-            warehouseProductRepository.save(existing);
+            throw new BusinessException("Cannot deduct more than available quantity");
         } else {
             if (quantity < 0) {
                 throw new BusinessException("Cannot deduct from non-existent inventory");
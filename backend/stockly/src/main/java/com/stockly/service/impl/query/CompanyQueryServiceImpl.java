@@ -1,8 +1,10 @@
 package com.stockly.service.impl.query;
 
 import com.stockly.dto.CompanyDTO;
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.exception.ResourceNotFoundException;
 import com.stockly.mapper.CompanyMapper;
+import com.stockly.mapper.KeysetCursorMapper;
 import com.stockly.model.Company;
 import com.stockly.repository.CompanyRepository;
 import com.stockly.service.query.CompanyQueryService;
@@ -13,6 +15,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +29,7 @@ public class CompanyQueryServiceImpl implements CompanyQueryService {
 
     private final CompanyRepository companyRepository;
     private final CompanyMapper companyMapper;
+    private final KeysetCursorMapper keysetCursorMapper;
 
     @Override
     public CompanyDTO getCompanyById(Long id) {
@@ -75,6 +80,26 @@ public class CompanyQueryServiceImpl implements CompanyQueryService {
     @Override
     public Page<CompanyDTO> getAllCompaniesWithPagination(PageRequest pageRequest,
                                                           String companyType, Long managerId, String searchTerm) {
+        Page<Company> companies = companyRepository.findAll(
+                buildSpecification(companyType, managerId, searchTerm), pageRequest);
+
+        return companies.map(companyMapper::toDto);
+    }
+
+    @Override
+    public CursorPageDTO<CompanyDTO> getAllCompaniesWithCursor(String cursor, int pageSize, Sort sort, boolean includeTotal,
+                                                               String companyType, Long managerId, String searchTerm) {
+        Specification<Company> spec = buildSpecification(companyType, managerId, searchTerm);
+        Window<Company> companies = companyRepository.findBy(spec, query -> query
+                .sortBy(KeysetCursorMapper.withIdTiebreaker(sort))
+                .limit(pageSize)
+                .scroll(keysetCursorMapper.toScrollPosition(cursor)));
+
+        return keysetCursorMapper.toCursorPage(companies, companyMapper::toDto,
+                includeTotal ? companyRepository.count(spec) : null);
+    }
+
+    private Specification<Company> buildSpecification(String companyType, Long managerId, String searchTerm) {
         Specification<Company> spec = Specification.where(null);
 
         if (StringUtils.isNotEmpty(searchTerm)) {
@@ -88,10 +113,7 @@ public class CompanyQueryServiceImpl implements CompanyQueryService {
         if (managerId != null) {
             spec = spec.and(CompanySpecification.hasManagerId(managerId));
         }
-
-        Page<Company> companies = companyRepository.findAll(spec, pageRequest);
-
-        return companies.map(companyMapper::toDto);
+        return spec;
     }
 
 
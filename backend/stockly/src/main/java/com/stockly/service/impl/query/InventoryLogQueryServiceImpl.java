@@ -1,68 +1,287 @@
 package com.stockly.service.impl.query;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stockly.dto.CountedPage;
+import com.stockly.dto.CursorPageDTO;
+import com.stockly.mapper.KeysetCursorMapper;
 import com.stockly.model.InventoryLog;
-import com.stockly.repository.InventoryLogRepository;
+import com.stockly.service.impl.command.InventoryLogBuckets;
 import com.stockly.service.query.InventoryLogQueryService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * Queries inventory logs across the monthly buckets that overlap the requested time range.
+ * When the primary sort is by timestamp the buckets are disjoint and already in sort order, so they
+ * are read one after another until the page is full. Any other sort opens a sorted cursor per bucket
+ * and merges them, stopping once the requested range has been passed.
+ */
 @Service
-@RequiredArgsConstructor
 public class InventoryLogQueryServiceImpl implements InventoryLogQueryService {
 
-    private final InventoryLogRepository inventoryLogRepository;
+    private static final String TIMESTAMP = "timestamp";
+
+    private record ScrolledLog(InventoryLog log, ScrollPosition position) {}
+
+    private record MergeHead(InventoryLog log, Iterator<InventoryLog> rest) {}
+
     private final MongoTemplate mongoTemplate;
+    private final InventoryLogBuckets inventoryLogBuckets;
+    private final KeysetCursorMapper keysetCursorMapper;
+    private final int countCap;
+    private final int streamBatchSize;
+    private final boolean tokenSearch;
+
+    // Exact totals keyed by the buckets and normalized filter, so paging through one result set counts it once
+    private final Cache<String, Long> exactCounts;
+
+    public InventoryLogQueryServiceImpl(MongoTemplate mongoTemplate,
+                                        InventoryLogBuckets inventoryLogBuckets,
+                                        KeysetCursorMapper keysetCursorMapper,
+                                        @Value("${stockly.inventory-log.count.cap:10000}") int countCap,
+                                        @Value("${stockly.inventory-log.count.cache-ttl-seconds:30}") long cacheTtlSeconds,
+                                        @Value("${stockly.inventory-log.count.cache-size:1000}") long cacheSize,
+                                        @Value("${stockly.inventory-log.search.mode:tokens}") String searchMode,
+                                        @Value("${stockly.inventory-log.export.batch-size:1000}") int streamBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryLogBuckets = inventoryLogBuckets;
+        this.keysetCursorMapper = keysetCursorMapper;
+        this.countCap = countCap;
+        this.streamBatchSize = streamBatchSize;
+        this.tokenSearch = !"regex".equalsIgnoreCase(searchMode);
+        this.exactCounts = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
 
     @Override
     public Page<InventoryLog> getLogsByWarehouse(Long warehouseId, Pageable pageable) {
-        return inventoryLogRepository.findByWarehouseId(warehouseId, pageable);
+        return getInventoryLogsWithPagination(pageable, CountStrategy.EXACT,
+                warehouseId, null, null, null, null, null, null, null);
     }
 
     @Override
     public Page<InventoryLog> getLogsByProduct(Long productId, Pageable pageable) {
-        return inventoryLogRepository.findByProductId(productId, pageable);
+        return getInventoryLogsWithPagination(pageable, CountStrategy.EXACT,
+                null, productId, null, null, null, null, null, null);
     }
 
     @Override
     public Page<InventoryLog> getLogsByWarehouseAndProduct(Long warehouseId, Long productId, Pageable pageable) {
-        return inventoryLogRepository.findByWarehouseIdAndProductId(warehouseId, productId, pageable);
+        return getInventoryLogsWithPagination(pageable, CountStrategy.EXACT,
+                warehouseId, productId, null, null, null, null, null, null);
     }
 
     @Override
     public Page<InventoryLog> getLogsByTimeRange(Instant start, Instant end, Pageable pageable) {
-        return inventoryLogRepository.findByTimestampBetween(start, end, pageable);
+        return getInventoryLogsWithPagination(pageable, CountStrategy.EXACT,
+                null, null, null, null, null, start, end, null);
     }
 
     @Override
     public Page<InventoryLog> getLogsByActionType(String actionType, Pageable pageable) {
-        return inventoryLogRepository.findByActionType(actionType, pageable);
+        return getInventoryLogsWithPagination(pageable, CountStrategy.EXACT,
+                null, null, actionType, null, null, null, null, null);
     }
 
     @Override
     public List<InventoryLog> getRecentActivity(Long warehouseId, int limit) {
-        return inventoryLogRepository.findByWarehouseIdOrderByTimestampDesc(warehouseId, PageRequest.of(0, limit));
+        return getInventoryLogsWithPagination(PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, TIMESTAMP)),
+                CountStrategy.NONE, warehouseId, null, null, null, null, null, null, null).getContent();
     }
 
     @Override
     public InventoryLog getLastRestockForProduct(Long warehouseId, Long productId) {
-        return inventoryLogRepository.findFirstByWarehouseIdAndProductIdAndActionTypeOrderByTimestampDesc(
-                warehouseId, productId, "RESTOCK");
+        return getInventoryLogsWithPagination(PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, TIMESTAMP)),
+                CountStrategy.NONE, warehouseId, productId, "RESTOCK", null, null, null, null, null)
+                .stream()
+                .findFirst()
+                .orElse(null);
     }
 
     @Override
     public Page<InventoryLog> getInventoryLogsWithPagination(
             Pageable pageable,
+            CountStrategy countStrategy,
+            Long warehouseId,
+            Long productId,
+            String actionType,
+            String source,
+            Long userId,
+            Instant startDate,
+            Instant endDate,
+            String searchTerm) {
+
+        Query filter = buildQuery(warehouseId, productId, actionType, source, userId, startDate, endDate, searchTerm);
+        List<String> collections = collections(startDate, endDate, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findRange(filter, collections, pageable.getSort(), 0, Integer.MAX_VALUE, countStrategy));
+        }
+
+        // One extra row tells whether another page exists without counting
+        List<InventoryLog> rows = findRange(filter, collections, pageable.getSort(), pageable.getOffset(),
+                pageable.getPageSize() + 1, countStrategy);
+        boolean hasMore = rows.size() > pageable.getPageSize();
+        List<InventoryLog> content = hasMore ? rows.subList(0, pageable.getPageSize()) : rows;
+
+        long seen = pageable.getOffset() + content.size();
+        if (!hasMore && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            // Last page: the total is known exactly without a count
+            return new CountedPage<>(content, pageable, seen, countStrategy.name(), true);
+        }
+
+        return switch (countStrategy) {
+            case EXACT -> new CountedPage<>(content, pageable, exactCount(filter, collections), countStrategy.name(), true);
+            case ESTIMATED -> estimatedPage(content, pageable, filter, collections, seen);
+            case CAPPED -> cappedPage(content, pageable, filter, collections, seen, countStrategy);
+            case NONE -> new CountedPage<>(content, pageable, hasMore ? seen + 1 : seen, countStrategy.name(), false);
+        };
+    }
+
+    private List<InventoryLog> findRange(Query filter, List<String> collections, Sort sort, long offset, int limit,
+                                         CountStrategy countStrategy) {
+        if (bucketsInSortOrder(collections, sort)) {
+            List<InventoryLog> rows = new ArrayList<>();
+            long skip = offset;
+            for (int i = 0; i < collections.size() && rows.size() < limit; i++) {
+                String collectionName = collections.get(i);
+                // Whole buckets before the offset are skipped by their count rather than read
+                if (skip > 0 && i < collections.size() - 1) {
+                    long inBucket = countForSkip(filter, collectionName, skip, countStrategy);
+                    if (inBucket <= skip) {
+                        skip -= inBucket;
+                        continue;
+                    }
+                }
+                rows.addAll(mongoTemplate.find(Query.of(filter).with(sort).skip(skip).limit(limit - rows.size()),
+                        InventoryLog.class, collectionName));
+                skip = 0;
+            }
+            return rows;
+        }
+        return mergeRange(filter, collections, sort, offset, limit);
+    }
+
+    /**
+     * Counts a bucket only as far as the skip needs. The exact strategy reuses the cached full count;
+     * the others stop at {@code skip + 1}, which never walks more entries than skipping them would.
+     */
+    private long countForSkip(Query filter, String collectionName, long skip, CountStrategy countStrategy) {
+        if (countStrategy == CountStrategy.EXACT) {
+            return exactCount(filter, List.of(collectionName));
+        }
+        int bound = (int) Math.min(Integer.MAX_VALUE, skip + 1);
+        return mongoTemplate.count(Query.of(filter).limit(bound), InventoryLog.class, collectionName);
+    }
+
+    /**
+     * Merges one sorted cursor per bucket, so only a cursor batch per bucket and the page itself are held
+     * in memory. No bucket can contribute more than {@code offset + limit} rows, which bounds each cursor.
+     */
+    private List<InventoryLog> mergeRange(Query filter, List<String> collections, Sort sort, long offset, int limit) {
+        int perBucket = (int) Math.min(Integer.MAX_VALUE, offset + limit);
+        PriorityQueue<MergeHead> heads = new PriorityQueue<>(Math.max(1, collections.size()),
+                Comparator.comparing(MergeHead::log, comparator(sort)));
+        List<Stream<InventoryLog>> cursors = new ArrayList<>();
+        try {
+            for (String collectionName : collections) {
+                Stream<InventoryLog> cursor = mongoTemplate.stream(Query.of(filter).with(sort).limit(perBucket)
+                        .cursorBatchSize(Math.min(streamBatchSize, perBucket)), InventoryLog.class, collectionName);
+                cursors.add(cursor);
+                advance(heads, cursor.iterator());
+            }
+
+            List<InventoryLog> rows = new ArrayList<>();
+            long skipped = 0;
+            while (!heads.isEmpty() && rows.size() < limit) {
+                MergeHead head = heads.poll();
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    rows.add(head.log());
+                }
+                advance(heads, head.rest());
+            }
+            return rows;
+        } finally {
+            cursors.forEach(Stream::close);
+        }
+    }
+
+    private static void advance(PriorityQueue<MergeHead> heads, Iterator<InventoryLog> cursor) {
+        if (cursor.hasNext()) {
+            heads.add(new MergeHead(cursor.next(), cursor));
+        }
+    }
+
+    private long exactCount(Query filter, List<String> collections) {
+        return exactCounts.get(collections + filter.getQueryObject().toJson(), key -> collections.stream()
+                .mapToLong(collectionName -> mongoTemplate.count(filter, InventoryLog.class, collectionName))
+                .sum());
+    }
+
+    /**
+     * Unfiltered totals come from collection metadata. A filtered count cannot be estimated that way,
+     * so it falls back to the capped count.
+     */
+    private Page<InventoryLog> estimatedPage(List<InventoryLog> content, Pageable pageable, Query filter,
+                                             List<String> collections, long seen) {
+        if (!filter.getQueryObject().isEmpty()) {
+            return cappedPage(content, pageable, filter, collections, seen, CountStrategy.ESTIMATED);
+        }
+        long estimated = collections.stream().mapToLong(mongoTemplate::estimatedCount).sum();
+        long estimate = Math.max(seen + 1, estimated);
+        return new CountedPage<>(content, pageable, estimate, CountStrategy.ESTIMATED.name(), false);
+    }
+
+    private Page<InventoryLog> cappedPage(List<InventoryLog> content, Pageable pageable, Query filter,
+                                          List<String> collections, long seen, CountStrategy countStrategy) {
+        long cap = Math.max(countCap, seen + 1);
+        long counted = 0;
+        for (String collectionName : collections) {
+            long remaining = cap + 1 - counted;
+            if (remaining <= 0) {
+                break;
+            }
+            counted += mongoTemplate.count(Query.of(filter).limit((int) Math.min(Integer.MAX_VALUE, remaining)),
+                    InventoryLog.class, collectionName);
+        }
+        boolean exact = counted <= cap;
+        return new CountedPage<>(content, pageable, Math.min(counted, cap), countStrategy.name(), exact);
+    }
+
+    @Override
+    public CursorPageDTO<InventoryLog> getInventoryLogsWithCursor(
+            String cursor,
+            int pageSize,
+            Sort sort,
+            boolean includeTotal,
             Long warehouseId,
             Long productId,
             String actionType,
@@ -72,7 +291,117 @@ public class InventoryLogQueryServiceImpl implements InventoryLogQueryService {
             Instant endDate,
             String searchTerm) {
 
-        Query query = new Query().with(pageable);
+        Query filter = buildQuery(warehouseId, productId, actionType, source, userId, startDate, endDate, searchTerm);
+        Sort keysetSort = KeysetCursorMapper.withIdTiebreaker(sort);
+        List<String> collections = collections(startDate, endDate, keysetSort);
+        KeysetScrollPosition position = keysetCursorMapper.toScrollPosition(cursor);
+        Long total = includeTotal
+                ? collections.stream().mapToLong(name -> mongoTemplate.count(filter, InventoryLog.class, name)).sum()
+                : null;
+
+        // The keyset position is value based, so the same cursor continues the scroll in every bucket
+        boolean inOrder = bucketsInSortOrder(collections, keysetSort);
+        List<ScrolledLog> rows = new ArrayList<>();
+        boolean hasNext = false;
+        for (String collectionName : collections) {
+            if (inOrder && rows.size() >= pageSize) {
+                hasNext = hasNext || mongoTemplate.exists(filter, InventoryLog.class, collectionName);
+                if (hasNext) {
+                    break;
+                }
+                continue;
+            }
+
+            Window<InventoryLog> window = mongoTemplate.scroll(Query.of(filter)
+                    .with(keysetSort)
+                    .limit(inOrder ? pageSize - rows.size() : pageSize)
+                    .with(position), InventoryLog.class, collectionName);
+            for (int i = 0; i < window.size(); i++) {
+                rows.add(new ScrolledLog(window.getContent().get(i), window.positionAt(i)));
+            }
+            hasNext = hasNext || window.hasNext();
+        }
+
+        if (!inOrder) {
+            rows.sort(Comparator.comparing(ScrolledLog::log, comparator(keysetSort)));
+        }
+        hasNext = hasNext || rows.size() > pageSize;
+        List<ScrolledLog> page = rows.subList(0, Math.min(pageSize, rows.size()));
+
+        Window<InventoryLog> logs = Window.from(page.stream().map(ScrolledLog::log).toList(),
+                index -> page.get(index).position(), hasNext);
+        return keysetCursorMapper.toCursorPage(logs, Function.identity(), total);
+    }
+
+    /**
+     * Streams matching logs newest first, one bucket cursor at a time, so the caller never holds more
+     * than a cursor batch in memory. The caller must close the stream.
+     */
+    @Override
+    public Stream<InventoryLog> streamInventoryLogs(
+            Long warehouseId,
+            Long productId,
+            String actionType,
+            String source,
+            Long userId,
+            Instant startDate,
+            Instant endDate,
+            String searchTerm) {
+
+        Query filter = buildQuery(warehouseId, productId, actionType, source, userId, startDate, endDate, searchTerm);
+        Sort sort = Sort.by(Sort.Direction.DESC, TIMESTAMP);
+        return collections(startDate, endDate, sort).stream()
+                .flatMap(collectionName -> mongoTemplate.stream(Query.of(filter).with(sort).cursorBatchSize(streamBatchSize),
+                        InventoryLog.class, collectionName));
+    }
+
+    private List<String> collections(Instant startDate, Instant endDate, Sort sort) {
+        Sort.Order timestampOrder = sort.getOrderFor(TIMESTAMP);
+        Sort.Direction direction = timestampOrder != null ? timestampOrder.getDirection() : Sort.Direction.DESC;
+        return inventoryLogBuckets.collectionsFor(startDate, endDate, direction);
+    }
+
+    /**
+     * Monthly buckets hold disjoint time ranges, so reading them in month order already yields the
+     * sort order when it starts with the timestamp. The legacy collection spans every month and
+     * breaks that, except when no order is requested at all.
+     */
+    private static boolean bucketsInSortOrder(List<String> collections, Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        return TIMESTAMP.equals(sort.iterator().next().getProperty())
+                && !collections.contains(InventoryLogBuckets.LEGACY_COLLECTION);
+    }
+
+    // Mirrors MongoDB ordering for the merge: nulls sort first ascending and last descending
+    private static Comparator<InventoryLog> comparator(Sort sort) {
+        Comparator<InventoryLog> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<InventoryLog> byProperty = Comparator.comparing(
+                    inventoryLog -> sortValue(inventoryLog, order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> sortValue(InventoryLog inventoryLog, String property) {
+        return (Comparable<Object>) PropertyAccessorFactory.forBeanPropertyAccess(inventoryLog).getPropertyValue(property);
+    }
+
+    private Query buildQuery(
+            Long warehouseId,
+            Long productId,
+            String actionType,
+            String source,
+            Long userId,
+            Instant startDate,
+            Instant endDate,
+            String searchTerm) {
+
+        Query query = new Query();
 
         List<Criteria> criteriaList = new ArrayList<>();
 
@@ -104,25 +433,43 @@ public class InventoryLogQueryServiceImpl implements InventoryLogQueryService {
             criteriaList.add(Criteria.where("timestamp").lte(endDate));
         }
 
-        if (searchTerm != null && !searchTerm.isEmpty()) {
-            String regex = ".*" + searchTerm + ".*";
-            criteriaList.add(new Criteria().orOperator(
-                    Criteria.where("productSku").regex(regex, "i"),
-                    Criteria.where("productTitle").regex(regex, "i"),
-                    Criteria.where("warehouseName").regex(regex, "i"),
-                    Criteria.where("userName").regex(regex, "i"),
-                    Criteria.where("notes").regex(regex, "i")
-            ));
+        if (searchTerm != null && !searchTerm.isBlank()) {
+            criteriaList.add(tokenSearch ? searchTokenCriteria(searchTerm) : searchRegexCriteria(searchTerm));
         }
 
         if (!criteriaList.isEmpty()) {
             query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
         }
+        return query;
+    }
+
+    /**
+     * Matches logs whose searchable fields contain a word starting with each word of the term (notes
+     * only match whole words), using the multikey index on {@code searchTokens}. A term made only of single characters
+     * falls back to an anchored prefix regex on its first character, which can still use the index.
+     */
+    private Criteria searchTokenCriteria(String searchTerm) {
+        List<String> tokens = InventoryLog.toSearchTokens(searchTerm);
+        if (!tokens.isEmpty()) {
+            return Criteria.where("searchTokens").all(tokens);
+        }
+        String prefix = searchTerm.strip().toLowerCase(Locale.ROOT).replaceFirst("[^\\p{L}\\p{N}].*", "");
+        if (prefix.isEmpty()) {
+            // Punctuation-only terms have no tokens to look up
+            return searchRegexCriteria(searchTerm);
+        }
+        return Criteria.where("searchTokens").regex("^" + Pattern.quote(prefix));
+    }
 
-        return PageableExecutionUtils.getPage(
-                mongoTemplate.find(query, InventoryLog.class),
-                pageable,
-                () -> mongoTemplate.count(query.skip(0).limit(0), InventoryLog.class)
+    // Substring match across the searchable fields; user input is quoted so it never acts as a pattern
+    private Criteria searchRegexCriteria(String searchTerm) {
+        String regex = Pattern.quote(searchTerm);
+        return new Criteria().orOperator(
+                Criteria.where("productSku").regex(regex, "i"),
+                Criteria.where("productTitle").regex(regex, "i"),
+                Criteria.where("warehouseName").regex(regex, "i"),
+                Criteria.where("userName").regex(regex, "i"),
+                Criteria.where("notes").regex(regex, "i")
         );
     }
-}
\ No newline at end of file
+}
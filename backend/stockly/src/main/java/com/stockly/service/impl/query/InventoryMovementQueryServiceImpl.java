@@ -0,0 +1,55 @@
+package com.stockly.service.impl.query;
+
+import com.stockly.dto.InventoryMovementPointDTO;
+import com.stockly.exception.BusinessException;
+import com.stockly.model.InventoryMovementRollup;
+import com.stockly.model.enums.MovementGranularity;
+import com.stockly.service.query.InventoryMovementQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryMovementQueryServiceImpl implements InventoryMovementQueryService {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Returns one point per bucket and action type between start (inclusive) and end (exclusive),
+     * summed over all products and warehouses that match the optional filters.
+     */
+    @Override
+    public List<InventoryMovementPointDTO> getMovements(MovementGranularity granularity, Long warehouseId, Long productId,
+                                                        Instant start, Instant end) {
+        if (!start.isBefore(end)) {
+            throw new BusinessException("Start must be before end");
+        }
+
+        Criteria criteria = Criteria.where("granularity").is(granularity.name())
+                .and("bucketStart").gte(granularity.truncate(start)).lt(end);
+        if (warehouseId != null) {
+            criteria = criteria.and("warehouseId").is(warehouseId);
+        }
+        if (productId != null) {
+            criteria = criteria.and("productId").is(productId);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group("bucketStart", "actionType")
+                        .sum("quantityChange").as("quantityChange")
+                        .sum("movements").as("movements"),
+                Aggregation.project("bucketStart", "actionType", "quantityChange", "movements").andExclude("_id"),
+                Aggregation.sort(Sort.by("bucketStart", "actionType")));
+
+        return mongoTemplate.aggregate(aggregation, InventoryMovementRollup.class, InventoryMovementPointDTO.class)
+                .getMappedResults();
+    }
+}
@@ -1,35 +1,183 @@
 package com.stockly.service.impl.query;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stockly.dto.IncrementalOrderExportDTO;
+import com.stockly.dto.OrderExportChangeDTO;
 import com.stockly.dto.OrderExportDTO;
+import com.stockly.exception.BusinessException;
+import com.stockly.projection.OrderExportProjection;
 import com.stockly.repository.OrderRepository;
 import com.stockly.repository.WarehouseProductRepository;
 import org.springframework.transaction.annotation.Transactional;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 public class OrderExportService {
+    private static final String CSV_HEADER = "productId,warehouseId,orderDate,quantity,currentStock,stockAtOrder";
+
     private final OrderRepository orderRepository;
     private final StockCalculationService stockCalculationService;
+    private final ObjectMapper objectMapper;
+    private final Duration safetyLag;
+
+    public OrderExportService(OrderRepository orderRepository,
+                              StockCalculationService stockCalculationService,
+                              ObjectMapper objectMapper,
+                              @Value("${stockly.order-export.safety-lag-seconds:300}") long safetyLagSeconds) {
+        this.orderRepository = orderRepository;
+        this.stockCalculationService = stockCalculationService;
+        this.objectMapper = objectMapper;
+        this.safetyLag = Duration.ofSeconds(safetyLagSeconds);
+    }
+
+    public enum ExportFormat {
+        NDJSON,
+        CSV;
+
+        public static ExportFormat from(String format) {
+            for (ExportFormat exportFormat : values()) {
+                if (exportFormat.name().equalsIgnoreCase(format)) {
+                    return exportFormat;
+                }
+            }
+            throw new BusinessException("Unsupported export format: " + format + " (expected ndjson or csv)");
+        }
+    }
 
     public List<OrderExportDTO> exportOrders(Instant startDate) {
         return orderRepository.findOrdersForExport(startDate).stream()
-                .map(proj -> new OrderExportDTO(
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes the export row by row straight from a database cursor, so memory use does not
+     * depend on the size of the date range. The caller owns (and closes) the output stream.
+     */
+    @Transactional(readOnly = true)
+    public void streamOrders(Instant startDate, ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        ObjectWriter rowWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<OrderExportProjection> rows = orderRepository.streamOrdersForExport(startDate)) {
+            rows.forEach(proj -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writeCsvRow(writer, proj);
+                    } else {
+                        rowWriter.writeValue(writer, toDto(proj));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Returns up to {@code limit} order lines changed or removed after the given watermark, together with
+     * the watermark to resume from. A null watermark starts from the beginning of the order history.
+     * <p>
+     * updated_at is taken from the application clock before the transaction commits, so a slow transaction
+     * can commit rows behind a watermark that was already handed out. Changes younger than the safety lag
+     * are therefore left for a later call.
+     */
+    @Transactional(readOnly = true)
+    public IncrementalOrderExportDTO exportOrderChanges(String watermark, int limit) {
+        Instant since = Instant.EPOCH;
+        long lastOrderItemId = 0;
+
+        if (watermark != null && !watermark.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8).split("\\|");
+                since = Instant.parse(parts[0]);
+                lastOrderItemId = Long.parseLong(parts[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new BusinessException("Invalid export watermark");
+            }
+        }
+
+        List<OrderExportChangeDTO> lines = orderRepository.findOrderChangesForExport(since, lastOrderItemId, Instant.now().minus(safetyLag), limit).stream()
+                .map(proj -> new OrderExportChangeDTO(
+                        proj.getOrderId(),
+                        proj.getOrderItemId(),
+                        proj.getStatus(),
+                        proj.getUpdatedAt(),
                         proj.getProductId(),
                         proj.getWarehouseId(),
                         proj.getOrderDate(),
                         proj.getQuantity(),
-                        proj.getCurrentStock()
+                        proj.getCurrentStock(),
+                        proj.getStockAtOrder(),
+                        Boolean.TRUE.equals(proj.getDeleted())
                 ))
                 .collect(Collectors.toList());
+
+        String nextWatermark = watermark;
+        if (!lines.isEmpty()) {
+            OrderExportChangeDTO last = lines.get(lines.size() - 1);
+            nextWatermark = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.updatedAt() + "|" + last.orderItemId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new IncrementalOrderExportDTO(lines, nextWatermark, lines.size() == limit);
+    }
+
+    private void writeCsvRow(Writer writer, OrderExportProjection proj) throws IOException {
+        writer.write(String.valueOf(proj.getProductId()));
+        writer.write(',');
+        writer.write(String.valueOf(proj.getWarehouseId()));
+        writer.write(',');
+        writer.write(String.valueOf(proj.getOrderDate()));
+        writer.write(',');
+        writer.write(String.valueOf(proj.getQuantity()));
+        writer.write(',');
+        writer.write(String.valueOf(proj.getCurrentStock()));
+        writer.write(',');
+        writer.write(String.valueOf(proj.getStockAtOrder()));
+        writer.write('\n');
+    }
+
+    private OrderExportDTO toDto(OrderExportProjection proj) {
+        return new OrderExportDTO(
+                proj.getProductId(),
+                proj.getWarehouseId(),
+                proj.getOrderDate(),
+                proj.getQuantity(),
+                proj.getCurrentStock(),
+                proj.getStockAtOrder()
+        );
     }
 }
@@ -1,7 +1,9 @@
 package com.stockly.service.impl.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.OrderDTO;
 import com.stockly.exception.ResourceNotFoundException;
+import com.stockly.mapper.KeysetCursorMapper;
 import com.stockly.mapper.OrderMapper;
 import com.stockly.model.Order;
 import com.stockly.model.enums.OrderStatus;
@@ -15,6 +17,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
@@ -30,6 +34,7 @@ public class OrderQueryServiceImpl implements OrderQueryService {
 
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
+    private final KeysetCursorMapper keysetCursorMapper;
 
     @Override
     @Transactional
@@ -124,14 +129,37 @@ public class OrderQueryServiceImpl implements OrderQueryService {
             Long destinationWarehouseId,
             String searchTerm
     ) {
+        Page<Order> orders = orderRepository.findAll(buildSpecification(managerId, searchTerm), pageable);
+
+        return orders.map(orderMapper::toDto);
+    }
+
+    @Override
+    public CursorPageDTO<OrderDTO> getAllOrdersWithCursor(
+            String cursor,
+            int pageSize,
+            Sort sort,
+            boolean includeTotal,
+            Long managerId,
+            String searchTerm
+    ) {
+        Specification<Order> spec = buildSpecification(managerId, searchTerm);
+        Window<Order> orders = orderRepository.findBy(spec, query -> query
+                .sortBy(KeysetCursorMapper.withIdTiebreaker(sort))
+                .limit(pageSize)
+                .scroll(keysetCursorMapper.toScrollPosition(cursor)));
+
+        return keysetCursorMapper.toCursorPage(orders, orderMapper::toDto,
+                includeTotal ? orderRepository.count(spec) : null);
+    }
+
+    private Specification<Order> buildSpecification(Long managerId, String searchTerm) {
         Specification<Order> spec = OrderSpecification.unifiedSearch(searchTerm);
 
         if (managerId != null) {
             spec = spec.and(OrderSpecification.byManagerId(managerId));
         }
-        Page<Order> orders = orderRepository.findAll(spec, pageable);
-
-        return orders.map(orderMapper::toDto);
+        return spec;
     }
 
     @Override
@@ -1,33 +1,97 @@
 package com.stockly.service.impl.query;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.stockly.model.PredictionResult;
 import com.stockly.service.query.PredictionQueryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+/**
+ * Reads ML predictions from the monthly {@code predictions_yyyyMM} collections through a bounded
+ * read-through cache. Predictions only change when the ML job writes a new run, so the cache for
+ * a month is dropped as soon as a different {@code prediction_run_id} / {@code data_hash} shows up.
+ * <p>
+ * The ML job and the in-process forecast engine write to the same collections, so every query only
+ * reads documents whose {@code metadata.source} is the configured prediction source.
+ * <p>
+ * The ML job adds a new document for a (warehouse, product) pair whenever its data changes, so a month
+ * can hold several runs for the same pair; lookups always return the most recent one.
+ */
 @Service
+@Slf4j
 public class PredictionQueryServiceImpl implements PredictionQueryService {
 
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
     private static final String COLLECTION_PREFIX = "predictions_";
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "metadata.created_at");
+
+    private record ProductKey(String month, Long warehouseId, Long productId) {}
+
+    private record WarehouseKey(String month, Long warehouseId) {}
 
     private final MongoTemplate mongoTemplate;
+    private final Cache<ProductKey, Optional<PredictionResult>> productCache;
+    private final Cache<WarehouseKey, List<PredictionResult>> warehouseCache;
+    private final Map<String, String> runVersions = new ConcurrentHashMap<>();
+    private final Timer lookupTimer;
+    private final String source;
 
-    public PredictionQueryServiceImpl(MongoTemplate mongoTemplate) {
+    public PredictionQueryServiceImpl(MongoTemplate mongoTemplate,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${stockly.predictions.cache.maximum-size:100000}") long maximumSize,
+                                      @Value("${stockly.predictions.cache.expire-after-write-minutes:60}") long expireAfterWriteMinutes,
+                                      @Value("${stockly.predictions.source:ml-stockly}") String source) {
         this.mongoTemplate = mongoTemplate;
+        this.source = source;
+        this.productCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+        this.warehouseCache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maximumSize / 100))
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, productCache, "predictionsByWarehouseProduct");
+        CaffeineCacheMetrics.monitor(meterRegistry, warehouseCache, "predictionsByWarehouse");
+        this.lookupTimer = Timer.builder("stockly.predictions.lookup")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
 
     @Override
     public List<PredictionResult> getPredictions(String month) {
         validateMonthFormat(month);
         String collectionName = COLLECTION_PREFIX + month;
-        return mongoTemplate.findAll(PredictionResult.class, collectionName);
+        return mongoTemplate.find(new Query(fromSource()), PredictionResult.class, collectionName);
     }
 
     @Override
@@ -35,17 +99,62 @@ public class PredictionQueryServiceImpl implements PredictionQueryService {
         validateMonthFormat(month);
         String collectionName = COLLECTION_PREFIX + month;
 
-        Query query = new Query(Criteria.where("warehouse_id").is(warehouseId));
-        return mongoTemplate.find(query, PredictionResult.class, collectionName);
+        return lookupTimer.record(() -> warehouseCache.get(new WarehouseKey(month, warehouseId), key -> {
+            Query query = new Query(fromSource().and("warehouse_id").is(warehouseId)).with(NEWEST_FIRST);
+            return List.copyOf(latestPerPair(mongoTemplate.find(query, PredictionResult.class, collectionName)).values());
+        }));
     }
 
+    // Any warehouse's prediction for the product; lookups for a specific warehouse go through getPrediction
     @Override
     public PredictionResult getPredictionsByProductId(String month, Long productId) {
         validateMonthFormat(month);
         String collectionName = COLLECTION_PREFIX + month;
 
-        Query query = new Query(Criteria.where("product_id").is(productId));
-        return mongoTemplate.findOne(query, PredictionResult.class, collectionName);
+        Query query = new Query(fromSource().and("product_id").is(productId)).with(NEWEST_FIRST);
+        return lookupTimer.record(() -> mongoTemplate.findOne(query, PredictionResult.class, collectionName));
+    }
+
+    @Override
+    public PredictionResult getPrediction(String month, Long warehouseId, Long productId) {
+        return getPredictions(month, List.of(new PredictionKey(warehouseId, productId))).get(new PredictionKey(warehouseId, productId));
+    }
+
+    @Override
+    public Map<PredictionKey, PredictionResult> getPredictions(String month, Collection<PredictionKey> keys) {
+        validateMonthFormat(month);
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        String collectionName = COLLECTION_PREFIX + month;
+
+        Set<ProductKey> cacheKeys = keys.stream()
+                .map(key -> new ProductKey(month, key.warehouseId(), key.productId()))
+                .collect(Collectors.toSet());
+
+        // Only the pairs missing from the cache are fetched, still with a single query
+        Map<ProductKey, Optional<PredictionResult>> cached = lookupTimer.record(() -> productCache.getAll(cacheKeys, missing -> {
+            Set<Long> warehouseIds = missing.stream().map(ProductKey::warehouseId).collect(Collectors.toSet());
+            Set<Long> productIds = missing.stream().map(ProductKey::productId).collect(Collectors.toSet());
+            Query query = new Query(fromSource().and("warehouse_id").in(warehouseIds).and("product_id").in(productIds))
+                    .with(NEWEST_FIRST);
+
+            // The query matches the cross product of both id sets; only the requested pairs are kept
+            Map<ProductKey, Optional<PredictionResult>> loaded = new HashMap<>();
+            latestPerPair(mongoTemplate.find(query, PredictionResult.class, collectionName)).forEach((pair, prediction) -> {
+                ProductKey key = new ProductKey(month, pair.warehouseId(), pair.productId());
+                if (missing.contains(key)) {
+                    loaded.put(key, Optional.of(prediction));
+                }
+            });
+            missing.forEach(key -> loaded.putIfAbsent(key, Optional.empty()));
+            return loaded;
+        }));
+
+        Map<PredictionKey, PredictionResult> predictions = new HashMap<>();
+        cached.forEach((key, prediction) -> prediction.ifPresent(value ->
+                predictions.put(new PredictionKey(key.warehouseId(), key.productId()), value)));
+        return predictions;
     }
 
     @Override
@@ -54,6 +163,68 @@ public class PredictionQueryServiceImpl implements PredictionQueryService {
         return getPredictions(currentMonth);
     }
 
+    /**
+     * Drops the cached entries of every month whose latest prediction run changed since the last check.
+     * Months that rolled over need no special handling, since the month is part of every cache key.
+     */
+    @Scheduled(fixedDelayString = "${stockly.predictions.cache.refresh-check-interval-ms:60000}")
+    public void invalidateOnNewPredictionRun() {
+        Set<String> months = productCache.asMap().keySet().stream()
+                .map(ProductKey::month)
+                .collect(Collectors.toSet());
+        warehouseCache.asMap().keySet().forEach(key -> months.add(key.month()));
+        months.add(getCurrentMonth());
+
+        for (String month : months) {
+            String version = latestRunVersion(month);
+            String previous = runVersions.put(month, version);
+            if (previous != null && !Objects.equals(previous, version)) {
+                log.info("New prediction run detected for {}, invalidating cached predictions", month);
+                productCache.asMap().keySet().removeIf(key -> key.month().equals(month));
+                warehouseCache.asMap().keySet().removeIf(key -> key.month().equals(month));
+            }
+        }
+        runVersions.keySet().retainAll(months);
+    }
+
+    private String latestRunVersion(String month) {
+        Document latest = mongoTemplate.getCollection(COLLECTION_PREFIX + month)
+                .find(new Document("metadata.source", source))
+                .projection(new Document("metadata.prediction_run_id", 1).append("data_hash", 1))
+                .sort(new Document("metadata.created_at", -1))
+                .limit(1)
+                .first();
+        if (latest == null) {
+            return "";
+        }
+
+        Document metadata = latest.get("metadata", Document.class);
+        String runId = metadata != null ? metadata.getString("prediction_run_id") : null;
+        return runId + "/" + latest.getString("data_hash");
+    }
+
+    // A month can hold several runs of the same pair; the newest one wins
+    private static Map<PredictionKey, PredictionResult> latestPerPair(List<PredictionResult> predictions) {
+        Map<PredictionKey, PredictionResult> latest = new LinkedHashMap<>();
+        for (PredictionResult prediction : predictions) {
+            latest.merge(new PredictionKey(prediction.getWarehouseId(), prediction.getProductId()), prediction,
+                    PredictionQueryServiceImpl::newer);
+        }
+        return latest;
+    }
+
+    private static PredictionResult newer(PredictionResult current, PredictionResult candidate) {
+        Instant currentCreatedAt = current.getCreatedAt();
+        Instant candidateCreatedAt = candidate.getCreatedAt();
+        boolean candidateIsNewer = candidateCreatedAt != null
+                && (currentCreatedAt == null || candidateCreatedAt.isAfter(currentCreatedAt));
+        return candidateIsNewer ? candidate : current;
+    }
+
+    private Criteria fromSource() {
+        return Criteria.where("metadata.source").is(source);
+    }
+
     private void validateMonthFormat(String month) {
         try {
             YearMonth.parse(month, MONTH_FORMATTER);
@@ -66,4 +237,4 @@ public class PredictionQueryServiceImpl implements PredictionQueryService {
     public String getCurrentMonth() {
         return YearMonth.now().format(MONTH_FORMATTER);
     }
-}
\ No newline at end of file
+}
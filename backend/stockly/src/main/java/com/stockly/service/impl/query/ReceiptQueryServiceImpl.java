@@ -1,6 +1,8 @@
 package com.stockly.service.impl.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.ReceiptDTO;
+import com.stockly.mapper.KeysetCursorMapper;
 import com.stockly.mapper.ReceiptMapper;
 import com.stockly.model.Receipt;
 import com.stockly.repository.ReceiptRepository;
@@ -11,6 +13,8 @@ import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +28,7 @@ public class ReceiptQueryServiceImpl implements ReceiptQueryService {
 
     private final ReceiptRepository receiptRepository;
     private final ReceiptMapper receiptMapper;
+    private final KeysetCursorMapper keysetCursorMapper;
 
     @Override
     @Transactional(readOnly = true)
@@ -54,6 +59,56 @@ public class ReceiptQueryServiceImpl implements ReceiptQueryService {
             Long buyerManagerId,
             Long supplierManagerId,
             String searchTerm
+    ) {
+        Specification<Receipt> spec = buildSpecification(buyerCompanyId, supplierCompanyId, companyId,
+                sourceWarehouseId, destinationWarehouseId, warehouseId, managerId, buyerManagerId,
+                supplierManagerId, searchTerm);
+
+        Page<Receipt> receipts = receiptRepository.findAll(spec, pageRequest);
+        return receipts.map(receiptMapper::toReceiptDTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReceiptDTO> getReceiptsWithCursor(
+            String cursor,
+            int pageSize,
+            Sort sort,
+            boolean includeTotal,
+            Long buyerCompanyId,
+            Long supplierCompanyId,
+            Long companyId,
+            Long sourceWarehouseId,
+            Long destinationWarehouseId,
+            Long warehouseId,
+            Long managerId,
+            Long buyerManagerId,
+            Long supplierManagerId,
+            String searchTerm
+    ) {
+        Specification<Receipt> spec = buildSpecification(buyerCompanyId, supplierCompanyId, companyId,
+                sourceWarehouseId, destinationWarehouseId, warehouseId, managerId, buyerManagerId,
+                supplierManagerId, searchTerm);
+        Window<Receipt> receipts = receiptRepository.findBy(spec, query -> query
+                .sortBy(KeysetCursorMapper.withIdTiebreaker(sort))
+                .limit(pageSize)
+                .scroll(keysetCursorMapper.toScrollPosition(cursor)));
+
+        return keysetCursorMapper.toCursorPage(receipts, receiptMapper::toReceiptDTO,
+                includeTotal ? receiptRepository.count(spec) : null);
+    }
+
+    private Specification<Receipt> buildSpecification(
+            Long buyerCompanyId,
+            Long supplierCompanyId,
+            Long companyId,
+            Long sourceWarehouseId,
+            Long destinationWarehouseId,
+            Long warehouseId,
+            Long managerId,
+            Long buyerManagerId,
+            Long supplierManagerId,
+            String searchTerm
     ) {
         // Create a typed Specification<Receipt>
         Specification<Receipt> spec = Specification.where(null);
@@ -88,9 +143,7 @@ public class ReceiptQueryServiceImpl implements ReceiptQueryService {
         if (supplierManagerId != null) {
             spec = spec.and(ReceiptSpecification.bySupplierManagerId(supplierManagerId));
         }
-
-        Page<Receipt> receipts = receiptRepository.findAll(spec, pageRequest);
-        return receipts.map(receiptMapper::toReceiptDTO);
+        return spec;
     }
 
     @Override
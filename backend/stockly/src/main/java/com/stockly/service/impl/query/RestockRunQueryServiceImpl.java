@@ -0,0 +1,32 @@
+package com.stockly.service.impl.query;
+
+import com.stockly.dto.RestockRunDTO;
+import com.stockly.exception.ResourceNotFoundException;
+import com.stockly.mapper.RestockRunMapper;
+import com.stockly.repository.RestockRunRepository;
+import com.stockly.service.query.RestockRunQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class RestockRunQueryServiceImpl implements RestockRunQueryService {
+
+    private final RestockRunRepository restockRunRepository;
+    private final RestockRunMapper restockRunMapper;
+
+    @Override
+    public Page<RestockRunDTO> getRestockRuns(PageRequest pageRequest) {
+        return restockRunRepository.findAllByOrderByIdDesc(pageRequest)
+                .map(restockRunMapper::toDTO);
+    }
+
+    @Override
+    public RestockRunDTO getRestockRunById(Long id) {
+        return restockRunRepository.findById(id)
+                .map(restockRunMapper::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Restock run not found with id: " + id));
+    }
+}
@@ -0,0 +1,110 @@
+package com.stockly.service.impl.query;
+
+/**
+ * Running stock balance per (product, warehouse) pair, in an open-addressing table of primitive longs and
+ * ints. Both ids are packed into one long key, so a stock change costs neither a boxed key nor a boxed
+ * balance.
+ * <p>
+ * Not thread-safe.
+ */
+final class StockBalances {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] balances;
+    private boolean[] used;
+    private int size;
+
+    StockBalances(int expectedPairs) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedPairs * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    // Product and warehouse ids are SERIAL columns, so each fits into one half of the key
+    static long key(long productId, long warehouseId) {
+        return ((long) Math.toIntExact(productId) << 32) | (Math.toIntExact(warehouseId) & 0xFFFFFFFFL);
+    }
+
+    static long productId(long key) {
+        return key >>> 32;
+    }
+
+    static long warehouseId(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+
+    void put(long key, int balance) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            insert(slot, key, balance);
+        } else {
+            balances[slot] = balance;
+        }
+    }
+
+    /** Adds the change to the pair's balance, starting from zero for an unknown pair, and returns the new balance. */
+    int add(long key, int change) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            insert(slot, key, change);
+            return change;
+        }
+        return balances[slot] += change;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(int slot, long key, int balance) {
+        keys[slot] = key;
+        balances[slot] = balance;
+        used[slot] = true;
+        // Kept at most half full, so probe chains stay short
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    // The slot holding the key, or the free slot where it belongs
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldBalances = balances;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                balances[slot] = oldBalances[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        balances = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    // Spreads sequential ids over the whole table (MurmurHash3 finalizer)
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
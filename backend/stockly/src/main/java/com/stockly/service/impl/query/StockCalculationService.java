@@ -1,106 +1,99 @@
 package com.stockly.service.impl.query;
 
 import com.stockly.dto.WarehouseStockDTO;
+import com.stockly.projection.WarehouseStockProjection;
+import com.stockly.repository.StockSnapshotRepository;
 import com.stockly.repository.WarehouseProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.data.util.Pair;
 import com.stockly.projection.StockChangeProjection;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class StockCalculationService {
     private final WarehouseProductRepository warehouseProductRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
 
     // Method without startDate parameter - calculates complete history
+    @Transactional(readOnly = true)
     public List<WarehouseStockDTO> calculateStockHistory() {
-        return warehouseProductRepository.findAllStockChanges().stream()
-                .collect(Collectors.groupingBy(
-                        change -> Pair.of(change.getProductId(), change.getWarehouseId())
-                ))
-                .entrySet().stream()
-                .flatMap(entry -> {
-                    final Pair<Long, Long> key = entry.getKey();
-                    final List<StockChangeProjection> changes = entry.getValue();
-
-                    // Get initial stock from first warehouse entry
-                    int initialStock = warehouseProductRepository.findInitialStock(
-                            key.getFirst(),
-                            key.getSecond()
-                    );
-
-                    final AtomicInteger runningStock = new AtomicInteger(initialStock);
-
-                    return changes.stream()
-                            .sorted(Comparator.comparing(StockChangeProjection::getTimestamp))
-                            .map(change -> {
-                                int newStock = runningStock.addAndGet(change.getQuantityChange());
-                                return new WarehouseStockDTO(
-                                        key.getFirst(),
-                                        key.getSecond(),
-                                        change.getTimestamp(),
-                                        change.getQuantityChange(),
-                                        newStock,
-                                        change.getChangeType()
-                                );
-                            });
-                })
-                .collect(Collectors.toList());
+        List<WarehouseStockDTO> history = new ArrayList<>();
+        streamStockHistory(null, history::add);
+        return history;
     }
 
     // Method with startDate parameter - calculates history from specific date
+    @Transactional(readOnly = true)
     public List<WarehouseStockDTO> calculateStockHistory(Instant startDate) {
-        return warehouseProductRepository.findStockChanges(startDate).stream()
-                .collect(Collectors.groupingBy(
-                        change -> Pair.of(change.getProductId(), change.getWarehouseId())
-                ))
-                .entrySet().stream()
-                .flatMap(entry -> {
-                    final Pair<Long, Long> key = entry.getKey();
-                    final List<StockChangeProjection> changes = entry.getValue();
+        List<WarehouseStockDTO> history = new ArrayList<>();
+        streamStockHistory(startDate, history::add);
+        return history;
+    }
 
-                    // Get stock at the specific start date
-                    int initialStock = warehouseProductRepository.findStockAtTime(
-                            key.getFirst(),
-                            key.getSecond(),
-                            startDate
-                    );
+    /**
+     * Walks the time-ordered stock changes once, keeping only a running balance per
+     * (product, warehouse) pair, and hands every resulting stock level to the consumer.
+     * A null start date replays the complete history.
+     */
+    @Transactional(readOnly = true)
+    public void streamStockHistory(Instant startDate, Consumer<WarehouseStockDTO> consumer) {
+        List<WarehouseStockProjection> initialStocks = startDate != null
+                ? stockSnapshotRepository.findStocksAtTime(startDate)
+                : warehouseProductRepository.findInitialStocks();
 
-                    final AtomicInteger runningStock = new AtomicInteger(initialStock);
+        StockBalances balances = new StockBalances(initialStocks.size());
+        for (WarehouseStockProjection stock : initialStocks) {
+            balances.put(StockBalances.key(stock.getProductId(), stock.getWarehouseId()),
+                    stock.getCurrentStock() != null ? stock.getCurrentStock() : 0);
+        }
 
-                    return changes.stream()
-                            .sorted(Comparator.comparing(StockChangeProjection::getTimestamp))
-                            .map(change -> {
-                                int newStock = runningStock.addAndGet(change.getQuantityChange());
-                                return new WarehouseStockDTO(
-                                        key.getFirst(),
-                                        key.getSecond(),
-                                        change.getTimestamp(),
-                                        change.getQuantityChange(),
-                                        newStock,
-                                        change.getChangeType()
-                                );
-                            });
-                })
-                .collect(Collectors.toList());
-    }
+        try (Stream<StockChangeProjection> changes = startDate != null
+                ? warehouseProductRepository.findStockChanges(startDate)
+                : warehouseProductRepository.findAllStockChanges()) {
+            changes.forEach(change -> {
+                int balance = balances.add(StockBalances.key(change.getProductId(), change.getWarehouseId()),
+                        change.getQuantityChange());
 
-    public Map<Pair<Long, Long>, TreeMap<Instant, Integer>> getStockTimelines(Instant startDate) {
-        List<WarehouseStockDTO> stockHistory = calculateStockHistory(startDate);
+                consumer.accept(new WarehouseStockDTO(
+                        change.getProductId(),
+                        change.getWarehouseId(),
+                        change.getTimestamp(),
+                        change.getQuantityChange(),
+                        balance,
+                        change.getChangeType()
+                ));
+            });
+        }
+    }
 
-        Map<Pair<Long, Long>, TreeMap<Instant, Integer>> timelines = new HashMap<>();
+    /**
+     * Stock level over time per pair, keyed by the packed (product, warehouse) key; see
+     * {@link #productIdOf(long)} and {@link #warehouseIdOf(long)}.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, TreeMap<Instant, Integer>> getStockTimelines(Instant startDate) {
+        Map<Long, TreeMap<Instant, Integer>> timelines = new HashMap<>();
 
-        for (WarehouseStockDTO dto : stockHistory) {
-            Pair<Long, Long> key = Pair.of(dto.productId(), dto.warehouseId());
+        streamStockHistory(startDate, dto -> {
+            long key = StockBalances.key(dto.productId(), dto.warehouseId());
             timelines.computeIfAbsent(key, k -> new TreeMap<>())
                     .put(dto.timestamp(), dto.currentStock());
-        }
+        });
 
         return timelines;
     }
-}
\ No newline at end of file
+
+    public static long productIdOf(long timelineKey) {
+        return StockBalances.productId(timelineKey);
+    }
+
+    public static long warehouseIdOf(long timelineKey) {
+        return StockBalances.warehouseId(timelineKey);
+    }
+}
@@ -1,6 +1,7 @@
 package com.stockly.service.impl.query;
 
 import com.stockly.dto.UserDTO;
+import com.stockly.exception.ResourceNotFoundException;
 import com.stockly.mapper.UserMapper;
 import com.stockly.model.User;
 import com.stockly.repository.UserRepository;
@@ -47,4 +48,11 @@ public class UserQueryServiceImpl implements UserQueryService {
     public Long getUsersCount() {
         return userRepository.count();
     }
+
+    @Override
+    public UserDTO getUserByEmail(String email) {
+        return userRepository.findByEmail(email)
+                .map(userMapper::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("User with email " + email + " not found."));
+    }
 }
@@ -3,11 +3,9 @@ package com.stockly.service.impl.query;
 import com.stockly.dto.WarehouseProductDTO;
 import com.stockly.mapper.WarehouseProductMapper;
 import com.stockly.model.Company;
-import com.stockly.model.PredictionResult;
 import com.stockly.model.WarehouseProduct;
 import com.stockly.repository.PredictionResultRepository;
 import com.stockly.repository.WarehouseProductRepository;
-import com.stockly.service.query.PredictionQueryService;
 import com.stockly.service.query.WarehouseProductQueryService;
 import com.stockly.specification.CompanySpecification;
 import com.stockly.specification.WarehouseProductSpecification;
@@ -28,7 +26,6 @@ import java.util.stream.Collectors;
 public class WarehouseProductQueryServiceImpl implements WarehouseProductQueryService {
     private final WarehouseProductRepository warehouseProductRepository;
     private final WarehouseProductMapper warehouseProductMapper;
-    private final PredictionQueryService predictionQueryService;
 
     @Override
     public Page<WarehouseProductDTO> getAllWarehouseProductsWithPagination(PageRequest pageRequest, Long warehouseId, String searchTerm) {
@@ -53,34 +50,8 @@ public class WarehouseProductQueryServiceImpl implements WarehouseProductQuerySe
 
         Page<WarehouseProduct> warehouseProducts = warehouseProductRepository.findAll(spec, pageRequest);
 
-        return warehouseProducts.map(warehouseProductMapper::toDTO);
+        return new PageImpl<>(warehouseProductMapper.toDTOs(warehouseProducts.getContent()),
+                pageRequest, warehouseProducts.getTotalElements());
     }
 
-
-    @Override
-    public void orderAutomationWarehouseProducts(String month){
-        List<WarehouseProduct> productsToAutomate = warehouseProductRepository.findAll();
-
-        for (WarehouseProduct wp : productsToAutomate) {
-            if (!wp.isAutomatedRestock()) {
-                continue;
-            }
-
-            Long productId = wp.getProduct().getId();
-
-            PredictionResult prediction = predictionQueryService.getPredictionsByProductId(month, productId);
-
-            if (prediction == null || prediction.getRecommendation() == null) {
-                continue; // Skip if no prediction
-            }
-
-            int suggestedRestock = prediction.getRecommendationRestock();
-            int currentStock = wp.getQuantity();
-
-            if(currentStock < suggestedRestock){
-                wp.setQuantity(suggestedRestock);
-                warehouseProductRepository.save(wp);
-            }
-        }
-    }
 }
@@ -1,8 +1,10 @@
 package com.stockly.service.impl.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.ProductDTO;
 import com.stockly.dto.WarehouseDTO;
 import com.stockly.dto.WarehouseProductDTO;
+import com.stockly.mapper.KeysetCursorMapper;
 import com.stockly.mapper.ProductMapper;
 import com.stockly.mapper.WarehouseMapper;
 import com.stockly.mapper.WarehouseProductMapper;
@@ -17,6 +19,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +39,7 @@ public class WarehouseQueryServiceImpl implements WarehouseQueryService {
     private final WarehouseMapper warehouseMapper;
     private final WarehouseProductRepository warehouseProductRepository;
     private final WarehouseProductMapper warehouseProductMapper;
+    private final KeysetCursorMapper keysetCursorMapper;
 
     @Override
     public List<WarehouseDTO> getAllWarehouses() {
@@ -74,6 +79,29 @@ public class WarehouseQueryServiceImpl implements WarehouseQueryService {
 
     @Override
     public Page<WarehouseDTO> getAllWarehousesWithPagination(PageRequest pageRequest, Long companyId, Long managerId, Boolean isActive, String searchTerm) {
+        Page<Warehouse> warehouses = warehouseRepository.findAll(
+                buildSpecification(companyId, managerId, isActive, searchTerm), pageRequest);
+        List<WarehouseDTO> warehouseDTOs = warehouses.stream()
+                .map(warehouseMapper::toDto)
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(warehouseDTOs, pageRequest, warehouses.getTotalElements());
+    }
+
+    @Override
+    public CursorPageDTO<WarehouseDTO> getAllWarehousesWithCursor(String cursor, int pageSize, Sort sort, boolean includeTotal,
+                                                                  Long companyId, Long managerId, Boolean isActive, String searchTerm) {
+        Specification<Warehouse> spec = buildSpecification(companyId, managerId, isActive, searchTerm);
+        Window<Warehouse> warehouses = warehouseRepository.findBy(spec, query -> query
+                .sortBy(KeysetCursorMapper.withIdTiebreaker(sort))
+                .limit(pageSize)
+                .scroll(keysetCursorMapper.toScrollPosition(cursor)));
+
+        return keysetCursorMapper.toCursorPage(warehouses, warehouseMapper::toDto,
+                includeTotal ? warehouseRepository.count(spec) : null);
+    }
+
+    private Specification<Warehouse> buildSpecification(Long companyId, Long managerId, Boolean isActive, String searchTerm) {
         Specification<Warehouse> spec = WarehouseSpecification.unifiedSearch(searchTerm);
 
         if(isActive != null) {
@@ -88,12 +116,7 @@ public class WarehouseQueryServiceImpl implements WarehouseQueryService {
         if(companyId != null) {
             spec = spec.and(WarehouseSpecification.byCompanyId(companyId));
         }
-        Page<Warehouse> warehouses = warehouseRepository.findAll(spec, pageRequest);
-        List<WarehouseDTO> warehouseDTOs = warehouses.stream()
-                .map(warehouseMapper::toDto)
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(warehouseDTOs, pageRequest, warehouses.getTotalElements());
+        return spec;
     }
 
     @Override
@@ -102,9 +125,7 @@ public class WarehouseQueryServiceImpl implements WarehouseQueryService {
         List<WarehouseProduct> warehouseProducts = warehouseProductRepository.findByWarehouseId(warehouseId);
 
         // Map each warehouse product's product to ProductDTO using your existing mapper
-        return warehouseProducts.stream()
-                .map(warehouseProductMapper::toDTO)
-                .collect(Collectors.toList());
+        return warehouseProductMapper.toDTOs(warehouseProducts);
     }
 
     @Override
@@ -1,9 +1,11 @@
 package com.stockly.service.query;
 
 import com.stockly.dto.CompanyDTO;
+import com.stockly.dto.CursorPageDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -16,6 +18,8 @@ public interface CompanyQueryService {
     boolean companyExistsByName(String companyName);
     List<CompanyDTO> searchCompanies(String searchTerm);
     Page<CompanyDTO> getAllCompaniesWithPagination(PageRequest pageRequest, String companyType, Long managerId, String searchTerm);
+    CursorPageDTO<CompanyDTO> getAllCompaniesWithCursor(String cursor, int pageSize, Sort sort, boolean includeTotal,
+                                                        String companyType, Long managerId, String searchTerm);
     Long getCompanyCount();
     List<CompanyDTO> getCompaniesByManager(Long managerId);
     Page<CompanyDTO> getCompaniesWithFilters(String companyType, Long managerId, Pageable pageable);
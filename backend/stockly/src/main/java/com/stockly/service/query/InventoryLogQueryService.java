@@ -1,14 +1,25 @@
 package com.stockly.service.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.model.InventoryLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface InventoryLogQueryService {
+
+    enum CountStrategy {
+        EXACT,
+        ESTIMATED,
+        CAPPED,
+        NONE
+    }
+
     Page<InventoryLog> getLogsByWarehouse(Long warehouseId, Pageable pageable);
     Page<InventoryLog> getLogsByProduct(Long productId, Pageable pageable);
     Page<InventoryLog> getLogsByWarehouseAndProduct(Long warehouseId, Long productId, Pageable pageable);
@@ -18,6 +29,29 @@ public interface InventoryLogQueryService {
     InventoryLog getLastRestockForProduct(Long warehouseId, Long productId);
     Page<InventoryLog> getInventoryLogsWithPagination(
             Pageable pageable,
+            CountStrategy countStrategy,
+            Long warehouseId,
+            Long productId,
+            String actionType,
+            String source,
+            Long userId,
+            Instant startDate,
+            Instant endDate,
+            String searchTerm);
+    CursorPageDTO<InventoryLog> getInventoryLogsWithCursor(
+            String cursor,
+            int pageSize,
+            Sort sort,
+            boolean includeTotal,
+            Long warehouseId,
+            Long productId,
+            String actionType,
+            String source,
+            Long userId,
+            Instant startDate,
+            Instant endDate,
+            String searchTerm);
+    Stream<InventoryLog> streamInventoryLogs(
             Long warehouseId,
             Long productId,
             String actionType,
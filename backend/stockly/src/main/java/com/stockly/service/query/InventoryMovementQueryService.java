@@ -0,0 +1,12 @@
+package com.stockly.service.query;
+
+import com.stockly.dto.InventoryMovementPointDTO;
+import com.stockly.model.enums.MovementGranularity;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface InventoryMovementQueryService {
+    List<InventoryMovementPointDTO> getMovements(MovementGranularity granularity, Long warehouseId, Long productId,
+                                                 Instant start, Instant end);
+}
@@ -1,9 +1,11 @@
 package com.stockly.service.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.OrderDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.Date;
@@ -35,6 +37,15 @@ public interface OrderQueryService {
             String searchTerm
     );
 
+    CursorPageDTO<OrderDTO> getAllOrdersWithCursor(
+            String cursor,
+            int pageSize,
+            Sort sort,
+            boolean includeTotal,
+            Long managerId,
+            String searchTerm
+    );
+
 
 
 
@@ -2,12 +2,20 @@ package com.stockly.service.query;
 
 import com.stockly.model.PredictionResult;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface PredictionQueryService {
+
+    // Predictions are made per product and warehouse
+    record PredictionKey(Long warehouseId, Long productId) {}
+
     List<PredictionResult> getPredictions(String month);
     List<PredictionResult> getPredictionsByWarehouseId(String month, long warehouseId);
     PredictionResult getPredictionsByProductId(String month, Long productId);
+    PredictionResult getPrediction(String month, Long warehouseId, Long productId);
+    Map<PredictionKey, PredictionResult> getPredictions(String month, Collection<PredictionKey> keys);
     List<PredictionResult> getCurrentMonthPredictions();
     String getCurrentMonth();
 }
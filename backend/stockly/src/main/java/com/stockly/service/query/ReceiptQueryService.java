@@ -1,8 +1,10 @@
 package com.stockly.service.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.ReceiptDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -21,6 +23,21 @@ public interface ReceiptQueryService {
                                  Long supplierManagerId,
                                  String searchTerm);
 
+    CursorPageDTO<ReceiptDTO> getReceiptsWithCursor(String cursor,
+                                                   int pageSize,
+                                                   Sort sort,
+                                                   boolean includeTotal,
+                                                   Long buyerCompanyId,
+                                                   Long supplierCompanyId,
+                                                   Long companyId,
+                                                   Long sourceWarehouseId,
+                                                   Long destinationWarehouseId,
+                                                   Long warehouseId,
+                                                   Long managerId,
+                                                   Long buyerManagerId,
+                                                   Long supplierManagerId,
+                                                   String searchTerm);
+
     List<ReceiptDTO> searchReceipts(String searchTerm);
 
     List<ReceiptDTO> getReceiptsByCompanyId(Long companyId);
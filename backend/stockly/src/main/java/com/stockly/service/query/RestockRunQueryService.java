@@ -0,0 +1,10 @@
+package com.stockly.service.query;
+
+import com.stockly.dto.RestockRunDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+public interface RestockRunQueryService {
+    Page<RestockRunDTO> getRestockRuns(PageRequest pageRequest);
+    RestockRunDTO getRestockRunById(Long id);
+}
@@ -11,4 +11,5 @@ public interface UserQueryService {
     Page<UserDTO> getAllUsersWithPagination(PageRequest pageRequest, String searchTerm);
 
     Long getUsersCount();
+    UserDTO getUserByEmail(String email);
 }
@@ -7,5 +7,4 @@ import org.springframework.data.domain.Pageable;
 
 public interface WarehouseProductQueryService {
     Page<WarehouseProductDTO> getAllWarehouseProductsWithPagination(PageRequest pageRequest, Long warehouseId, String searchTerm);
-    void orderAutomationWarehouseProducts(String month);
 }
@@ -1,10 +1,12 @@
 package com.stockly.service.query;
 
+import com.stockly.dto.CursorPageDTO;
 import com.stockly.dto.WarehouseDTO;
 import com.stockly.dto.WarehouseProductDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,6 +18,8 @@ public interface WarehouseQueryService {
     boolean warehouseExistsByName(String name);
     List<WarehouseDTO> searchWarehouses(String searchTerm, Long companyId);
     Page<WarehouseDTO> getAllWarehousesWithPagination(PageRequest pageRequest, Long companyId, Long managerId, Boolean isActive,String searchTerm);
+    CursorPageDTO<WarehouseDTO> getAllWarehousesWithCursor(String cursor, int pageSize, Sort sort, boolean includeTotal,
+                                                           Long companyId, Long managerId, Boolean isActive, String searchTerm);
     List<WarehouseProductDTO> getProductsByWarehouseId(Long id);
     List<WarehouseDTO> getWarehousesByManagerId(Long managerId);
     Long getWarehousesCount();
@@ -0,0 +1,4 @@
+CREATE TABLE stock_ledger_checkpoints (
+    stripe INTEGER PRIMARY KEY,
+    sequence BIGINT NOT NULL
+);
@@ -0,0 +1,12 @@
+CREATE TABLE stock_snapshots (
+    id BIGSERIAL PRIMARY KEY,
+
+    warehouse_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    snapshot_day DATE NOT NULL,
+    closing_quantity INTEGER NOT NULL,
+
+    CONSTRAINT fk_snapshot_warehouse FOREIGN KEY (warehouse_id) REFERENCES warehouses(id) ON DELETE CASCADE,
+    CONSTRAINT fk_snapshot_product FOREIGN KEY (product_id) REFERENCES products(id),
+    CONSTRAINT uq_snapshot_warehouse_product_day UNIQUE (warehouse_id, product_id, snapshot_day)
+);
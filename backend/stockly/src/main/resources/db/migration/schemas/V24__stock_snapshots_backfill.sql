@@ -0,0 +1,31 @@
+-- Closing quantity of every past day with orders: the current quantity plus everything ordered on later days
+INSERT INTO stock_snapshots (warehouse_id, product_id, snapshot_day, closing_quantity)
+SELECT
+    d.warehouse_id,
+    d.product_id,
+    d.snapshot_day,
+    wp.quantity + COALESCE(SUM(d.ordered) OVER (
+        PARTITION BY d.warehouse_id, d.product_id
+        ORDER BY d.snapshot_day DESC
+        ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING
+    ), 0)
+FROM (
+    SELECT
+        o.source_warehouse_id AS warehouse_id,
+        oi.product_id,
+        CAST(o.order_date AT TIME ZONE 'UTC' AS DATE) AS snapshot_day,
+        SUM(oi.quantity) AS ordered
+    FROM orders o
+    JOIN order_items oi ON o.id = oi.order_id
+    WHERE o.source_warehouse_id IS NOT NULL
+    AND o.order_date IS NOT NULL
+    GROUP BY o.source_warehouse_id, oi.product_id, CAST(o.order_date AT TIME ZONE 'UTC' AS DATE)
+) d
+JOIN warehouse_products wp ON wp.warehouse_id = d.warehouse_id AND wp.product_id = d.product_id
+WHERE d.snapshot_day < CAST(now() AT TIME ZONE 'UTC' AS DATE);
+
+-- Today's running closing quantity is the current quantity
+INSERT INTO stock_snapshots (warehouse_id, product_id, snapshot_day, closing_quantity)
+SELECT wp.warehouse_id, wp.product_id, CAST(now() AT TIME ZONE 'UTC' AS DATE), wp.quantity
+FROM warehouse_products wp
+ON CONFLICT (warehouse_id, product_id, snapshot_day) DO UPDATE SET closing_quantity = EXCLUDED.closing_quantity;
@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS idx_orders_order_date ON orders (order_date);
+
+CREATE INDEX IF NOT EXISTS idx_orders_updated_at_id ON orders (updated_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id) INCLUDE (id, product_id, quantity);
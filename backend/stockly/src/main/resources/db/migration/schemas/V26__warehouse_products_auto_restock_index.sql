@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_warehouse_products_auto_restock ON warehouse_products (id) WHERE automated_restock = true;
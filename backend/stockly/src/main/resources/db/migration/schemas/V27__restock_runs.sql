@@ -0,0 +1,35 @@
+CREATE TABLE restock_runs (
+    id BIGSERIAL PRIMARY KEY,
+
+    month VARCHAR(6) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    last_warehouse_product_id BIGINT NOT NULL DEFAULT 0,
+
+    processed BIGINT NOT NULL DEFAULT 0,
+    applied BIGINT NOT NULL DEFAULT 0,
+    skipped BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 1,
+    error TEXT,
+
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- At most one run per month may be in progress at a time
+CREATE UNIQUE INDEX uq_restock_runs_running_month ON restock_runs (month) WHERE status = 'RUNNING';
+
+CREATE INDEX idx_restock_runs_month ON restock_runs (month, id);
+
+-- One automated restock per warehouse product and prediction month
+CREATE TABLE restock_applications (
+    month VARCHAR(6) NOT NULL,
+    warehouse_product_id BIGINT NOT NULL,
+    run_id BIGINT NOT NULL,
+    quantity_change INTEGER NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (month, warehouse_product_id),
+    CONSTRAINT fk_restock_application_run FOREIGN KEY (run_id) REFERENCES restock_runs(id) ON DELETE CASCADE
+);
@@ -0,0 +1,8 @@
+-- Restock runs are tracked per warehouse shard; NULL marks runs that covered every warehouse
+ALTER TABLE restock_runs ADD COLUMN warehouse_id BIGINT;
+
+DROP INDEX IF EXISTS uq_restock_runs_running_month;
+
+CREATE UNIQUE INDEX uq_restock_runs_running_shard ON restock_runs (month, COALESCE(warehouse_id, 0)) WHERE status = 'RUNNING';
+
+CREATE INDEX IF NOT EXISTS idx_warehouse_products_auto_restock_warehouse ON warehouse_products (warehouse_id, id) WHERE automated_restock = true;
@@ -0,0 +1,2 @@
+-- Embedded in access tokens; bumping it revokes every token issued before the change
+ALTER TABLE users ADD COLUMN token_version INTEGER NOT NULL DEFAULT 0;
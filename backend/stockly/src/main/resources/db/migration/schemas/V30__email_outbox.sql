@@ -0,0 +1,25 @@
+-- Outgoing emails are stored here first and delivered by the email dispatcher
+CREATE TABLE email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+
+    recipient VARCHAR(320) NOT NULL,
+    subject VARCHAR(998) NOT NULL,
+    body TEXT NOT NULL,
+    attachment BYTEA,
+    attachment_name VARCHAR(255),
+    attachment_mime_type VARCHAR(255),
+
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+-- Due messages, including SENDING ones whose claim has lapsed
+CREATE INDEX idx_email_outbox_due ON email_outbox (next_attempt_at) WHERE status IN ('PENDING', 'SENDING');
+
+CREATE INDEX idx_email_outbox_status_updated ON email_outbox (status, updated_at);
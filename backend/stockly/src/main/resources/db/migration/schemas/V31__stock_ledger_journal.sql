@@ -0,0 +1,11 @@
+-- Ledger reservations are journaled in the reserving transaction and deleted by the flush that applies
+-- them, so the rows left here after a crash are the committed reservations still owed to warehouse_products
+CREATE TABLE stock_ledger_journal (
+    sequence BIGINT NOT NULL,
+    warehouse_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    delta INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (sequence, product_id)
+);
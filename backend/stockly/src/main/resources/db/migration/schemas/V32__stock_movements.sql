@@ -0,0 +1,21 @@
+-- Every stock change made through StockMutationService, so stock at a point in time can be
+-- rebuilt from the previous day's closing snapshot plus the movements of that day
+CREATE TABLE stock_movements (
+    id BIGSERIAL PRIMARY KEY,
+
+    warehouse_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    delta INTEGER NOT NULL,
+    moved_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_stock_movements_warehouse_product_moved_at ON stock_movements (warehouse_id, product_id, moved_at);
+CREATE INDEX idx_stock_movements_moved_at ON stock_movements (moved_at);
+
+-- Past orders are the only movements known before this table existed
+INSERT INTO stock_movements (warehouse_id, product_id, delta, moved_at)
+SELECT o.source_warehouse_id, oi.product_id, -oi.quantity, o.order_date
+FROM orders o
+JOIN order_items oi ON o.id = oi.order_id
+WHERE o.source_warehouse_id IS NOT NULL
+AND o.order_date IS NOT NULL;
@@ -0,0 +1,14 @@
+-- Order lines removed by an order update or delete, so the incremental export can emit deletions
+CREATE TABLE order_export_tombstones (
+    id BIGSERIAL PRIMARY KEY,
+
+    order_id BIGINT NOT NULL,
+    order_item_id BIGINT NOT NULL,
+    product_id BIGINT,
+    warehouse_id BIGINT,
+
+    -- Same type and clock as orders.updated_at, so both sort into one watermark order
+    deleted_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_order_export_tombstones_deleted_at_item ON order_export_tombstones (deleted_at, order_item_id);
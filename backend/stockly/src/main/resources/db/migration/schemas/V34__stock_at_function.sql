@@ -0,0 +1,29 @@
+-- Stock of a pair just before a point in time: the closing quantity of the last snapshot before that
+-- UTC day plus the movements recorded earlier the same day. A pair without an earlier snapshot starts
+-- at zero. Point-in-time stock queries call this function so the rule is defined in one place.
+CREATE OR REPLACE FUNCTION stock_at(p_warehouse_id BIGINT, p_product_id BIGINT, p_at TIMESTAMP WITH TIME ZONE)
+RETURNS INTEGER
+LANGUAGE sql
+STABLE
+PARALLEL SAFE
+AS $$
+    SELECT CAST(
+        COALESCE((
+            SELECT ss.closing_quantity
+            FROM stock_snapshots ss
+            WHERE ss.warehouse_id = p_warehouse_id
+            AND ss.product_id = p_product_id
+            AND ss.snapshot_day < CAST(p_at AT TIME ZONE 'UTC' AS DATE)
+            ORDER BY ss.snapshot_day DESC
+            LIMIT 1
+        ), 0)
+        + COALESCE((
+            SELECT SUM(sm.delta)
+            FROM stock_movements sm
+            WHERE sm.warehouse_id = p_warehouse_id
+            AND sm.product_id = p_product_id
+            AND sm.moved_at >= date_trunc('day', p_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+            AND sm.moved_at < p_at
+        ), 0)
+    AS INTEGER)
+$$;
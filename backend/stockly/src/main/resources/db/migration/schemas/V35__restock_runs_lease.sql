@@ -0,0 +1,2 @@
+-- Renewed with every committed page; a RUNNING run is only taken over once its lease has expired
+ALTER TABLE restock_runs ADD COLUMN lease_until TIMESTAMP;
@@ -0,0 +1,91 @@
+package com.stockly.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockly.dto.CursorPageDTO;
+import com.stockly.exception.BusinessException;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorMapperTest {
+
+    private final KeysetCursorMapper keysetCursorMapper = new KeysetCursorMapper(new ObjectMapper());
+
+    @Test
+    void cursorRoundTripsKeysWithTheirTypesAndOrder() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("createdAt", Instant.parse("2026-01-02T03:04:05.123456Z"));
+        keys.put("orderDate", LocalDate.of(2026, 1, 2));
+        keys.put("updatedAt", LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        keys.put("totalPrice", new BigDecimal("12.50"));
+        keys.put("weight", 1.5);
+        keys.put("quantity", 7);
+        keys.put("isActive", true);
+        keys.put("logId", new ObjectId("65a1b2c3d4e5f60718293a4b"));
+        keys.put("title", "a,b \"c\"");
+        keys.put("id", 42L);
+
+        String cursor = nextCursor(keys);
+        KeysetScrollPosition position = keysetCursorMapper.toScrollPosition(cursor);
+
+        assertThat(position.getDirection()).isEqualTo(ScrollPosition.Direction.FORWARD);
+        assertThat(position.getKeys()).containsExactlyEntriesOf(keys);
+        assertThat(cursor).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void blankCursorStartsAtTheFirstPage() {
+        assertThat(keysetCursorMapper.toScrollPosition(null).isInitial()).isTrue();
+        assertThat(keysetCursorMapper.toScrollPosition("").isInitial()).isTrue();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> keysetCursorMapper.toScrollPosition("not a cursor"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid page cursor");
+        assertThatThrownBy(() -> keysetCursorMapper.toScrollPosition("W1siaWQiLCJMIiwieCJdXQ"))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void lastPageHasNoNextCursor() {
+        Window<String> window = Window.from(List.of("a", "b"), index -> ScrollPosition.forward(Map.of("id", (long) index)), false);
+
+        CursorPageDTO<String> page = keysetCursorMapper.toCursorPage(window, String::toUpperCase, 2L);
+
+        assertThat(page.content()).containsExactly("A", "B");
+        assertThat(page.nextCursor()).isNull();
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.totalElements()).isEqualTo(2L);
+    }
+
+    @Test
+    void idTiebreakerFollowsTheDirectionOfTheLastOrder() {
+        assertThat(KeysetCursorMapper.withIdTiebreaker(Sort.by(Sort.Order.asc("title"), Sort.Order.desc("createdAt"))))
+                .isEqualTo(Sort.by(Sort.Order.asc("title"), Sort.Order.desc("createdAt"), Sort.Order.desc("id")));
+        assertThat(KeysetCursorMapper.withIdTiebreaker(Sort.unsorted())).isEqualTo(Sort.by(Sort.Order.asc("id")));
+
+        Sort sortedById = Sort.by(Sort.Order.desc("id"), Sort.Order.asc("title"));
+        assertThat(KeysetCursorMapper.withIdTiebreaker(sortedById)).isSameAs(sortedById);
+    }
+
+    private String nextCursor(Map<String, Object> keys) {
+        Window<String> window = Window.from(List.of("last"), index -> ScrollPosition.forward(keys), true);
+        return keysetCursorMapper.toCursorPage(window, value -> value, null).nextCursor();
+    }
+}
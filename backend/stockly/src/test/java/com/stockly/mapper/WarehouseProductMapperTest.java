@@ -0,0 +1,88 @@
+package com.stockly.mapper;
+
+import com.stockly.model.PredictionResult;
+import com.stockly.model.Product;
+import com.stockly.model.Warehouse;
+import com.stockly.model.WarehouseProduct;
+import com.stockly.service.impl.query.PredictionQueryServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.Invocation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the queries sent to MongoDB while mapping a page of warehouse products.
+ */
+class WarehouseProductMapperTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    private MongoTemplate mongoTemplate;
+    private WarehouseProductMapper warehouseProductMapper;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(PredictionResult.class), anyString())).thenReturn(List.of());
+        warehouseProductMapper = new WarehouseProductMapper(
+                new PredictionQueryServiceImpl(mongoTemplate, new SimpleMeterRegistry(), 1000, 60, "ml-stockly"));
+    }
+
+    @Test
+    void mappingRowByRowQueriesOncePerRow() {
+        page().forEach(warehouseProductMapper::toDTO);
+
+        assertThat(mongoQueries()).isEqualTo(PAGE_SIZE);
+    }
+
+    @Test
+    void mappingAPageQueriesOnce() {
+        List<WarehouseProduct> page = page();
+
+        assertThat(warehouseProductMapper.toDTOs(page)).hasSize(PAGE_SIZE);
+        assertThat(mongoQueries()).isEqualTo(1);
+
+        // The next request for the same page is answered from the prediction cache
+        warehouseProductMapper.toDTOs(page);
+        assertThat(mongoQueries()).isEqualTo(1);
+    }
+
+    private long mongoQueries() {
+        return mockingDetails(mongoTemplate).getInvocations().stream()
+                .map(Invocation::getMethod)
+                .filter(method -> method.getName().startsWith("find"))
+                .count();
+    }
+
+    // Two warehouses sharing the same products
+    private static List<WarehouseProduct> page() {
+        List<WarehouseProduct> page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Warehouse warehouse = new Warehouse();
+            warehouse.setId(1L + i % 2);
+            Product product = new Product();
+            product.setId(100L + i / 2);
+
+            WarehouseProduct warehouseProduct = new WarehouseProduct();
+            warehouseProduct.setId((long) i);
+            warehouseProduct.setWarehouse(warehouse);
+            warehouseProduct.setProduct(product);
+            warehouseProduct.setQuantity(10);
+            page.add(warehouseProduct);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,69 @@
+package com.stockly.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryLogTest {
+
+    @Test
+    void searchTermIsSplitIntoLowercaseWords() {
+        assertThat(InventoryLog.toSearchTokens("  Blue-Widget, SKU_42 ÄPFEL "))
+                .containsExactly("blue", "widget", "sku", "42", "äpfel");
+    }
+
+    @Test
+    void searchTermDropsSingleCharactersAndDuplicates() {
+        assertThat(InventoryLog.toSearchTokens("a widget b WIDGET")).containsExactly("widget");
+        assertThat(InventoryLog.toSearchTokens("a b c")).isEmpty();
+        assertThat(InventoryLog.toSearchTokens("  ")).isEmpty();
+        assertThat(InventoryLog.toSearchTokens(null)).isEmpty();
+    }
+
+    @Test
+    void searchTermWordsAreCutToTheLongestIndexedPrefix() {
+        assertThat(InventoryLog.toSearchTokens("supercalifragilisticexpialidocious"))
+                .containsExactly("supercalifragilistic");
+    }
+
+    @Test
+    void identifyingFieldsAreIndexedByEveryPrefix() {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setProductSku("AB-123");
+        inventoryLog.setWarehouseName("North");
+
+        inventoryLog.updateSearchTokens();
+
+        assertThat(inventoryLog.getSearchTokens())
+                .containsExactly("ab", "12", "123", "no", "nor", "nort", "north");
+        assertThat(inventoryLog.getSearchTokenVersion()).isEqualTo(InventoryLog.SEARCH_TOKEN_VERSION);
+    }
+
+    @Test
+    void notesOnlyContributeWholeWords() {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setNotes("Damaged pallet, recounted");
+
+        inventoryLog.updateSearchTokens();
+
+        assertThat(inventoryLog.getSearchTokens()).containsExactly("damaged", "pallet", "recounted");
+        assertThat(inventoryLog.getSearchTokens()).containsAll(InventoryLog.toSearchTokens("pallet damaged"));
+        assertThat(inventoryLog.getSearchTokens()).doesNotContainAnyElementsOf(InventoryLog.toSearchTokens("pal"));
+    }
+
+    @Test
+    void notesTokensAreCapped() {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setProductTitle("Widget");
+        inventoryLog.setNotes(IntStream.range(0, 500).mapToObj(i -> "word" + i).collect(Collectors.joining(" ")));
+
+        inventoryLog.updateSearchTokens();
+
+        // The title's prefixes plus the capped notes words
+        assertThat(inventoryLog.getSearchTokens()).hasSize(5 + InventoryLog.MAX_NOTES_SEARCH_TOKENS);
+        assertThat(inventoryLog.getSearchTokens()).contains("word0", "word31").doesNotContain("word32");
+    }
+}
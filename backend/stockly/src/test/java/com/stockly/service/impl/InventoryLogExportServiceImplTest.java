@@ -0,0 +1,73 @@
+package com.stockly.service.impl;
+
+import com.stockly.model.InventoryLog;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryLogExportServiceImplTest {
+
+    @Test
+    void continuesOnANewSheetOnceASheetIsFull() throws Exception {
+        // Four rows per sheet: the header and three logs
+        InventoryLogExportServiceImpl exportService = new InventoryLogExportServiceImpl(2, 4);
+
+        try (Workbook workbook = export(exportService, IntStream.range(0, 7).mapToObj(InventoryLogExportServiceImplTest::log))) {
+            assertThat(workbook.getNumberOfSheets()).isEqualTo(3);
+            assertThat(workbook.getSheetName(0)).isEqualTo("Inventory Logs");
+            assertThat(workbook.getSheetName(2)).isEqualTo("Inventory Logs (3)");
+            assertThat(dataRows(workbook.getSheetAt(0))).containsExactly("SKU-0", "SKU-1", "SKU-2");
+            assertThat(dataRows(workbook.getSheetAt(1))).containsExactly("SKU-3", "SKU-4", "SKU-5");
+            assertThat(dataRows(workbook.getSheetAt(2))).containsExactly("SKU-6");
+            assertThat(workbook.getSheetAt(2).getRow(0).getCell(1).getStringCellValue()).isEqualTo("SKU");
+        }
+    }
+
+    @Test
+    void exactlyFullSheetDoesNotStartAnEmptyOne() throws Exception {
+        InventoryLogExportServiceImpl exportService = new InventoryLogExportServiceImpl(2, 4);
+
+        try (Workbook workbook = export(exportService, IntStream.range(0, 3).mapToObj(InventoryLogExportServiceImplTest::log))) {
+            assertThat(workbook.getNumberOfSheets()).isEqualTo(1);
+            assertThat(dataRows(workbook.getSheetAt(0))).hasSize(3);
+        }
+    }
+
+    @Test
+    void emptyExportHasAMessageRow() throws Exception {
+        InventoryLogExportServiceImpl exportService = new InventoryLogExportServiceImpl(2, 4);
+
+        try (Workbook workbook = export(exportService, Stream.empty())) {
+            assertThat(workbook.getNumberOfSheets()).isEqualTo(1);
+            assertThat(workbook.getSheetAt(0).getRow(1).getCell(0).getStringCellValue())
+                    .isEqualTo("No inventory logs found matching the criteria");
+        }
+    }
+
+    private static Workbook export(InventoryLogExportServiceImpl exportService, Stream<InventoryLog> logs) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportToExcel(logs, outputStream);
+        return new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    private static List<String> dataRows(Sheet sheet) {
+        return IntStream.rangeClosed(1, sheet.getLastRowNum())
+                .mapToObj(rowNum -> sheet.getRow(rowNum).getCell(1).getStringCellValue())
+                .toList();
+    }
+
+    private static InventoryLog log(int index) {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setProductSku("SKU-" + index);
+        return inventoryLog;
+    }
+}
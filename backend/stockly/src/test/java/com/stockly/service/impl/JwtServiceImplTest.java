@@ -0,0 +1,104 @@
+package com.stockly.service.impl;
+
+import com.stockly.model.Role;
+import com.stockly.model.RoleEnum;
+import com.stockly.model.User;
+import com.stockly.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceImplTest {
+
+    private static final String SECRET_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final JwtServiceImpl jwtService = jwtService(60_000);
+
+    @Test
+    void accessTokenCarriesTheUserClaims() {
+        User user = user();
+
+        Claims claims = jwtService.parseToken(jwtService.generateToken(user));
+
+        assertThat(claims.getSubject()).isEqualTo("jane@example.com");
+        assertThat(claims.get(JwtService.ROLES_CLAIM)).isEqualTo(List.of("ROLE_ADMIN"));
+        assertThat(claims.get(JwtService.USER_ID_CLAIM, Number.class).longValue()).isEqualTo(7L);
+        assertThat(claims.get(JwtService.TOKEN_VERSION_CLAIM, Integer.class)).isEqualTo(3);
+        assertThat(jwtService.isTokenValid(claims, user)).isTrue();
+    }
+
+    @Test
+    void repeatedTokensAreVerifiedOnce() {
+        String token = jwtService.generateToken(springUser("jane@example.com"));
+
+        Claims first = jwtService.parseToken(token);
+
+        assertThat(jwtService.parseToken(token)).isSameAs(first);
+        assertThat(jwtService.extractUsername(token)).isEqualTo("jane@example.com");
+        assertThat(jwtService.isTokenValid(token, springUser("jane@example.com"))).isTrue();
+        assertThat(jwtService.isTokenValid(token, springUser("john@example.com"))).isFalse();
+    }
+
+    @Test
+    void tamperedTokensAreRejectedEvenAfterTheOriginalWasCached() {
+        String token = jwtService.generateToken(springUser("jane@example.com"));
+        jwtService.parseToken(token);
+
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"sub\":\"admin@example.com\"}".getBytes());
+        String forged = parts[0] + "." + forgedPayload + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtService.parseToken(forged)).isInstanceOf(JwtException.class);
+        assertThat(jwtService.isTokenValid(forged, null)).isFalse();
+    }
+
+    @Test
+    void tokensSignedWithAnotherKeyAreRejected() {
+        JwtServiceImpl otherService = new JwtServiceImpl(
+                Base64.getEncoder().encodeToString("another-secret-key-of-32-bytes!!".getBytes()),
+                60_000, 60_000, 100, new SimpleMeterRegistry());
+        String token = otherService.generateToken(springUser("jane@example.com"));
+
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void expiredTokensAreRejected() {
+        JwtServiceImpl expiringService = jwtService(-1_000);
+        String token = expiringService.generateToken(springUser("jane@example.com"));
+
+        assertThatThrownBy(() -> expiringService.parseToken(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(expiringService.isTokenValid(token, springUser("jane@example.com"))).isFalse();
+    }
+
+    private static JwtServiceImpl jwtService(long expiration) {
+        return new JwtServiceImpl(SECRET_KEY, expiration, expiration, 100, new SimpleMeterRegistry());
+    }
+
+    private static User user() {
+        Role role = new Role();
+        role.setName(RoleEnum.ADMIN);
+        User user = new User("jane", "jane@example.com", "secret");
+        user.setId(7L);
+        user.setTokenVersion(3);
+        user.setRole(role);
+        return user;
+    }
+
+    private static UserDetails springUser(String email) {
+        return org.springframework.security.core.userdetails.User.withUsername(email)
+                .password("secret")
+                .roles("USER")
+                .build();
+    }
+}
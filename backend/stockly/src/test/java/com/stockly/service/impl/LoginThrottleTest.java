@@ -0,0 +1,81 @@
+package com.stockly.service.impl;
+
+import com.stockly.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void accountIsThrottledOnceItsBucketIsEmpty() {
+        LoginThrottle loginThrottle = loginThrottle(3, 100, 60);
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("jane@example.com", "10.0.0." + i);
+        }
+
+        TooManyRequestsException e = catchThrowableOfType(TooManyRequestsException.class,
+                () -> loginThrottle.acquire("jane@example.com", "10.0.0.9"));
+
+        // One of three tokens comes back every 20 seconds
+        assertThat(e.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(20));
+        assertThat(meterRegistry.counter("stockly.login_throttle.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void emailsAreNormalizedBeforeCounting() {
+        LoginThrottle loginThrottle = loginThrottle(2, 100, 60);
+        loginThrottle.acquire("Jane@Example.com", "10.0.0.1");
+        loginThrottle.acquire(" jane@example.com ", "10.0.0.2");
+
+        assertThatThrownBy(() -> loginThrottle.acquire("JANE@EXAMPLE.COM", "10.0.0.3"))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void addressIsThrottledAcrossAccounts() {
+        LoginThrottle loginThrottle = loginThrottle(100, 3, 60);
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> loginThrottle.acquire("other@example.com", "10.0.0.1"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThatCode(() -> loginThrottle.acquire("other@example.com", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void bucketsRefillOverTime() throws InterruptedException {
+        LoginThrottle loginThrottle = loginThrottle(1, 100, 1);
+        loginThrottle.acquire("jane@example.com", null);
+        assertThatThrownBy(() -> loginThrottle.acquire("jane@example.com", null))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        Thread.sleep(1_100);
+
+        assertThatCode(() -> loginThrottle.acquire("jane@example.com", null)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void disabledThrottleNeverRejects() {
+        LoginThrottle loginThrottle = new LoginThrottle(meterRegistry, false, 1, 1, 60, 100);
+
+        assertThatCode(() -> {
+            for (int i = 0; i < 10; i++) {
+                loginThrottle.acquire("jane@example.com", "10.0.0.1");
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    private LoginThrottle loginThrottle(long accountCapacity, long addressCapacity, long refillPeriodSeconds) {
+        return new LoginThrottle(meterRegistry, true, accountCapacity, addressCapacity, refillPeriodSeconds, 100);
+    }
+}
@@ -0,0 +1,75 @@
+package com.stockly.service.impl;
+
+import com.stockly.event.UserChangedEvent;
+import com.stockly.model.User;
+import com.stockly.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserDetailsCacheTest {
+
+    private static final String EMAIL = "jane@example.com";
+
+    private UserRepository userRepository;
+    private UserDetailsCache userDetailsCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userDetailsCache = new UserDetailsCache(userRepository, new SimpleMeterRegistry(), 100, 60);
+    }
+
+    @Test
+    void repeatedLookupsHitTheDatabaseOnce() {
+        User user = user(1L);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(userDetailsCache.findByEmail(EMAIL)).containsSame(user);
+        }
+
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void unknownEmailsAreNotCached() {
+        User user = user(1L);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.empty(), Optional.of(user));
+
+        assertThat(userDetailsCache.findByEmail(EMAIL)).isEmpty();
+        // A signup right after a failed lookup can log in without waiting for an expiry
+        assertThat(userDetailsCache.findByEmail(EMAIL)).containsSame(user);
+    }
+
+    @Test
+    void changedUsersAreReloaded() {
+        User before = user(1L);
+        User after = user(1L);
+        User other = user(2L);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(before), Optional.of(after));
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(other));
+        userDetailsCache.findByEmail(EMAIL);
+        userDetailsCache.findByEmail("john@example.com");
+
+        userDetailsCache.onUserChanged(new UserChangedEvent(1L));
+
+        assertThat(userDetailsCache.findByEmail(EMAIL)).containsSame(after);
+        assertThat(userDetailsCache.findByEmail("john@example.com")).containsSame(other);
+        verify(userRepository, times(1)).findByEmail("john@example.com");
+    }
+
+    private static User user(Long id) {
+        User user = new User("jane", EMAIL, "secret");
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,93 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.RegisterUserDTO;
+import com.stockly.model.Role;
+import com.stockly.model.RoleEnum;
+import com.stockly.model.User;
+import com.stockly.repository.RoleRepository;
+import com.stockly.repository.UserRepository;
+import com.stockly.service.JwtService;
+import com.stockly.service.PasswordHashingService;
+import com.stockly.service.command.EmailService;
+import com.stockly.service.impl.LoginThrottle;
+import com.stockly.service.impl.UserDetailsCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthenticationServiceImplTest {
+
+    private UserRepository userRepository;
+    private PasswordHashingService passwordHashingService;
+    private RoleRepository roleRepository;
+    private AuthenticationServiceImpl authenticationService;
+    private final AtomicReference<String> savingThread = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        passwordHashingService = mock(PasswordHashingService.class);
+        roleRepository = mock(RoleRepository.class);
+        authenticationService = new AuthenticationServiceImpl(userRepository, passwordHashingService,
+                mock(LoginThrottle.class), mock(EmailService.class), mock(JwtService.class), roleRepository,
+                mock(UserDetailsCache.class), mock(ApplicationEventPublisher.class));
+
+        Role role = new Role();
+        role.setName(RoleEnum.USER);
+        when(roleRepository.findByName(RoleEnum.USER)).thenReturn(Optional.of(role));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            savingThread.set(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+    }
+
+    @Test
+    void signupReturnsBeforeThePasswordIsHashed() {
+        CompletableFuture<String> hash = new CompletableFuture<>();
+        when(passwordHashingService.encode("secret")).thenReturn(hash);
+
+        CompletableFuture<User> signup = authenticationService.signup(registration());
+
+        assertThat(signup).isNotDone();
+        verify(userRepository, never()).save(any(User.class));
+
+        hash.complete("hashed");
+
+        User user = signup.join();
+        assertThat(user.getPassword()).isEqualTo("hashed");
+        assertThat(user.getRole().getName()).isEqualTo(RoleEnum.USER);
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void signupSavesTheUserOffTheThreadThatFinishedTheHash() {
+        CompletableFuture<String> hash = new CompletableFuture<>();
+        when(passwordHashingService.encode("secret")).thenReturn(hash);
+
+        CompletableFuture<User> signup = authenticationService.signup(registration());
+        Thread hashingThread = new Thread(() -> hash.complete("hashed"), "password-hashing-1");
+        hashingThread.start();
+        signup.join();
+
+        assertThat(savingThread.get()).startsWith("signup-");
+    }
+
+    private static RegisterUserDTO registration() {
+        RegisterUserDTO registration = new RegisterUserDTO();
+        registration.setUsername("jane");
+        registration.setEmail("jane@example.com");
+        registration.setPassword("secret");
+        return registration;
+    }
+}
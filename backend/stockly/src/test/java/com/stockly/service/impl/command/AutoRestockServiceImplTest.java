@@ -0,0 +1,110 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.AutoRestockRunSummary;
+import com.stockly.model.RestockRun;
+import com.stockly.model.enums.RestockRunStatus;
+import com.stockly.projection.AutoRestockCandidateProjection;
+import com.stockly.repository.RestockRunRepository;
+import com.stockly.repository.WarehouseProductRepository;
+import com.stockly.service.command.InventoryLogCommandService;
+import com.stockly.service.command.StockMutationService;
+import com.stockly.service.query.PredictionQueryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AutoRestockServiceImplTest {
+
+    private static final String MONTH = "202610";
+    private static final long WAREHOUSE_ID = 1L;
+    private static final long RUN_ID = 7L;
+
+    private WarehouseProductRepository warehouseProductRepository;
+    private RestockRunRepository restockRunRepository;
+    private PredictionQueryService predictionQueryService;
+    private AutoRestockServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        warehouseProductRepository = mock(WarehouseProductRepository.class);
+        restockRunRepository = mock(RestockRunRepository.class);
+        predictionQueryService = mock(PredictionQueryService.class);
+
+        service = new AutoRestockServiceImpl(warehouseProductRepository, restockRunRepository, predictionQueryService,
+                mock(StockMutationService.class), mock(InventoryLogCommandService.class), mock(ObjectProvider.class),
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                2, 1, 0, 300, 4);
+    }
+
+    @Test
+    void skipsAShardWhoseRunIsStillLeasedByAnotherInstance() {
+        when(restockRunRepository.findFirstByMonthAndWarehouseIdAndStatusInOrderByIdDesc(eq(MONTH), eq(WAREHOUSE_ID), anyCollection()))
+                .thenReturn(Optional.of(run(RestockRunStatus.RUNNING)));
+        when(restockRunRepository.takeOver(eq(RUN_ID), any(Instant.class), any(Instant.class))).thenReturn(0);
+
+        AutoRestockRunSummary summary = service.runAutoRestock(MONTH, AutoRestockServiceImpl.DEFAULT_TIER, List.of(WAREHOUSE_ID));
+
+        assertThat(summary.processed()).isZero();
+        verify(warehouseProductRepository, never()).findAutoRestockCandidates(anyLong(), anyLong(), any());
+        verify(restockRunRepository, never()).save(any());
+    }
+
+    @Test
+    void countsTheRowsOfAFailedPageAsFailed() {
+        RestockRun run = run(RestockRunStatus.FAILED);
+        when(restockRunRepository.findFirstByMonthAndWarehouseIdAndStatusInOrderByIdDesc(eq(MONTH), eq(WAREHOUSE_ID), anyCollection()))
+                .thenReturn(Optional.of(run));
+        when(restockRunRepository.takeOver(eq(RUN_ID), any(Instant.class), any(Instant.class))).thenReturn(1);
+        when(restockRunRepository.findById(RUN_ID)).thenReturn(Optional.of(run));
+        List<AutoRestockCandidateProjection> page = List.of(candidate(11L), candidate(12L));
+        when(warehouseProductRepository.findAutoRestockCandidates(eq(WAREHOUSE_ID), anyLong(), any())).thenReturn(page);
+        when(predictionQueryService.getPredictions(anyString(), any())).thenThrow(new IllegalStateException("predictions unavailable"));
+
+        AutoRestockRunSummary summary = service.runAutoRestock(MONTH, AutoRestockServiceImpl.DEFAULT_TIER, List.of(WAREHOUSE_ID));
+
+        assertThat(summary.processed()).isEqualTo(2);
+        assertThat(summary.failed()).isEqualTo(2);
+        assertThat(summary.skipped()).isZero();
+        assertThat(run.getStatus()).isEqualTo(RestockRunStatus.FAILED);
+        assertThat(run.getFailed()).isEqualTo(2);
+        assertThat(run.getLeaseUntil()).isNull();
+    }
+
+    private static RestockRun run(RestockRunStatus status) {
+        RestockRun run = new RestockRun();
+        run.setId(RUN_ID);
+        run.setMonth(MONTH);
+        run.setWarehouseId(WAREHOUSE_ID);
+        run.setStatus(status);
+        run.setLeaseUntil(Instant.now().plusSeconds(300));
+        return run;
+    }
+
+    private static AutoRestockCandidateProjection candidate(long id) {
+        AutoRestockCandidateProjection candidate = mock(AutoRestockCandidateProjection.class);
+        when(candidate.getId()).thenReturn(id);
+        when(candidate.getWarehouseId()).thenReturn(WAREHOUSE_ID);
+        when(candidate.getProductId()).thenReturn(id * 10);
+        when(candidate.getQuantity()).thenReturn(0);
+        return candidate;
+    }
+}
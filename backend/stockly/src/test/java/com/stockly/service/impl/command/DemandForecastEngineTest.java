@@ -0,0 +1,103 @@
+package com.stockly.service.impl.command;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DemandForecastEngineTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulkOperations;
+    private DemandForecastEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), anyString())).thenReturn(bulkOperations);
+        engine = new DemandForecastEngine(jdbcTemplate, mongoTemplate, 28, 0.2, 180, 7, 30, 1.65);
+    }
+
+    @Test
+    void ordersCommittedDuringTheRebuildAreReplayedAfterTheHistory() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Instant twoDaysAgo = Instant.now().minus(2, ChronoUnit.DAYS);
+
+        // An order from before the cutoff is already in the history; one placed during the rebuild is not
+        engine.recordDemand(1L, Map.of(100L, 5), twoDaysAgo);
+        doAnswer(invocation -> {
+            engine.recordDemand(1L, Map.of(100L, 50), Instant.now());
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(dailyTotal(1L, 100L, today.minusDays(2), 5));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        engine.rebuildFromOrders();
+        engine.publish();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), update.capture());
+        // The closed days are two days ago (5) and yesterday (0); today's 50 is still open
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class)
+                .getDouble("demand_forecast.daily_avg")).isEqualTo(2.5);
+    }
+
+    @Test
+    void publishesOncePerDayWithTheSameRunId() throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(dailyTotal(1L, 100L, LocalDate.now(ZoneOffset.UTC).minusDays(1), 5));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        engine.publish();
+        verify(bulkOperations, never()).execute();
+
+        engine.rebuildFromOrders();
+        engine.publish();
+        engine.recordDemand(1L, Map.of(100L, 3), Instant.now());
+        engine.publish();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(1)).upsert(any(Query.class), update.capture());
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class)
+                .getString("metadata.prediction_run_id"))
+                .isEqualTo(DemandForecastEngine.SOURCE + "-1-" + LocalDate.now(ZoneOffset.UTC));
+    }
+
+    private static ResultSet dailyTotal(Long warehouseId, Long productId, LocalDate day, int quantity) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("warehouse_id")).thenReturn(warehouseId);
+        when(rs.getLong("product_id")).thenReturn(productId);
+        when(rs.getDate("day")).thenReturn(Date.valueOf(day));
+        when(rs.getInt("quantity")).thenReturn(quantity);
+        return rs;
+    }
+}
@@ -0,0 +1,114 @@
+package com.stockly.service.impl.command;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DemandSeriesTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void steadyDemandForecastsTheDailyRate() {
+        DemandSeries series = new DemandSeries(28, 0.2);
+        for (long day = 0; day < 28; day++) {
+            series.record(day, 10);
+        }
+
+        DemandSeries.Forecast forecast = series.forecast(28);
+
+        assertThat(forecast.dailyAverage()).isCloseTo(10, within(TOLERANCE));
+        assertThat(forecast.dailyPredicted()).isCloseTo(10, within(TOLERANCE));
+        assertThat(forecast.dailyStdDev()).isCloseTo(0, within(TOLERANCE));
+    }
+
+    @Test
+    void openDayIsNotPartOfTheForecast() {
+        DemandSeries series = new DemandSeries(28, 0.2);
+        series.record(0, 10);
+
+        assertThat(series.forecast(0)).isEqualTo(new DemandSeries.Forecast(0, 0, 0));
+        assertThat(series.forecast(1).dailyAverage()).isCloseTo(10, within(TOLERANCE));
+    }
+
+    @Test
+    void smoothingWeightsRecentDaysMoreThanTheAverage() {
+        DemandSeries series = new DemandSeries(28, 0.5);
+        series.record(0, 10);
+        series.record(1, 20);
+        series.record(2, 40);
+
+        DemandSeries.Forecast forecast = series.forecast(3);
+
+        // 10, then 0.5 * 20 + 0.5 * 10 = 15, then 0.5 * 40 + 0.5 * 15 = 27.5
+        assertThat(forecast.dailyPredicted()).isCloseTo(27.5, within(TOLERANCE));
+        assertThat(forecast.dailyAverage()).isCloseTo(70.0 / 3, within(TOLERANCE));
+    }
+
+    @Test
+    void daysWithoutDemandDecayTheLevel() {
+        DemandSeries series = new DemandSeries(28, 0.5);
+        series.record(0, 8);
+
+        DemandSeries.Forecast forecast = series.forecast(3);
+
+        // Days 1 and 2 had no demand, so the level halves twice and both count as zero days
+        assertThat(forecast.dailyPredicted()).isCloseTo(2, within(TOLERANCE));
+        assertThat(forecast.dailyAverage()).isCloseTo(8.0 / 3, within(TOLERANCE));
+    }
+
+    @Test
+    void intermittentDemandUsesTheSyntetosBoylanEstimate() {
+        DemandSeries series = new DemandSeries(28, 0.2);
+        for (long day = 0; day < 30; day += 3) {
+            series.record(day, 6);
+        }
+
+        DemandSeries.Forecast forecast = series.forecast(30);
+
+        // Croston size stays at 6 and the interval moves from 1 towards 3: 1, 1.4, 1.72, ... 2.7315645
+        double interval = 1;
+        for (int i = 0; i < 9; i++) {
+            interval += 0.2 * (3 - interval);
+        }
+        assertThat(forecast.dailyPredicted()).isCloseTo((1 - 0.1) * 6 / interval, within(TOLERANCE));
+        assertThat(forecast.dailyAverage()).isCloseTo(54.0 / 28, within(TOLERANCE));
+    }
+
+    @Test
+    void onlyTheLastWindowOfDaysIsAveraged() {
+        DemandSeries series = new DemandSeries(3, 0.2);
+        for (long day = 0; day < 5; day++) {
+            series.record(day, (int) day + 1);
+        }
+
+        DemandSeries.Forecast forecast = series.forecast(5);
+
+        // Days 2, 3 and 4 remain with 3, 4 and 5
+        assertThat(forecast.dailyAverage()).isCloseTo(4, within(TOLERANCE));
+        assertThat(forecast.dailyStdDev()).isCloseTo(Math.sqrt(2.0 / 3), within(TOLERANCE));
+    }
+
+    @Test
+    void gapsLongerThanTheWindowLeaveOnlyZeroDays() {
+        DemandSeries series = new DemandSeries(4, 0.2);
+        series.record(0, 10);
+
+        DemandSeries.Forecast forecast = series.forecast(100);
+
+        assertThat(forecast.dailyAverage()).isZero();
+        assertThat(forecast.dailyStdDev()).isZero();
+    }
+
+    @Test
+    void lateDemandIsCountedTowardsTheOpenDay() {
+        DemandSeries series = new DemandSeries(28, 0.2);
+        series.record(5, 10);
+        series.record(3, 4);
+
+        DemandSeries.Forecast forecast = series.forecast(6);
+
+        assertThat(forecast.dailyAverage()).isCloseTo(14, within(TOLERANCE));
+    }
+}
@@ -0,0 +1,228 @@
+package com.stockly.service.impl.command;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.stockly.model.EmailOutboxMessage;
+import com.stockly.model.enums.EmailOutboxStatus;
+import com.stockly.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the dispatcher against a GreenMail SMTP server, with the outbox table replaced by an in-memory queue.
+ */
+class EmailDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 600;
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final Map<Long, EmailOutboxMessage> messages = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final ConcurrentLinkedDeque<Long> due = new ConcurrentLinkedDeque<>();
+    private final List<Integer> claimLimits = new CopyOnWriteArrayList<>();
+    private final Set<Transport> borrowedTransports = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private EmailOutboxRepository emailOutboxRepository;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool transportPool;
+    private EmailDispatcher emailDispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        emailOutboxRepository = mock(EmailOutboxRepository.class);
+        // Mirrors claimDue: takes up to the limit of due messages and counts the attempt
+        when(emailOutboxRepository.claimDue(any(Instant.class), any(Instant.class), anyInt())).thenAnswer(invocation -> {
+            int limit = invocation.getArgument(2);
+            claimLimits.add(limit);
+            List<Long> ids = new ArrayList<>();
+            Long id;
+            while (ids.size() < limit && (id = due.pollFirst()) != null) {
+                EmailOutboxMessage message = messages.get(id);
+                message.setStatus(EmailOutboxStatus.SENDING);
+                message.setAttempts(message.getAttempts() + 1);
+                ids.add(id);
+            }
+            return ids;
+        });
+        when(emailOutboxRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            return StreamSupport.stream(ids.spliterator(), false).map(messages::get).toList();
+        });
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setProtocol(ServerSetupTest.SMTP.getProtocol());
+        mailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        mailSender.setDefaultEncoding("UTF-8");
+        mailSender.getJavaMailProperties().put("mail.smtp.from", "stockly@example.com");
+
+        transportPool = spy(new SmtpTransportPool(mailSender));
+        doAnswer(invocation -> {
+            Transport transport = (Transport) invocation.callRealMethod();
+            borrowedTransports.add(transport);
+            return transport;
+        }).when(transportPool).borrow();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (emailDispatcher != null) {
+            emailDispatcher.stop();
+        }
+        transportPool.shutdown();
+    }
+
+    @Test
+    void claimsNoMoreMessagesThanThereAreIdleWorkers() {
+        for (long id = 1; id <= 7; id++) {
+            queue(id, "user" + id + "@example.com", 0);
+        }
+
+        startDispatcher(2);
+
+        verify(emailOutboxRepository, timeout(5_000).times(7)).markSent(anyLong(), any(Instant.class));
+        assertThat(greenMail.getReceivedMessages()).hasSize(7);
+        assertThat(claimLimits).isNotEmpty().allSatisfy(limit -> assertThat(limit).isBetween(1, 2));
+        assertThat(messages.values()).allSatisfy(message -> assertThat(message.getAttempts()).isEqualTo(1));
+    }
+
+    @Test
+    void sequentialMessagesReuseOnePooledConnection() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            queue(id, "user" + id + "@example.com", 0);
+        }
+
+        startDispatcher(1);
+
+        verify(emailOutboxRepository, timeout(5_000).times(3)).markSent(anyLong(), any(Instant.class));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).extracting(MimeMessage::getSubject).containsExactly("Subject 1", "Subject 2", "Subject 3");
+        assertThat(borrowedTransports).hasSize(1);
+        verify(transportPool, never()).discard(any(Transport.class));
+    }
+
+    @Test
+    void failedDeliveryIsRetriedWithExponentialBackoff() {
+        greenMail.stop();
+        // One attempt so far gets the initial backoff; the seventh would get 30s << 6, which is over the cap
+        queue(1L, "first@example.com", 0);
+        queue(2L, "seventh@example.com", 6);
+
+        startDispatcher(2);
+
+        assertThat(retryDelay(1L)).isBetween(scaled(INITIAL_BACKOFF_SECONDS, 0.8), scaled(INITIAL_BACKOFF_SECONDS, 1.2));
+        assertThat(retryDelay(2L)).isBetween(scaled(MAX_BACKOFF_SECONDS, 0.8), scaled(MAX_BACKOFF_SECONDS, 1.2));
+        verify(emailOutboxRepository, never()).markSent(anyLong(), any(Instant.class));
+    }
+
+    @Test
+    void deliveryResumesOnceTheServerIsReachableAgain() {
+        greenMail.stop();
+        queue(1L, "first@example.com", 0);
+        startDispatcher(1);
+        verify(emailOutboxRepository, timeout(5_000)).markUndelivered(eq(1L), eq(EmailOutboxStatus.PENDING),
+                any(Instant.class), anyString(), any(Instant.class));
+
+        greenMail.start();
+        queue(2L, "second@example.com", 0);
+        emailDispatcher.wakeUp();
+
+        verify(emailOutboxRepository, timeout(5_000)).markSent(eq(2L), any(Instant.class));
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void messageIsMarkedFailedOnceAttemptsRunOut() {
+        greenMail.stop();
+        queue(1L, "last@example.com", MAX_ATTEMPTS - 1);
+
+        startDispatcher(1);
+
+        verify(emailOutboxRepository, timeout(5_000)).markUndelivered(eq(1L), eq(EmailOutboxStatus.FAILED),
+                any(Instant.class), anyString(), any(Instant.class));
+        verify(emailOutboxRepository, never()).markUndelivered(eq(1L), eq(EmailOutboxStatus.PENDING),
+                any(Instant.class), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void malformedAddressIsMarkedFailedWithoutRetrying() {
+        queue(1L, "not an address", 0);
+
+        startDispatcher(1);
+
+        ArgumentCaptor<String> error = ArgumentCaptor.forClass(String.class);
+        verify(emailOutboxRepository, timeout(5_000)).markUndelivered(eq(1L), eq(EmailOutboxStatus.FAILED),
+                any(Instant.class), error.capture(), any(Instant.class));
+        assertThat(error.getValue()).startsWith("AddressException");
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    private void startDispatcher(int workers) {
+        emailDispatcher = new EmailDispatcher(emailOutboxRepository, mailSender, transportPool, new SimpleMeterRegistry(),
+                workers, 20, 50, 120, MAX_ATTEMPTS, INITIAL_BACKOFF_SECONDS, MAX_BACKOFF_SECONDS, 7);
+        emailDispatcher.start();
+    }
+
+    private void queue(Long id, String recipient, int attempts) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setId(id);
+        message.setRecipient(recipient);
+        message.setSubject("Subject " + id);
+        message.setBody("<p>Body " + id + "</p>");
+        message.setAttempts(attempts);
+        message.setCreatedAt(Instant.now());
+        messages.put(id, message);
+        due.addLast(id);
+    }
+
+    // The delay the dispatcher picked between recording the failure and the next attempt
+    private Duration retryDelay(Long id) {
+        ArgumentCaptor<Instant> nextAttemptAt = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        verify(emailOutboxRepository, timeout(5_000)).markUndelivered(eq(id), eq(EmailOutboxStatus.PENDING),
+                nextAttemptAt.capture(), anyString(), now.capture());
+        return Duration.between(now.getValue(), nextAttemptAt.getValue());
+    }
+
+    private static Duration scaled(long seconds, double factor) {
+        return Duration.ofMillis((long) (seconds * 1000 * factor));
+    }
+}
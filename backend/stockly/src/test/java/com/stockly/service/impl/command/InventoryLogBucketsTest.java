@@ -0,0 +1,125 @@
+package com.stockly.service.impl.command;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryLogBucketsTest {
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final YearMonth CURRENT = YearMonth.now(ZoneOffset.UTC);
+
+    private MongoTemplate mongoTemplate;
+    private Set<String> collectionNames;
+    private InventoryLogBuckets inventoryLogBuckets;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        collectionNames = new HashSet<>();
+        when(mongoTemplate.getCollectionNames()).thenAnswer(invocation -> Set.copyOf(collectionNames));
+        when(mongoTemplate.indexOps(anyString())).thenAnswer(invocation -> {
+            collectionNames.add(invocation.getArgument(0));
+            return mock(IndexOperations.class);
+        });
+        inventoryLogBuckets = new InventoryLogBuckets(mongoTemplate, 3);
+    }
+
+    @Test
+    void routesLogsByUtcMonth() {
+        assertThat(inventoryLogBuckets.collectionFor(Instant.parse("2026-01-31T23:59:59Z"))).isEqualTo("inventory_logs_202601");
+        assertThat(inventoryLogBuckets.collectionFor(Instant.parse("2026-02-01T00:00:00Z"))).isEqualTo("inventory_logs_202602");
+        assertThat(inventoryLogBuckets.collectionFor(null)).isEqualTo(bucket(CURRENT));
+    }
+
+    @Test
+    void createsTheCurrentAndNextBucketOnStartupAndIndexesEachOnce() {
+        inventoryLogBuckets.init();
+        inventoryLogBuckets.ensureBucket(bucket(CURRENT));
+        inventoryLogBuckets.ensureBucket(bucket(CURRENT));
+
+        verify(mongoTemplate, times(1)).indexOps(bucket(CURRENT));
+        verify(mongoTemplate, times(1)).indexOps(bucket(CURRENT.plusMonths(1)));
+    }
+
+    @Test
+    void listsBucketsInRangeInTheRequestedOrderWithTheLegacyCollectionLast() {
+        collectionNames.addAll(Set.of("inventory_logs_202601", "inventory_logs_202602", "inventory_logs_202603",
+                "inventory_logs", "inventory_logs_backup", "predictions_202602"));
+        inventoryLogBuckets.init();
+
+        assertThat(inventoryLogBuckets.collectionsFor(Instant.parse("2026-02-10T00:00:00Z"),
+                Instant.parse("2026-03-05T00:00:00Z"), Sort.Direction.DESC))
+                .containsExactly("inventory_logs_202603", "inventory_logs_202602", "inventory_logs");
+        assertThat(inventoryLogBuckets.collectionsFor(null, Instant.parse("2026-02-10T00:00:00Z"), Sort.Direction.ASC))
+                .containsExactly("inventory_logs_202601", "inventory_logs_202602", "inventory_logs");
+    }
+
+    @Test
+    void rolloverDropsBucketsPastRetentionAndTheEmptyLegacyCollection() {
+        String expired = bucket(CURRENT.minusMonths(3));
+        String oldestKept = bucket(CURRENT.minusMonths(2));
+        collectionNames.addAll(Set.of(expired, oldestKept, "inventory_logs"));
+        inventoryLogBuckets.init();
+        when(mongoTemplate.exists(any(Query.class), eq("inventory_logs"))).thenReturn(false);
+
+        inventoryLogBuckets.rollover();
+
+        verify(mongoTemplate).dropCollection(expired);
+        verify(mongoTemplate, never()).dropCollection(oldestKept);
+        verify(mongoTemplate).dropCollection("inventory_logs");
+        assertThat(inventoryLogBuckets.collectionsFor(null, null, Sort.Direction.ASC))
+                .containsExactly(oldestKept, bucket(CURRENT), bucket(CURRENT.plusMonths(1)));
+    }
+
+    @Test
+    void rolloverKeepsTheLegacyCollectionWhileItHoldsLogs() {
+        collectionNames.add("inventory_logs");
+        inventoryLogBuckets.init();
+        when(mongoTemplate.exists(any(Query.class), eq("inventory_logs"))).thenReturn(true);
+
+        inventoryLogBuckets.rollover();
+
+        verify(mongoTemplate, never()).dropCollection("inventory_logs");
+        assertThat(inventoryLogBuckets.collectionsFor(null, null, Sort.Direction.ASC)).endsWith("inventory_logs");
+    }
+
+    @Test
+    void rolloverPicksUpBucketsChangedByOtherInstances() {
+        inventoryLogBuckets.init();
+        String createdElsewhere = bucket(CURRENT.minusMonths(1));
+        collectionNames.add(createdElsewhere);
+        collectionNames.remove(bucket(CURRENT.plusMonths(1)));
+
+        inventoryLogBuckets.rollover();
+
+        assertThat(inventoryLogBuckets.collectionsFor(null, null, Sort.Direction.ASC))
+                .containsExactly(createdElsewhere, bucket(CURRENT), bucket(CURRENT.plusMonths(1)));
+        // The dropped next-month bucket is created again, with its indexes
+        verify(mongoTemplate, times(2)).indexOps(bucket(CURRENT.plusMonths(1)));
+    }
+
+    private static String bucket(YearMonth month) {
+        return "inventory_logs_" + month.format(MONTH_FORMATTER);
+    }
+}
@@ -0,0 +1,96 @@
+package com.stockly.service.impl.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.stockly.model.InventoryLog;
+import com.stockly.service.command.InventoryMovementRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryLogWriterTest {
+
+    private BulkOperations bulkOperations;
+    private InventoryMovementRollupService rollupService;
+    private InventoryLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(InventoryLog.class), anyString()))
+                .thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+
+        InventoryLogBuckets buckets = mock(InventoryLogBuckets.class);
+        when(buckets.collectionFor(any())).thenReturn("inventory_logs_202601");
+
+        rollupService = mock(InventoryMovementRollupService.class);
+        writer = new InventoryLogWriter(mongoTemplate, buckets, rollupService, new ObjectMapper(),
+                new SimpleMeterRegistry(), 100, 100, 50, 100, false, "unused.ndjson");
+    }
+
+    @Test
+    void assignsIdsWhenPublishing() throws InterruptedException {
+        InventoryLog inventoryLog = newLog(1);
+
+        writer.start();
+        writer.publish(inventoryLog);
+        writer.stop();
+
+        assertThat(inventoryLog.getId()).hasSize(24);
+    }
+
+    @Test
+    void duplicateLogsAreSkippedAndNotRolledUpAgain() throws InterruptedException {
+        List<InventoryLog> logs = List.of(newLog(1), newLog(2), newLog(3));
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("duplicate", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of())));
+
+        writer.start();
+        logs.forEach(writer::publish);
+        writer.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventoryLog>> rolledUp = ArgumentCaptor.forClass(List.class);
+        verify(rollupService, atLeastOnce()).apply(rolledUp.capture());
+        List<InventoryLog> applied = new ArrayList<>();
+        rolledUp.getAllValues().forEach(applied::addAll);
+        assertThat(applied).hasSize(2).doesNotContain(logs.get(1));
+    }
+
+    private static InventoryLog newLog(int quantityChange) {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setWarehouseId(1L);
+        inventoryLog.setProductId(100L);
+        inventoryLog.setActionType("ORDER");
+        inventoryLog.setQuantityChange(-quantityChange);
+        inventoryLog.setTimestamp(Instant.parse("2026-01-15T10:00:00Z"));
+        return inventoryLog;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.exception.BusinessException;
+import com.stockly.model.InventoryMovementRollup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class InventoryMovementRollupServiceImplTest {
+
+    private static final Instant TODAY = Instant.now().truncatedTo(ChronoUnit.DAYS);
+
+    private MongoTemplate mongoTemplate;
+    private InventoryLogBuckets inventoryLogBuckets;
+    private InventoryMovementRollupServiceImpl inventoryMovementRollupService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        inventoryLogBuckets = mock(InventoryLogBuckets.class);
+        when(inventoryLogBuckets.collectionsFor(any(), any(), eq(Sort.Direction.ASC))).thenReturn(List.of());
+        inventoryMovementRollupService = new InventoryMovementRollupServiceImpl(mongoTemplate, inventoryLogBuckets);
+    }
+
+    @Test
+    void refusesRangesReachingIntoTheCurrentDay() {
+        assertThatThrownBy(() -> inventoryMovementRollupService.rebuild(TODAY.minus(2, ChronoUnit.DAYS), TODAY.plusSeconds(1)))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> inventoryMovementRollupService.rebuild(TODAY.plusSeconds(60), TODAY.plusSeconds(120)))
+                .isInstanceOf(BusinessException.class);
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void rebuildsEveryClosedDayTouchedByTheRange() {
+        long logs = inventoryMovementRollupService.rebuild(TODAY.minus(3, ChronoUnit.DAYS).plusSeconds(3600), TODAY);
+
+        assertThat(logs).isZero();
+        verify(mongoTemplate, times(3)).remove(any(Query.class), eq(InventoryMovementRollup.class));
+    }
+}
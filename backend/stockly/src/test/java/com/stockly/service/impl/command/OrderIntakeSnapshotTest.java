@@ -0,0 +1,123 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.request.OrderItemRequest;
+import com.stockly.exception.BusinessException;
+import com.stockly.exception.ResourceNotFoundException;
+import com.stockly.model.Product;
+import com.stockly.model.Warehouse;
+import com.stockly.model.WarehouseProduct;
+import com.stockly.repository.ProductRepository;
+import com.stockly.repository.WarehouseProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeSnapshotTest {
+
+    private static final Long WAREHOUSE_ID = 1L;
+
+    private ProductRepository productRepository;
+    private WarehouseProductRepository warehouseProductRepository;
+    private Warehouse warehouse;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        warehouseProductRepository = mock(WarehouseProductRepository.class);
+        warehouse = new Warehouse();
+        warehouse.setId(WAREHOUSE_ID);
+        warehouse.setName("Main");
+    }
+
+    @Test
+    void loadsAllProductsAndStockRowsWithOneQueryEach() {
+        List<Product> products = LongStream.rangeClosed(1, 50).mapToObj(OrderIntakeSnapshotTest::product).toList();
+        when(productRepository.findAllById(any())).thenReturn(products);
+        when(warehouseProductRepository.findByWarehouseIdAndProductIds(eq(WAREHOUSE_ID), anySet()))
+                .thenReturn(products.stream().map(product -> stock(product, 10)).toList());
+
+        // Every product is ordered twice, so 100 lines resolve to 50 distinct ids
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(item(i % 50 + 1L, 1));
+        }
+        OrderIntakeSnapshot snapshot = OrderIntakeSnapshot.load(warehouse, items, productRepository, warehouseProductRepository);
+        snapshot.checkAvailability(items);
+        items.forEach(item -> snapshot.getStock(item.getProductId()));
+
+        Set<Long> productIds = LongStream.rangeClosed(1, 50).boxed().collect(Collectors.toSet());
+        verify(productRepository, times(1)).findAllById(productIds);
+        verify(warehouseProductRepository, times(1)).findByWarehouseIdAndProductIds(WAREHOUSE_ID, productIds);
+        verifyNoMoreInteractions(productRepository, warehouseProductRepository);
+        assertThat(snapshot.getProducts()).hasSize(50);
+    }
+
+    @Test
+    void sumsRepeatedLinesBeforeCheckingStock() {
+        Product product = product(1L);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(warehouseProductRepository.findByWarehouseIdAndProductIds(eq(WAREHOUSE_ID), anySet()))
+                .thenReturn(List.of(stock(product, 5)));
+        List<OrderItemRequest> items = List.of(item(1L, 3), item(1L, 3));
+
+        OrderIntakeSnapshot snapshot = OrderIntakeSnapshot.load(warehouse, items, productRepository, warehouseProductRepository);
+
+        assertThatThrownBy(() -> snapshot.checkAvailability(items))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Available: 5, Requested: 6");
+    }
+
+    @Test
+    void rejectsUnknownProductsAndProductsWithoutStock() {
+        Product product = product(1L);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(warehouseProductRepository.findByWarehouseIdAndProductIds(eq(WAREHOUSE_ID), anySet()))
+                .thenReturn(List.of());
+
+        OrderIntakeSnapshot snapshot = OrderIntakeSnapshot.load(warehouse, List.of(item(1L, 1), item(2L, 1)),
+                productRepository, warehouseProductRepository);
+
+        assertThatThrownBy(() -> snapshot.getProduct(2L)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> snapshot.getStock(1L))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Product Product 1 not available in warehouse Main");
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle("Product " + id);
+        return product;
+    }
+
+    private WarehouseProduct stock(Product product, int quantity) {
+        WarehouseProduct warehouseProduct = new WarehouseProduct();
+        warehouseProduct.setWarehouse(warehouse);
+        warehouseProduct.setProduct(product);
+        warehouseProduct.setQuantity(quantity);
+        return warehouseProduct;
+    }
+
+    private static OrderItemRequest item(Long productId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
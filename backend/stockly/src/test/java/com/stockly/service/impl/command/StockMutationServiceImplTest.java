@@ -0,0 +1,240 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.StockMutationResult;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the conditional stock UPDATE against a real PostgreSQL instance with many concurrent writers.
+ */
+class StockMutationServiceImplTest {
+
+    private static final int WRITERS = 64;
+    private static final int MUTATIONS_PER_WRITER = 50;
+    private static final long WAREHOUSE_ID = 1L;
+
+    private static EmbeddedPostgres postgres;
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    private StockMutationServiceImpl stockMutationService;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+
+        // One pooled connection per writer, so the writers contend on row locks rather than on connecting
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(postgres.getPostgresDatabase());
+        config.setMaximumPoolSize(WRITERS);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // The schema comes from the application's own changelog, so the test also covers the migrations
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:/db/migration/changelog/changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE warehouses, products, warehouse_products, stock_movements, stock_snapshots CASCADE");
+        jdbcTemplate.update("INSERT INTO warehouses (id, name) VALUES (?, 'Main')", WAREHOUSE_ID);
+        stockMutationService = new StockMutationServiceImpl(jdbcTemplate);
+    }
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        int initialQuantity = WRITERS * MUTATIONS_PER_WRITER / 2;
+        insertStock(100L, initialQuantity);
+
+        List<StockMutationResult> results = runConcurrently(writer ->
+                stockMutationService.adjustQuantity(WAREHOUSE_ID, 100L, -1));
+
+        long applied = results.stream().filter(result -> result.failedProductIds().isEmpty()).count();
+        assertThat(applied).isEqualTo(initialQuantity);
+        assertThat(quantityOf(100L)).isZero();
+        assertThat(snapshotOf(100L)).isZero();
+    }
+
+    @Test
+    void concurrentMixedChangesAreAllApplied() throws Exception {
+        insertStock(100L, 1_000);
+
+        // Half the writers restock and half sell, so every change must land without being overwritten
+        runConcurrently(writer -> stockMutationService.adjustQuantity(WAREHOUSE_ID, 100L, writer % 2 == 0 ? 3 : -2));
+
+        int expected = 1_000 + (WRITERS / 2) * MUTATIONS_PER_WRITER * (3 - 2);
+        assertThat(quantityOf(100L)).isEqualTo(expected);
+        assertThat(snapshotOf(100L)).isEqualTo(expected);
+        assertThat(movedQuantityOf(100L)).isEqualTo(expected - 1_000);
+    }
+
+    @Test
+    void overlappingBatchesInOppositeOrderDoNotDeadlock() throws Exception {
+        insertStock(100L, 100_000);
+        insertStock(200L, 100_000);
+        insertStock(300L, 100_000);
+
+        // Writers pass the same products in different orders; the service sorts them before locking
+        runConcurrently(writer -> stockMutationService.adjustQuantities(WAREHOUSE_ID, writer % 2 == 0
+                ? orderedDeltas(100L, 200L, 300L)
+                : orderedDeltas(300L, 200L, 100L)));
+
+        int expected = 100_000 - WRITERS * MUTATIONS_PER_WRITER;
+        assertThat(quantityOf(100L)).isEqualTo(expected);
+        assertThat(quantityOf(200L)).isEqualTo(expected);
+        assertThat(quantityOf(300L)).isEqualTo(expected);
+    }
+
+    @Test
+    void concurrentRaisesToTheSameTargetNeverOvershoot() throws Exception {
+        insertStock(100L, 10);
+
+        // Restock runs and sales race on the same row; a raise must never add more than the gap at that moment
+        List<StockMutationResult> results = runConcurrently(writer -> writer % 2 == 0
+                ? stockMutationService.raiseQuantities(WAREHOUSE_ID, Map.of(100L, 50))
+                : stockMutationService.adjustQuantity(WAREHOUSE_ID, 100L, -1));
+
+        assertThat(quantityOf(100L)).isBetween(0, 50);
+        assertThat(snapshotOf(100L)).isEqualTo(quantityOf(100L));
+        assertThat(movedQuantityOf(100L)).isEqualTo(quantityOf(100L) - 10);
+        assertThat(results).allSatisfy(result -> assertThat(result.applied()).allSatisfy(line ->
+                assertThat(line.newQuantity()).isLessThanOrEqualTo(50)));
+    }
+
+    @Test
+    void raiseLeavesRowsAtOrAboveTheTargetUntouched() {
+        insertStock(100L, 80);
+        insertStock(200L, 20);
+
+        StockMutationResult result = stockMutationService.raiseQuantities(WAREHOUSE_ID, Map.of(100L, 50, 200L, 50));
+
+        assertThat(result.failedProductIds()).containsExactly(100L);
+        assertThat(result.applied()).singleElement().satisfies(line -> {
+            assertThat(line.productId()).isEqualTo(200L);
+            assertThat(line.previousQuantity()).isEqualTo(20);
+            assertThat(line.newQuantity()).isEqualTo(50);
+        });
+        assertThat(quantityOf(100L)).isEqualTo(80);
+        assertThat(movedQuantityOf(100L)).isZero();
+        assertThat(movedQuantityOf(200L)).isEqualTo(30);
+    }
+
+    @Test
+    void stockAtAddsTodaysMovementsToYesterdaysSnapshot() {
+        insertStock(100L, 40);
+        jdbcTemplate.update("""
+            INSERT INTO stock_snapshots (warehouse_id, product_id, snapshot_day, closing_quantity)
+            VALUES (?, ?, CAST(now() AT TIME ZONE 'UTC' AS DATE) - 1, 40)
+        """, WAREHOUSE_ID, 100L);
+
+        stockMutationService.adjustQuantity(WAREHOUSE_ID, 100L, 5);
+        stockMutationService.adjustQuantity(WAREHOUSE_ID, 100L, -2);
+
+        Integer stockNow = jdbcTemplate.queryForObject("SELECT stock_at(?, ?, clock_timestamp())",
+                Integer.class, WAREHOUSE_ID, 100L);
+        assertThat(stockNow).isEqualTo(43).isEqualTo(quantityOf(100L));
+    }
+
+    private List<StockMutationResult> runConcurrently(Mutation mutation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<StockMutationResult>>> futures = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int writerIndex = writer;
+                Callable<List<StockMutationResult>> task = () -> {
+                    start.await();
+                    List<StockMutationResult> results = new ArrayList<>();
+                    for (int i = 0; i < MUTATIONS_PER_WRITER; i++) {
+                        results.add(mutation.apply(writerIndex));
+                    }
+                    return results;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            List<StockMutationResult> results = new ArrayList<>();
+            for (Future<List<StockMutationResult>> future : futures) {
+                results.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<Long, Integer> orderedDeltas(Long... productIds) {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            deltas.put(productId, -1);
+        }
+        return deltas;
+    }
+
+    private static void insertStock(long productId, int quantity) {
+        jdbcTemplate.update("""
+            INSERT INTO products (id, title, price, sku, created_at, updated_at)
+            VALUES (?, 'Product', 0, ?, now(), now())
+        """, productId, "SKU-" + productId);
+        jdbcTemplate.update("""
+            INSERT INTO warehouse_products (warehouse_id, product_id, quantity, availability, created_at, updated_at)
+            VALUES (?, ?, ?, 'IN_STOCK', now(), now())
+        """, WAREHOUSE_ID, productId, quantity);
+    }
+
+    private static int quantityOf(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT quantity FROM warehouse_products WHERE warehouse_id = ? AND product_id = ?",
+                Integer.class, WAREHOUSE_ID, productId);
+    }
+
+    private static int snapshotOf(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT closing_quantity FROM stock_snapshots WHERE warehouse_id = ? AND product_id = ?",
+                Integer.class, WAREHOUSE_ID, productId);
+    }
+
+    private static int movedQuantityOf(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(delta), 0) FROM stock_movements WHERE warehouse_id = ? AND product_id = ?",
+                Integer.class, WAREHOUSE_ID, productId);
+    }
+
+    @FunctionalInterface
+    private interface Mutation {
+        StockMutationResult apply(int writer);
+    }
+}
@@ -0,0 +1,199 @@
+package com.stockly.service.impl.command;
+
+import com.stockly.dto.StockMutationResult;
+import com.stockly.repository.WarehouseProductRepository;
+import com.stockly.service.command.StockMutationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockReservationLedgerTest {
+
+    private static final long WAREHOUSE_ID = 1L;
+    private static final long PRODUCT_ID = 100L;
+
+    private final AtomicInteger databaseQuantity = new AtomicInteger(10);
+    private StockMutationService stockMutationService;
+    private StockReservationLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        stockMutationService = mock(StockMutationService.class);
+        WarehouseProductRepository warehouseProductRepository = mock(WarehouseProductRepository.class);
+        when(warehouseProductRepository.findStock(eq(PRODUCT_ID), eq(WAREHOUSE_ID)))
+                .thenAnswer(invocation -> databaseQuantity.get());
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("product_id")).thenReturn(PRODUCT_ID);
+            when(rs.getInt("quantity")).thenReturn(databaseQuantity.get());
+            invocation.<RowCallbackHandler>getArgument(2).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+        ledger = new StockReservationLedger(8, 500, stockMutationService, warehouseProductRepository,
+                jdbcTemplate, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void reservesUntilStockIsExhausted() {
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -6)).isSuccessful()).isTrue();
+
+        StockMutationResult rejected = ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -5));
+
+        assertThat(rejected.failedProductIds()).containsExactly(PRODUCT_ID);
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -4)).isSuccessful()).isTrue();
+    }
+
+    @Test
+    void resyncDuringFlushKeepsInFlightDeltas() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+
+        // A resync lands while the flush transaction has not committed yet
+        when(stockMutationService.adjustQuantities(anyLong(), anyMap())).thenAnswer(invocation -> {
+            ledger.resync(WAREHOUSE_ID, PRODUCT_ID);
+            return new StockMutationResult(List.of(new StockMutationResult.AppliedLine(PRODUCT_ID, 10, 7)), Set.of());
+        });
+        ledger.flush();
+        databaseQuantity.set(7);
+
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -8)).isSuccessful()).isFalse();
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -7)).isSuccessful()).isTrue();
+    }
+
+    @Test
+    void failedFlushReturnsDeltasToPending() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+
+        when(stockMutationService.adjustQuantities(anyLong(), anyMap())).thenThrow(new IllegalStateException("database down"));
+        ledger.flush();
+        ledger.resync(WAREHOUSE_ID, PRODUCT_ID);
+
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -8)).isSuccessful()).isFalse();
+    }
+
+    @Test
+    void onlyCommittedReservationsAreFlushed() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+            ledger.flush();
+            verify(stockMutationService, never()).adjustQuantities(anyLong(), anyMap());
+
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        when(stockMutationService.adjustQuantities(anyLong(), anyMap()))
+                .thenReturn(new StockMutationResult(List.of(), Set.of()));
+        ledger.flush();
+        verify(stockMutationService).adjustQuantities(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+    }
+
+    @Test
+    void rolledBackReservationsAreReleased() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -10));
+            assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -1)).isSuccessful()).isFalse();
+
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ledger.flush();
+        verify(stockMutationService, never()).adjustQuantities(anyLong(), anyMap());
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -10)).isSuccessful()).isTrue();
+    }
+
+    @Test
+    void consistencyCheckDoesNotCountPendingDeltasAsMismatches() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+
+        assertThat(ledger.verifyAgainstDatabase()).isEmpty();
+    }
+
+    @Test
+    void consistencyCheckCorrectsRowsChangedOutsideTheLedger() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3));
+        databaseQuantity.set(5);
+
+        assertThat(ledger.verifyAgainstDatabase()).hasSize(1);
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -3)).isSuccessful()).isFalse();
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -2)).isSuccessful()).isTrue();
+    }
+
+    @Test
+    void resyncInsideATransactionWaitsForTheCommit() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Restocked in the same transaction; the new quantity is not committed yet
+            databaseQuantity.set(20);
+            ledger.resync(WAREHOUSE_ID, PRODUCT_ID);
+            assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -15)).isSuccessful()).isFalse();
+
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -15)).isSuccessful()).isTrue();
+    }
+
+    @Test
+    void resyncIsDroppedWhenTheTransactionRollsBack() {
+        ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            databaseQuantity.set(20);
+            ledger.resync(WAREHOUSE_ID, PRODUCT_ID);
+            databaseQuantity.set(10);
+
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -10)).isSuccessful()).isFalse();
+        assertThat(ledger.reserve(WAREHOUSE_ID, Map.of(PRODUCT_ID, -9)).isSuccessful()).isTrue();
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,99 @@
+package com.stockly.service.impl.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockly.mapper.KeysetCursorMapper;
+import com.stockly.model.InventoryLog;
+import com.stockly.service.impl.command.InventoryLogBuckets;
+import com.stockly.service.query.InventoryLogQueryService.CountStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryLogQueryServiceImplTest {
+
+    private static final String NEWER = "inventory_logs_202602";
+    private static final String OLDER = "inventory_logs_202601";
+
+    private MongoTemplate mongoTemplate;
+    private InventoryLogQueryServiceImpl inventoryLogQueryService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        InventoryLogBuckets inventoryLogBuckets = mock(InventoryLogBuckets.class);
+        when(inventoryLogBuckets.collectionsFor(any(), any(), any())).thenReturn(List.of(NEWER, OLDER));
+        inventoryLogQueryService = new InventoryLogQueryServiceImpl(mongoTemplate, inventoryLogBuckets,
+                new KeysetCursorMapper(new ObjectMapper()), 10_000, 30, 1000, "tokens", 1000);
+    }
+
+    @Test
+    void otherSortsMergeBucketCursorsUpToTheRequestedRange() {
+        // Each bucket cursor is already in sort order, as MongoDB returns it
+        Map<String, List<InventoryLog>> buckets = Map.of(
+                NEWER, List.of(log("A"), log("C"), log("E"), log("G")),
+                OLDER, List.of(log("B"), log("D"), log("F"), log("H")));
+        AtomicInteger closed = new AtomicInteger();
+        when(mongoTemplate.stream(any(Query.class), eq(InventoryLog.class), anyString())).thenAnswer(invocation ->
+                buckets.get(invocation.<String>getArgument(2)).stream().onClose(closed::incrementAndGet));
+
+        Page<InventoryLog> page = inventoryLogQueryService.getInventoryLogsWithPagination(
+                PageRequest.of(1, 2, Sort.by("productSku")), CountStrategy.NONE,
+                null, null, null, null, null, null, null, null);
+
+        assertThat(page.getContent()).extracting(InventoryLog::getProductSku).containsExactly("C", "D");
+        assertThat(page.hasNext()).isTrue();
+        // No bucket needs more than offset + page size + 1 rows, and every cursor is closed afterwards
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).stream(queries.capture(), eq(InventoryLog.class), anyString());
+        assertThat(queries.getAllValues()).allSatisfy(query -> assertThat(query.getLimit()).isEqualTo(5));
+        assertThat(closed).hasValue(2);
+        verify(mongoTemplate, never()).find(any(Query.class), eq(InventoryLog.class), anyString());
+    }
+
+    @Test
+    void timestampSortSkipsWholeBucketsWithoutAFullCount() {
+        when(mongoTemplate.count(any(Query.class), eq(InventoryLog.class), eq(NEWER))).thenReturn(3L);
+        when(mongoTemplate.find(any(Query.class), eq(InventoryLog.class), eq(OLDER)))
+                .thenReturn(List.of(log("X"), log("Y")));
+
+        Page<InventoryLog> page = inventoryLogQueryService.getInventoryLogsWithPagination(
+                PageRequest.of(2, 2, Sort.by(Sort.Direction.DESC, "timestamp")), CountStrategy.CAPPED,
+                null, null, null, null, null, null, null, null);
+
+        assertThat(page.getContent()).extracting(InventoryLog::getProductSku).containsExactly("X", "Y");
+        ArgumentCaptor<Query> count = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).count(count.capture(), eq(InventoryLog.class), eq(NEWER));
+        assertThat(count.getValue().getLimit()).isEqualTo(5);
+        ArgumentCaptor<Query> find = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(find.capture(), eq(InventoryLog.class), eq(OLDER));
+        assertThat(find.getValue().getSkip()).isEqualTo(1);
+        verify(mongoTemplate, never()).find(any(Query.class), eq(InventoryLog.class), eq(NEWER));
+    }
+
+    private static InventoryLog log(String sku) {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setProductSku(sku);
+        inventoryLog.setTimestamp(Instant.parse("2026-01-15T00:00:00Z"));
+        return inventoryLog;
+    }
+}
@@ -0,0 +1,131 @@
+package com.stockly.service.impl.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stockly.dto.IncrementalOrderExportDTO;
+import com.stockly.dto.OrderExportChangeDTO;
+import com.stockly.exception.BusinessException;
+import com.stockly.projection.OrderExportChangeProjection;
+import com.stockly.projection.OrderExportProjection;
+import com.stockly.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderExportServiceTest {
+
+    private static final Instant ORDER_DATE = Instant.parse("2026-01-15T10:00:00Z");
+
+    private OrderRepository orderRepository;
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        orderExportService = new OrderExportService(orderRepository, mock(StockCalculationService.class),
+                new ObjectMapper().registerModule(new JavaTimeModule()), 300);
+    }
+
+    @Test
+    void parsesFormatsIgnoringCase() {
+        assertThat(OrderExportService.ExportFormat.from("csv")).isEqualTo(OrderExportService.ExportFormat.CSV);
+        assertThat(OrderExportService.ExportFormat.from("NDJSON")).isEqualTo(OrderExportService.ExportFormat.NDJSON);
+    }
+
+    @Test
+    void rejectsUnknownFormats() {
+        assertThatThrownBy(() -> OrderExportService.ExportFormat.from("xlsx"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("xlsx");
+    }
+
+    @Test
+    void streamsCsvWithHeader() throws Exception {
+        Stream<OrderExportProjection> rows = Stream.of(row(1L, 5), row(2L, 3));
+        when(orderRepository.streamOrdersForExport(any())).thenReturn(rows);
+
+        String csv = export(OrderExportService.ExportFormat.CSV);
+
+        assertThat(csv.lines()).hasSize(3);
+        assertThat(csv.lines().findFirst()).hasValue("productId,warehouseId,orderDate,quantity,currentStock,stockAtOrder");
+        assertThat(csv).contains("1,10,").contains("2,10,");
+    }
+
+    @Test
+    void streamsOneJsonObjectPerLine() throws Exception {
+        Stream<OrderExportProjection> rows = Stream.of(row(1L, 5), row(2L, 3));
+        when(orderRepository.streamOrdersForExport(any())).thenReturn(rows);
+
+        String ndjson = export(OrderExportService.ExportFormat.NDJSON);
+
+        assertThat(ndjson.lines()).hasSize(2).allSatisfy(line -> assertThat(line).startsWith("{").endsWith("}"));
+    }
+
+    @Test
+    void leavesChangesYoungerThanTheSafetyLagForLater() {
+        when(orderRepository.findOrderChangesForExport(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        Instant before = Instant.now();
+        orderExportService.exportOrderChanges(null, 100);
+
+        ArgumentCaptor<Instant> until = ArgumentCaptor.forClass(Instant.class);
+        verify(orderRepository).findOrderChangesForExport(eq(Instant.EPOCH), eq(0L), until.capture(), eq(100));
+        assertThat(until.getValue()).isBetween(before.minusSeconds(300), Instant.now().minusSeconds(300));
+    }
+
+    @Test
+    void reportsRemovedLinesAndResumesAfterTheLastOne() {
+        Instant updatedAt = Instant.parse("2026-01-15T11:00:00Z");
+        List<OrderExportChangeProjection> changes = List.of(change(7L, updatedAt, false), change(8L, updatedAt, true));
+        when(orderRepository.findOrderChangesForExport(any(), any(), any(), anyInt())).thenReturn(changes);
+
+        IncrementalOrderExportDTO export = orderExportService.exportOrderChanges(null, 2);
+
+        assertThat(export.lines()).extracting(OrderExportChangeDTO::deleted).containsExactly(false, true);
+        assertThat(export.hasMore()).isTrue();
+
+        orderExportService.exportOrderChanges(export.nextWatermark(), 2);
+        verify(orderRepository).findOrderChangesForExport(eq(updatedAt), eq(8L), any(), eq(2));
+    }
+
+    private String export(OrderExportService.ExportFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        orderExportService.streamOrders(ORDER_DATE, format, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static OrderExportChangeProjection change(Long orderItemId, Instant updatedAt, boolean deleted) {
+        OrderExportChangeProjection change = mock(OrderExportChangeProjection.class);
+        when(change.getOrderId()).thenReturn(1L);
+        when(change.getOrderItemId()).thenReturn(orderItemId);
+        when(change.getUpdatedAt()).thenReturn(updatedAt);
+        when(change.getDeleted()).thenReturn(deleted);
+        return change;
+    }
+
+    private static OrderExportProjection row(Long productId, int quantity) {
+        OrderExportProjection row = mock(OrderExportProjection.class);
+        when(row.getProductId()).thenReturn(productId);
+        when(row.getWarehouseId()).thenReturn(10L);
+        when(row.getOrderDate()).thenReturn(ORDER_DATE);
+        when(row.getQuantity()).thenReturn(quantity);
+        when(row.getCurrentStock()).thenReturn(100);
+        when(row.getStockAtOrder()).thenReturn(100);
+        return row;
+    }
+}
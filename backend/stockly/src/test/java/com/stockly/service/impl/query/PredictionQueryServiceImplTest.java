@@ -0,0 +1,131 @@
+package com.stockly.service.impl.query;
+
+import com.stockly.model.PredictionResult;
+import com.stockly.service.query.PredictionQueryService.PredictionKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PredictionQueryServiceImplTest {
+
+    private static final String MONTH = "202601";
+    private static final MappingMongoConverter CONVERTER = converter();
+
+    private MongoTemplate mongoTemplate;
+    private PredictionQueryServiceImpl predictionQueryService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        predictionQueryService = new PredictionQueryServiceImpl(mongoTemplate, new SimpleMeterRegistry(), 1000, 60, "ml-stockly");
+    }
+
+    @Test
+    void keepsPredictionsOfTheSameProductApartPerWarehouse() {
+        when(mongoTemplate.find(any(Query.class), eq(PredictionResult.class), anyString()))
+                .thenReturn(List.of(prediction(1L, 100L), prediction(2L, 100L), prediction(2L, 200L)));
+
+        Map<PredictionKey, PredictionResult> predictions = predictionQueryService.getPredictions(MONTH,
+                List.of(new PredictionKey(1L, 100L), new PredictionKey(2L, 100L), new PredictionKey(1L, 200L)));
+
+        assertThat(predictions).hasSize(2);
+        assertThat(predictions.get(new PredictionKey(1L, 100L)).getWarehouseId()).isEqualTo(1L);
+        assertThat(predictions.get(new PredictionKey(2L, 100L)).getWarehouseId()).isEqualTo(2L);
+        // (2, 200) matched the query but was not asked for
+        assertThat(predictions).doesNotContainKey(new PredictionKey(2L, 200L));
+    }
+
+    @Test
+    void loadsMissingPairsWithOneQueryAndServesRepeatsFromTheCache() {
+        when(mongoTemplate.find(any(Query.class), eq(PredictionResult.class), anyString()))
+                .thenReturn(List.of(prediction(1L, 100L)));
+        List<PredictionKey> keys = List.of(new PredictionKey(1L, 100L), new PredictionKey(1L, 101L));
+
+        predictionQueryService.getPredictions(MONTH, keys);
+        predictionQueryService.getPredictions(MONTH, keys);
+        PredictionResult single = predictionQueryService.getPrediction(MONTH, 1L, 100L);
+
+        assertThat(single).isNotNull();
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(PredictionResult.class), eq("predictions_" + MONTH));
+    }
+
+    @Test
+    void onlyReadsPredictionsOfTheConfiguredSource() {
+        predictionQueryService.getPredictionsByWarehouseId(MONTH, 1L);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(PredictionResult.class), eq("predictions_" + MONTH));
+        assertThat(query.getValue().getQueryObject().get("metadata.source")).isEqualTo("ml-stockly");
+    }
+
+    @Test
+    void servesTheLatestRunWhenAPairHasSeveralInOneMonth() {
+        PredictionResult older = prediction(1L, 100L, "2026-01-05T02:00:00Z", 40);
+        PredictionResult newer = prediction(1L, 100L, "2026-01-12T02:00:00Z", 15);
+        PredictionResult other = prediction(1L, 101L, "2026-01-05T02:00:00Z", 7);
+        // Natural order returns the oldest document first
+        when(mongoTemplate.find(any(Query.class), eq(PredictionResult.class), anyString()))
+                .thenReturn(List.of(older, other, newer));
+
+        Map<PredictionKey, PredictionResult> predictions = predictionQueryService.getPredictions(MONTH,
+                List.of(new PredictionKey(1L, 100L), new PredictionKey(1L, 101L)));
+        List<PredictionResult> byWarehouse = predictionQueryService.getPredictionsByWarehouseId(MONTH, 1L);
+
+        assertThat(predictions.get(new PredictionKey(1L, 100L))).isSameAs(newer);
+        assertThat(byWarehouse).containsExactlyInAnyOrder(newer, other);
+
+        predictionQueryService.getPredictionsByProductId(MONTH, 100L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(query.capture(), eq(PredictionResult.class), eq("predictions_" + MONTH));
+        assertThat(query.getValue().getSortObject()).isEqualTo(new Document("metadata.created_at", -1));
+    }
+
+    static PredictionResult prediction(Long warehouseId, Long productId) {
+        PredictionResult prediction = new PredictionResult();
+        prediction.setWarehouseId(warehouseId);
+        prediction.setProductId(productId);
+        return prediction;
+    }
+
+    private static MappingMongoConverter converter() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    // Shaped like the documents ml-stockly writes
+    private static PredictionResult prediction(Long warehouseId, Long productId, String createdAt, int suggestedRestock) {
+        Document document = new Document("product_id", productId)
+                .append("warehouse_id", warehouseId)
+                .append("metadata", new Document("created_at", Date.from(Instant.parse(createdAt)))
+                        .append("source", "ml-stockly")
+                        .append("prediction_run_id", createdAt))
+                .append("recommendation", new Document("safety_stock", 5).append("suggested_restock", suggestedRestock));
+        return CONVERTER.read(PredictionResult.class, document);
+    }
+}
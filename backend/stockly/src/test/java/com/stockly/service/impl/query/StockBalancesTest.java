@@ -0,0 +1,53 @@
+package com.stockly.service.impl.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockBalancesTest {
+
+    @Test
+    void keysRoundTripBothIds() {
+        long key = StockBalances.key(Integer.MAX_VALUE, 7L);
+
+        assertThat(StockBalances.productId(key)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(StockBalances.warehouseId(key)).isEqualTo(7L);
+        assertThat(StockBalances.key(7L, 1L)).isNotEqualTo(StockBalances.key(1L, 7L));
+    }
+
+    @Test
+    void idsBeyondTheSerialRangeAreRejected() {
+        assertThatThrownBy(() -> StockBalances.key(1L << 40, 1L)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void addStartsUnknownPairsAtZero() {
+        StockBalances balances = new StockBalances(0);
+        long key = StockBalances.key(100L, 1L);
+
+        assertThat(balances.add(key, -3)).isEqualTo(-3);
+        balances.put(key, 10);
+        assertThat(balances.add(key, 5)).isEqualTo(15);
+        assertThat(balances.size()).isEqualTo(1);
+    }
+
+    @Test
+    void matchesAHashMapWhileGrowing() {
+        StockBalances balances = new StockBalances(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = StockBalances.key(random.nextInt(5_000) + 1, random.nextInt(20) + 1);
+            int change = random.nextInt(21) - 10;
+            int balance = balances.add(key, change);
+            assertThat(balance).isEqualTo(expected.merge(key, change, Integer::sum));
+        }
+        assertThat(balances.size()).isEqualTo(expected.size());
+    }
+}